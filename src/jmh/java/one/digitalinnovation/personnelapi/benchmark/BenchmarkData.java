@@ -0,0 +1,39 @@
+package one.digitalinnovation.personnelapi.benchmark;
+
+import one.digitalinnovation.personnelapi.dto.PersonDTO;
+import one.digitalinnovation.personnelapi.dto.PhoneDTO;
+import one.digitalinnovation.personnelapi.enums.PhoneType;
+import one.digitalinnovation.personnelapi.utils.PersonUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Deterministic datasets shared by the benchmarks, so runs against different builds are comparable.
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    static List<PersonDTO> personDTOs(int from, int count) {
+        List<PersonDTO> personDTOs = new ArrayList<>(count);
+        for (int i = from; i < from + count; i++) {
+            personDTOs.add(personDTO(i));
+        }
+        return personDTOs;
+    }
+
+    static PersonDTO personDTO(int sequence) {
+        return PersonDTO.builder()
+                .firstName("First" + sequence)
+                .lastName("Last" + sequence)
+                .cpf(PersonUtils.createCpf(sequence))
+                .birthDate(String.format("%02d-%02d-%04d", 1 + sequence % 28, 1 + sequence % 12, 1950 + sequence % 50))
+                .phones(new ArrayList<>(Arrays.asList(
+                        PhoneDTO.builder().type(PhoneType.MOBILE).number(String.format("119%04d-%04d", sequence % 10000, sequence % 9999)).build(),
+                        PhoneDTO.builder().type(PhoneType.HOME).number(String.format("113%04d-%04d", sequence % 10000, sequence % 9999)).build())))
+                .build();
+    }
+}
@@ -0,0 +1,147 @@
+package one.digitalinnovation.personnelapi.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import one.digitalinnovation.personnelapi.PersonnelApplication;
+import one.digitalinnovation.personnelapi.dto.PersonDTO;
+import one.digitalinnovation.personnelapi.dto.PersonPageDTO;
+import one.digitalinnovation.personnelapi.service.PersonService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load test of {@code GET /api/v1/person/{id}} and {@code POST /api/v1/person} over HTTP with many more
+ * client threads than Tomcat worker threads, in the default (blocking) and the async execution mode.
+ * Every JDBC connection checkout waits {@code jdbcLatencyMillis} to stand in for the network round trip
+ * to a real database, which the in-memory H2 does not have.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(128)
+@Fork(1)
+public class PersonApiLoadBenchmark {
+
+    private static final int TOMCAT_THREADS = 8;
+
+    private static final int JDBC_POOL_SIZE = 32;
+
+    private static final int PERSON_COUNT = 1000;
+
+    @Param({"false", "true"})
+    private boolean asyncEnabled;
+
+    @Param({"50"})
+    private long jdbcLatencyMillis;
+
+    private ConfigurableApplicationContext context;
+
+    private HttpClient httpClient;
+
+    private ObjectMapper objectMapper;
+
+    private String baseUrl;
+
+    private List<Long> ids;
+
+    private final AtomicInteger nextSequence = new AtomicInteger(PERSON_COUNT + 1);
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = new SpringApplicationBuilder(PersonnelApplication.class)
+                .initializers(applicationContext -> applicationContext.getBeanFactory()
+                        .addBeanPostProcessor(new JdbcLatencyPostProcessor(jdbcLatencyMillis)))
+                .run("--server.port=0",
+                        "--server.tomcat.threads.max=" + TOMCAT_THREADS,
+                        "--spring.datasource.hikari.maximum-pool-size=" + JDBC_POOL_SIZE,
+                        "--personnel.async.enabled=" + asyncEnabled,
+                        "--personnel.async.pool-size=" + JDBC_POOL_SIZE,
+                        "--personnel.cache.enabled=false",
+                        "--logging.level.root=ERROR");
+        baseUrl = "http://localhost:" + ((ServletWebServerApplicationContext) context).getWebServer().getPort()
+                + "/api/v1/person";
+        objectMapper = context.getBean(ObjectMapper.class);
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        PersonService personService = context.getBean(PersonService.class);
+        personService.createAll(BenchmarkData.personDTOs(1, PERSON_COUNT));
+        ids = new ArrayList<>(PERSON_COUNT);
+        PersonPageDTO page = personService.findAll(null, PersonService.MAX_PAGE_SIZE);
+        page.getContent().forEach(personDTO -> ids.add(personDTO.getId()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int findById() throws Exception {
+        Long id = ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/" + id)).GET().build();
+        return expectStatus(httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray()), 200);
+    }
+
+    @Benchmark
+    public int create() throws Exception {
+        PersonDTO personDTO = BenchmarkData.personDTO(nextSequence.getAndIncrement());
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(personDTO)))
+                .build();
+        return expectStatus(httpClient.send(request, HttpResponse.BodyHandlers.discarding()), 201);
+    }
+
+    private static int expectStatus(HttpResponse<?> response, int expected) {
+        if (response.statusCode() != expected) {
+            throw new IllegalStateException("Expected status " + expected + " but got " + response.statusCode());
+        }
+        return response.statusCode();
+    }
+
+    private static class JdbcLatencyPostProcessor implements BeanPostProcessor {
+
+        private final long latencyMillis;
+
+        JdbcLatencyPostProcessor(long latencyMillis) {
+            this.latencyMillis = latencyMillis;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!(bean instanceof DataSource) || latencyMillis == 0) {
+                return bean;
+            }
+            return new DelegatingDataSource((DataSource) bean) {
+                @Override
+                public Connection getConnection() throws SQLException {
+                    Connection connection = super.getConnection();
+                    try {
+                        Thread.sleep(latencyMillis);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return connection;
+                }
+            };
+        }
+    }
+}
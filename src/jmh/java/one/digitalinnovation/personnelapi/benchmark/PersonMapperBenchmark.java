@@ -0,0 +1,52 @@
+package one.digitalinnovation.personnelapi.benchmark;
+
+import one.digitalinnovation.personnelapi.dto.PersonDTO;
+import one.digitalinnovation.personnelapi.dto.mapper.PersonMapper;
+import one.digitalinnovation.personnelapi.entity.Person;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Cost of {@link PersonMapper} conversions; {@code toModel} includes the {@code dd-MM-yyyy} birth date parse.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersonMapperBenchmark {
+
+    @Param({"1", "100", "10000"})
+    private int size;
+
+    private final PersonMapper personMapper = PersonMapper.INSTANCE;
+
+    private List<PersonDTO> personDTOs;
+
+    private List<Person> persons;
+
+    @Setup
+    public void setUp() {
+        personDTOs = BenchmarkData.personDTOs(1, size);
+        persons = personDTOs.stream().map(personMapper::toModel).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public void toModel(Blackhole blackhole) {
+        for (PersonDTO personDTO : personDTOs) {
+            blackhole.consume(personMapper.toModel(personDTO));
+        }
+    }
+
+    @Benchmark
+    public void toDto(Blackhole blackhole) {
+        for (Person person : persons) {
+            blackhole.consume(personMapper.toDto(person));
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package one.digitalinnovation.personnelapi.benchmark;
+
+import one.digitalinnovation.personnelapi.dto.PersonNameMatchDTO;
+import one.digitalinnovation.personnelapi.repository.sharding.PersonShards;
+import one.digitalinnovation.personnelapi.service.PersonNameIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency distribution of {@link PersonNameIndex#search} over common Brazilian names, where a few surnames
+ * are shared by a large part of the base and half of the persons carry a second given name; the sample
+ * mode reports the p99 the name search endpoint is expected to keep under 10 ms.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class PersonNameIndexBenchmark {
+
+    private static final String[] FIRST_NAMES = {"Maria", "José", "Ana", "João", "Antônio", "Francisco", "Carlos",
+            "Paulo", "Pedro", "Lucas", "Luiz", "Marcos", "Luís", "Gabriel", "Rafael", "Francisca", "Daniel",
+            "Marcelo", "Bruno", "Eduardo", "Juliana", "Adriana", "Márcia", "Fernanda", "Patrícia", "Aline"};
+
+    private static final String[] LAST_NAMES = {"da Silva", "dos Santos", "Oliveira", "Souza", "Rodrigues",
+            "Ferreira", "Alves", "Pereira", "Lima", "Gomes", "Costa", "Ribeiro", "Martins", "Carvalho", "Almeida",
+            "Lopes", "Soares", "Fernandes", "Vieira", "Barbosa", "Rocha", "Dias", "Nascimento", "Andrade"};
+
+    private static final String[] QUERIES = {"silva", "maria silva", "pereira", "joao", "fernand", "nascimento",
+            "marcia", "albuquerque", "gabriel ribeiro", "souza"};
+
+    @Param({"10000", "100000", "1000000"})
+    private int size;
+
+    private PersonNameIndex personNameIndex;
+
+    @Setup
+    public void setUp() {
+        personNameIndex = new PersonNameIndex(null, PersonShards.single());
+        Random random = new Random(42);
+        for (long id = 1; id <= size; id++) {
+            String firstName = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+            if (random.nextBoolean()) {
+                firstName += " " + FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+            }
+            String lastName = LAST_NAMES[random.nextInt(LAST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+            personNameIndex.put(id, firstName, lastName);
+        }
+    }
+
+    @Benchmark
+    public List<PersonNameMatchDTO> search() {
+        return personNameIndex.search(QUERIES[ThreadLocalRandom.current().nextInt(QUERIES.length)], 20);
+    }
+}
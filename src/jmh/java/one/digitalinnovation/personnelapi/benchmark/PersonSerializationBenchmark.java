@@ -0,0 +1,72 @@
+package one.digitalinnovation.personnelapi.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import one.digitalinnovation.personnelapi.dto.PersonDTO;
+import one.digitalinnovation.personnelapi.dto.json.PersonJsonModule;
+import one.digitalinnovation.personnelapi.dto.mapper.PersonMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Jackson serialization of {@code List<PersonDTO>} with the same defaults Spring Boot applies to the API,
+ * through Jackson's reflective bean serializers or the hand-written ones of {@link PersonJsonModule}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersonSerializationBenchmark {
+
+    @Param({"1", "100", "10000"})
+    private int size;
+
+    @Param({"reflective", "hand-written"})
+    private String serializer;
+
+    private ObjectWriter listWriter;
+
+    private List<PersonDTO> personDTOs;
+
+    private final ByteArrayOutputStream outputStream = new ByteArrayOutputStream(1 << 20);
+
+    @Setup
+    public void setUp() {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        if (serializer.equals("hand-written")) {
+            builder.modulesToInstall(new PersonJsonModule());
+        }
+        ObjectMapper objectMapper = builder.build();
+        listWriter = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, PersonDTO.class));
+        // Round trip through the mapper so the DTOs look like the ones the API returns (ids, ISO birth dates).
+        personDTOs = BenchmarkData.personDTOs(1, size).stream()
+                .map(PersonMapper.INSTANCE::toModel)
+                .map(PersonMapper.INSTANCE::toDto)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public byte[] writeList() throws JsonProcessingException {
+        return listWriter.writeValueAsBytes(personDTOs);
+    }
+
+    /**
+     * Writes into a reused stream, as the streaming endpoints do, so buffer growth and copying of the
+     * resulting array do not hide the cost of the serializers themselves.
+     */
+    @Benchmark
+    public int writeListToStream() throws IOException {
+        outputStream.reset();
+        listWriter.writeValue(outputStream, personDTOs);
+        return outputStream.size();
+    }
+}
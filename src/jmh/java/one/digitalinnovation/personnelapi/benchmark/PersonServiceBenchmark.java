@@ -0,0 +1,98 @@
+package one.digitalinnovation.personnelapi.benchmark;
+
+import one.digitalinnovation.personnelapi.PersonnelApplication;
+import one.digitalinnovation.personnelapi.dto.PersonDTO;
+import one.digitalinnovation.personnelapi.dto.PersonPageDTO;
+import one.digitalinnovation.personnelapi.entity.Person;
+import one.digitalinnovation.personnelapi.service.PersonService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PersonService} operations against the in-memory H2 database, with the result cache disabled so
+ * every call reaches the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersonServiceBenchmark {
+
+    private static final int INSERT_CHUNK_SIZE = 1000;
+
+    @Param({"100", "10000"})
+    private int personCount;
+
+    private ConfigurableApplicationContext context;
+
+    private PersonService personService;
+
+    private List<Long> ids;
+
+    private List<String> cpfs;
+
+    private int nextSequence;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = new SpringApplicationBuilder(PersonnelApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--personnel.cache.enabled=false", "--logging.level.root=ERROR");
+        personService = context.getBean(PersonService.class);
+
+        cpfs = new ArrayList<>(personCount);
+        for (int from = 1; from <= personCount; from += INSERT_CHUNK_SIZE) {
+            List<PersonDTO> chunk = BenchmarkData.personDTOs(from, Math.min(INSERT_CHUNK_SIZE, personCount - from + 1));
+            personService.createAll(chunk);
+            chunk.forEach(personDTO -> cpfs.add(personDTO.getCpf()));
+        }
+
+        ids = new ArrayList<>(personCount);
+        PersonPageDTO page = personService.findAll(null, PersonService.MAX_PAGE_SIZE);
+        page.getContent().forEach(personDTO -> ids.add(personDTO.getId()));
+        while (page.getNextCursor() != null) {
+            page = personService.findAll(page.getNextCursor(), PersonService.MAX_PAGE_SIZE);
+            page.getContent().forEach(personDTO -> ids.add(personDTO.getId()));
+        }
+        nextSequence = personCount + 1;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public PersonDTO findById() throws Exception {
+        return personService.findById(ids.get(ThreadLocalRandom.current().nextInt(ids.size())));
+    }
+
+    @Benchmark
+    public PersonDTO findByCpf() throws Exception {
+        return personService.findByCpf(cpfs.get(ThreadLocalRandom.current().nextInt(cpfs.size())));
+    }
+
+    @Benchmark
+    public PersonPageDTO findFirstPage() {
+        return personService.findAll(null, PersonService.DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * Creates and removes one person, so the dataset size stays at {@code personCount}.
+     */
+    @Benchmark
+    public Long createAndDelete() throws Exception {
+        Person person = personService.create(BenchmarkData.personDTO(nextSequence++));
+        personService.deleteById(person.getId());
+        return person.getId();
+    }
+}
@@ -0,0 +1,20 @@
+package one.digitalinnovation.personnelapi.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Async request timeout of a streaming handler, given as a property placeholder that resolves to a duration
+ * such as {@code 30m}; see {@link AsyncTimeoutInterceptor}. Handlers without it keep the default async
+ * request timeout.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface AsyncTimeout {
+
+    String value();
+}
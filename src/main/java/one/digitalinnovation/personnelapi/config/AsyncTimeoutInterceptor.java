@@ -0,0 +1,59 @@
+package one.digitalinnovation.personnelapi.config;
+
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.core.env.PropertyResolver;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.DeferredResultProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.Callable;
+
+/**
+ * Applies the {@link AsyncTimeout} of the handler to the async processing it starts, whether it streams a
+ * body or returns an emitter, just before the request goes async.
+ */
+public class AsyncTimeoutInterceptor implements HandlerInterceptor {
+
+    private static final String KEY = AsyncTimeoutInterceptor.class.getName();
+
+    private final PropertyResolver propertyResolver;
+
+    public AsyncTimeoutInterceptor(PropertyResolver propertyResolver) {
+        this.propertyResolver = propertyResolver;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod)) {
+            return true;
+        }
+        AsyncTimeout asyncTimeout = ((HandlerMethod) handler).getMethodAnnotation(AsyncTimeout.class);
+        if (asyncTimeout == null) {
+            return true;
+        }
+        long timeout = DurationStyle.detectAndParse(propertyResolver.resolveRequiredPlaceholders(asyncTimeout.value())).toMillis();
+
+        WebAsyncManager asyncManager = WebAsyncUtils.getAsyncManager(request);
+        asyncManager.registerCallableInterceptor(KEY, new CallableProcessingInterceptor() {
+            @Override
+            public <T> void beforeConcurrentHandling(NativeWebRequest webRequest, Callable<T> task) {
+                ((AsyncWebRequest) webRequest).setTimeout(timeout);
+            }
+        });
+        asyncManager.registerDeferredResultInterceptor(KEY, new DeferredResultProcessingInterceptor() {
+            @Override
+            public <T> void beforeConcurrentHandling(NativeWebRequest webRequest, DeferredResult<T> deferredResult) {
+                ((AsyncWebRequest) webRequest).setTimeout(timeout);
+            }
+        });
+        return true;
+    }
+}
@@ -0,0 +1,12 @@
+package one.digitalinnovation.personnelapi.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+
+/**
+ * Fills the {@code createdAt} and {@code updatedAt} columns of persons and phones on every insert and update.
+ */
+@Configuration
+@EnableJpaAuditing
+public class AuditingConfig {
+}
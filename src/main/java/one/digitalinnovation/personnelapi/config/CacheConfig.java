@@ -0,0 +1,15 @@
+package one.digitalinnovation.personnelapi.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Enables the person read-through cache. Sizing and expiration come from {@code spring.cache.caffeine.spec};
+ * set {@code personnel.cache.enabled=false} to turn caching off entirely.
+ */
+@Configuration
+@EnableCaching
+@ConditionalOnProperty(name = "personnel.cache.enabled", havingValue = "true", matchIfMissing = true)
+public class CacheConfig {
+}
@@ -0,0 +1,72 @@
+package one.digitalinnovation.personnelapi.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import one.digitalinnovation.personnelapi.service.PersonService;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Sends the read-only {@link PersonService} methods to a read replica, configured under
+ * {@code personnel.datasource.replica} with the Hikari property names, and everything else to the primary
+ * from {@code spring.datasource}. Only active when {@code personnel.datasource.replica.jdbc-url} is set;
+ * otherwise Spring Boot's single pool is used.
+ * <p>
+ * Reads that feed state kept by this instance, such as the person cache and the in-memory indexes, are not
+ * read-only service methods, so they always see the primary.
+ */
+@Configuration
+@ConditionalOnProperty(name = "personnel.datasource.replica.jdbc-url")
+public class DataSourceRoutingConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @ConfigurationProperties("personnel.datasource.replica")
+    public HikariDataSource replicaDataSource() {
+        HikariDataSource replica = new HikariDataSource();
+        replica.setPoolName("replica");
+        return replica;
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(@Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                               @Value("${personnel.datasource.replica-lag.query:#{null}}") String lagQuery,
+                                               @Value("${personnel.datasource.replica-lag.max:5s}") Duration maxLag,
+                                               @Value("${personnel.datasource.replica-lag.check-interval:1s}") Duration checkInterval,
+                                               MeterRegistry meterRegistry) {
+        return new ReplicaLagMonitor(replicaDataSource, lagQuery, maxLag, checkInterval, meterRegistry);
+    }
+
+    /**
+     * The pools are injected lazily: Spring Boot initializes the schema through the primary data source as
+     * soon as any data source bean exists, so this one must be created before the pools.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Lazy @Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 @Lazy @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                 @Lazy ReplicaLagMonitor replicaLagMonitor) {
+        ReadWriteRoutingDataSource routingDataSource = new ReadWriteRoutingDataSource(
+                primaryDataSource, replicaDataSource, replicaLagMonitor, PersonService.class);
+        routingDataSource.afterPropertiesSet();
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy();
+        dataSource.setTargetDataSource(routingDataSource);
+        return dataSource;
+    }
+}
@@ -0,0 +1,36 @@
+package one.digitalinnovation.personnelapi.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import one.digitalinnovation.personnelapi.exception.PersonAlreadyRegisteredException;
+import one.digitalinnovation.personnelapi.exception.PersonNotFoundException;
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.annotation.AfterThrowing;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts the domain exceptions leaving {@code PersonService} as {@code person.exceptions}, tagged with the
+ * exception and the service method, so not-found and duplicate rates can be charted per operation.
+ */
+@Aspect
+@Component
+@AllArgsConstructor(onConstructor = @__(@Autowired))
+public class ExceptionMetricsAspect {
+
+    public static final String EXCEPTION_COUNTER = "person.exceptions";
+
+    private final MeterRegistry meterRegistry;
+
+    @AfterThrowing(pointcut = "execution(public * one.digitalinnovation.personnelapi.service.PersonService.*(..))",
+            throwing = "exception")
+    public void countException(JoinPoint joinPoint, Exception exception) {
+        if (exception instanceof PersonNotFoundException || exception instanceof PersonAlreadyRegisteredException) {
+            meterRegistry.counter(EXCEPTION_COUNTER,
+                    "exception", exception.getClass().getSimpleName(),
+                    "method", joinPoint.getSignature().getName())
+                    .increment();
+        }
+    }
+}
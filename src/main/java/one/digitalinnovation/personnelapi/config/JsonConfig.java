@@ -0,0 +1,23 @@
+package one.digitalinnovation.personnelapi.config;
+
+import com.fasterxml.jackson.databind.Module;
+import one.digitalinnovation.personnelapi.dto.json.PersonJsonModule;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Serializes persons and phones with the hand-written serializers of {@link PersonJsonModule}, which Spring Boot
+ * registers on the application {@code ObjectMapper}. Opt-in with {@code personnel.json.hand-written-serializers=true}:
+ * the serializers must be kept in step with the DTOs by hand, so Jackson's reflective serialization stays the
+ * default.
+ */
+@Configuration
+@ConditionalOnProperty(name = "personnel.json.hand-written-serializers", havingValue = "true")
+public class JsonConfig {
+
+    @Bean
+    public Module personJsonModule() {
+        return new PersonJsonModule();
+    }
+}
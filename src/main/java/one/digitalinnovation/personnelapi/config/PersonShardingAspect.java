@@ -0,0 +1,327 @@
+package one.digitalinnovation.personnelapi.config;
+
+import lombok.AllArgsConstructor;
+import one.digitalinnovation.personnelapi.dto.BatchCreateResultDTO;
+import one.digitalinnovation.personnelapi.dto.BatchItemResultDTO;
+import one.digitalinnovation.personnelapi.dto.MessageResponseDTO;
+import one.digitalinnovation.personnelapi.dto.PersonDTO;
+import one.digitalinnovation.personnelapi.dto.PersonFieldsPageDTO;
+import one.digitalinnovation.personnelapi.dto.PersonPageDTO;
+import one.digitalinnovation.personnelapi.dto.PersonSyncPageDTO;
+import one.digitalinnovation.personnelapi.dto.PersonTombstoneDTO;
+import one.digitalinnovation.personnelapi.exception.PersonNotFoundException;
+import one.digitalinnovation.personnelapi.exception.ShardingNotSupportedException;
+import one.digitalinnovation.personnelapi.repository.sharding.PersonShards;
+import one.digitalinnovation.personnelapi.service.PersonService;
+import one.digitalinnovation.personnelapi.utils.CpfUtils;
+import one.digitalinnovation.personnelapi.utils.ETagUtils;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Routes {@link PersonService} calls to the shards holding their persons; see {@link PersonShards}. Calls about
+ * one person run on its shard, picked by id or CPF, before any transaction begins. Listings, searches and phone
+ * lookups run on every shard in parallel and their keyset pages are merged by id, or by {@code (instant, id)}
+ * for incremental sync; batches are split by shard. Operations that cannot be answered from merged shard results
+ * are rejected with 501 instead of silently answering from a single shard.
+ * <p>
+ * Each shard commits its part of a split batch ({@code createAll}, {@code updateAllById}, {@code deleteAllById})
+ * in a transaction of its own. A batch is therefore not atomic across shards: when one shard fails, the parts
+ * already committed by the others stay written and the failure is thrown to the caller, who may retry the whole
+ * batch since updates and deletes of the same persons are idempotent.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "personnel.sharding.shards[0].jdbc-url")
+@AllArgsConstructor(onConstructor = @__(@Autowired))
+public class PersonShardingAspect {
+
+    private final PersonShards personShards;
+
+    @Around("execution(public * one.digitalinnovation.personnelapi.service.PersonService.*(..))")
+    @SuppressWarnings("unchecked")
+    public Object route(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (!personShards.isSharded() || PersonShards.isBound()) {
+            return joinPoint.proceed();
+        }
+        Object[] args = joinPoint.getArgs();
+        String method = joinPoint.getSignature().getName();
+        switch (method) {
+            case "findById":
+            case "findVersionById":
+            case "deleteById":
+            case "updateById":
+            case "patchById":
+                return personShards.callOn(personShards.shardOfId((Long) args[0]), shard -> joinPoint.proceed());
+            case "create":
+                return personShards.callOn(shardOfCpf(((PersonDTO) args[0]).getCpf()), shard -> joinPoint.proceed());
+            case "findByCpf":
+            case "verifyIfPersonExistsByCPF":
+                return personShards.callOn(shardOfCpf((String) args[0]), shard -> joinPoint.proceed());
+            case "findAll":
+                if (args.length == 2) {
+                    return mergePages(personShards.callOnEach(shard -> (PersonPageDTO) joinPoint.proceed()), (Integer) args[1]);
+                }
+                return findAllFields(joinPoint, (Long) args[0], (Integer) args[1], (Set<String>) args[2]);
+            case "findUpdatedSince":
+                return mergeSyncPages(personShards.callOnEach(shard -> (PersonSyncPageDTO) joinPoint.proceed()), (Integer) args[2]);
+            case "search":
+                return mergePages(personShards.callOnEach(shard -> (PersonPageDTO) joinPoint.proceed()), (Integer) args[2]);
+            case "findPageETag":
+                return pageETag(((PersonService) joinPoint.getThis()).findAll((Long) args[0], (Integer) args[1]));
+            case "findIdsByPhone":
+                return findIdsByPhone(joinPoint, (String) args[0]);
+            case "createAll":
+                return createAll(joinPoint, (List<PersonDTO>) args[0]);
+            case "updateAllById":
+                return updateAllById(joinPoint, (Map<Long, PersonDTO>) args[0]);
+            case "deleteAllById":
+                return deleteAllById(joinPoint, (Collection<Long>) args[0]);
+            case "deleteExisting":
+                return deleteExisting(joinPoint, (List<Long>) args[0]);
+            case "streamAll":
+                for (int shard = 0; shard < personShards.count(); shard++) {
+                    personShards.callOn(shard, target -> joinPoint.proceed());
+                }
+                return null;
+            case "searchByName":
+                return joinPoint.proceed();
+            default:
+                break;
+        }
+        throw new ShardingNotSupportedException(method + " is not supported when persons are sharded");
+    }
+
+    /**
+     * Invalid CPFs, like null items of a batch, have no shard; they go to the first one, where validation or the
+     * lookup rejects them.
+     */
+    private int shardOfCpf(String cpf) {
+        try {
+            return personShards.shardOfCpfKey(CpfUtils.toKey(cpf));
+        } catch (IllegalArgumentException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Every shard returned the first persons after the cursor, so the smallest ids among them form the page.
+     */
+    private PersonPageDTO mergePages(List<PersonPageDTO> pages, Integer limit) {
+        int pageSize = PersonService.resolvePageSize(limit);
+        List<PersonDTO> persons = pages.stream()
+                .flatMap(page -> page.getContent().stream())
+                .sorted(Comparator.comparing(PersonDTO::getId))
+                .collect(Collectors.toList());
+        List<PersonDTO> content = new ArrayList<>(persons.subList(0, Math.min(persons.size(), pageSize)));
+        boolean more = persons.size() > pageSize || pages.stream().anyMatch(page -> page.getNextCursor() != null);
+
+        return PersonPageDTO.builder()
+                .content(content)
+                .nextCursor(more ? content.get(content.size() - 1).getId() : null)
+                .build();
+    }
+
+    /**
+     * Each shard is asked for the id as well, so their maps can be merged like full pages; it is dropped again
+     * when it was not selected.
+     */
+    private PersonFieldsPageDTO findAllFields(ProceedingJoinPoint joinPoint, Long after, Integer limit,
+                                              Set<String> fields) throws Throwable {
+        if (fields.isEmpty() || fields.contains("id")) {
+            return mergeFieldPages(personShards.callOnEach(shard -> (PersonFieldsPageDTO) joinPoint.proceed()), limit, true);
+        }
+        Set<String> fieldsWithId = new LinkedHashSet<>(fields);
+        fieldsWithId.add("id");
+        return mergeFieldPages(personShards.callOnEach(
+                shard -> (PersonFieldsPageDTO) joinPoint.proceed(new Object[]{after, limit, fieldsWithId})), limit, false);
+    }
+
+    private PersonFieldsPageDTO mergeFieldPages(List<PersonFieldsPageDTO> pages, Integer limit, boolean keepId) {
+        int pageSize = PersonService.resolvePageSize(limit);
+        List<Map<String, Object>> persons = pages.stream()
+                .flatMap(page -> page.getContent().stream())
+                .sorted(Comparator.comparingLong(PersonShardingAspect::idOf))
+                .collect(Collectors.toList());
+        List<Map<String, Object>> content = new ArrayList<>(persons.subList(0, Math.min(persons.size(), pageSize)));
+        boolean more = persons.size() > pageSize || pages.stream().anyMatch(page -> page.getNextCursor() != null);
+        Long nextCursor = more ? idOf(content.get(content.size() - 1)) : null;
+        if (!keepId) {
+            content.forEach(person -> person.remove("id"));
+        }
+
+        return PersonFieldsPageDTO.builder()
+                .content(content)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    /**
+     * Ids of maps converted from a full person may come back as any {@link Number}.
+     */
+    private static long idOf(Map<String, Object> person) {
+        return ((Number) person.get("id")).longValue();
+    }
+
+    /**
+     * Every shard returned its first changes after the cursor, so the earliest {@code (instant, id)} pairs among
+     * them, updates and tombstones alike, form the page.
+     */
+    private PersonSyncPageDTO mergeSyncPages(List<PersonSyncPageDTO> pages, Integer limit) {
+        int pageSize = PersonService.resolvePageSize(limit);
+        List<SyncEntry> entries = new ArrayList<>();
+        for (PersonSyncPageDTO page : pages) {
+            page.getContent().forEach(personDTO -> entries.add(new SyncEntry(personDTO.getUpdatedAt(), personDTO.getId(), personDTO)));
+            page.getDeleted().forEach(tombstone -> entries.add(new SyncEntry(tombstone.getDeletedAt(), tombstone.getId(), tombstone)));
+        }
+        entries.sort(Comparator.comparing((SyncEntry entry) -> entry.instant).thenComparing(entry -> entry.id));
+        List<SyncEntry> taken = entries.subList(0, Math.min(entries.size(), pageSize));
+        boolean more = entries.size() > pageSize || pages.stream().anyMatch(page -> page.getNextUpdatedSince() != null);
+
+        List<PersonDTO> content = new ArrayList<>();
+        List<PersonTombstoneDTO> deleted = new ArrayList<>();
+        for (SyncEntry entry : taken) {
+            if (entry.change instanceof PersonDTO) {
+                content.add((PersonDTO) entry.change);
+            } else {
+                deleted.add((PersonTombstoneDTO) entry.change);
+            }
+        }
+        SyncEntry last = taken.isEmpty() ? null : taken.get(taken.size() - 1);
+
+        return PersonSyncPageDTO.builder()
+                .content(content)
+                .deleted(deleted)
+                .nextUpdatedSince(more ? last.instant : null)
+                .nextAfter(more ? last.id : null)
+                .build();
+    }
+
+    @AllArgsConstructor
+    private static class SyncEntry {
+
+        private final Instant instant;
+
+        private final Long id;
+
+        private final Object change;
+    }
+
+    private String pageETag(PersonPageDTO page) {
+        return ETagUtils.ofPage(
+                page.getContent().stream().map(PersonDTO::getId).collect(Collectors.toList()),
+                page.getContent().stream().map(PersonDTO::getVersion).collect(Collectors.toList()),
+                page.getNextCursor());
+    }
+
+    private List<Long> findIdsByPhone(ProceedingJoinPoint joinPoint, String number) throws Throwable {
+        List<List<Long>> results = personShards.callOnEach(shard -> {
+            try {
+                return (List<Long>) joinPoint.proceed();
+            } catch (PersonNotFoundException e) {
+                return Collections.<Long>emptyList();
+            }
+        });
+        TreeSet<Long> ids = new TreeSet<>();
+        results.forEach(ids::addAll);
+        if (ids.isEmpty()) {
+            throw new PersonNotFoundException("Person not found with phone: " + number);
+        }
+        return new ArrayList<>(ids);
+    }
+
+    /**
+     * Each shard creates its own items; their indexes are mapped back to the positions in the whole batch.
+     */
+    private BatchCreateResultDTO createAll(ProceedingJoinPoint joinPoint, List<PersonDTO> personDTOs) throws Throwable {
+        if (personDTOs.size() > PersonService.MAX_BATCH_SIZE) {
+            return (BatchCreateResultDTO) joinPoint.proceed();
+        }
+        Map<Integer, List<Integer>> indexesByShard = new HashMap<>();
+        for (int i = 0; i < personDTOs.size(); i++) {
+            PersonDTO personDTO = personDTOs.get(i);
+            int shard = personDTO == null ? 0 : shardOfCpf(personDTO.getCpf());
+            indexesByShard.computeIfAbsent(shard, key -> new ArrayList<>()).add(i);
+        }
+
+        List<BatchCreateResultDTO> results = personShards.callOnEach(shard -> {
+            List<Integer> indexes = indexesByShard.getOrDefault(shard, Collections.emptyList());
+            if (indexes.isEmpty()) {
+                return null;
+            }
+            List<PersonDTO> shardDTOs = indexes.stream().map(personDTOs::get).collect(Collectors.toList());
+            BatchCreateResultDTO result = (BatchCreateResultDTO) joinPoint.proceed(new Object[]{shardDTOs});
+            result.getItems().forEach(item -> item.setIndex(indexes.get(item.getIndex())));
+            return result;
+        });
+
+        List<BatchItemResultDTO> items = new ArrayList<>(personDTOs.size());
+        int created = 0;
+        for (BatchCreateResultDTO result : results) {
+            if (result != null) {
+                items.addAll(result.getItems());
+                created += result.getCreated();
+            }
+        }
+        items.sort(Comparator.comparingInt(BatchItemResultDTO::getIndex));
+
+        return BatchCreateResultDTO.builder()
+                .created(created)
+                .failed(items.size() - created)
+                .items(items)
+                .build();
+    }
+
+    private List<Long> updateAllById(ProceedingJoinPoint joinPoint, Map<Long, PersonDTO> personDTOs) throws Throwable {
+        Map<Integer, Map<Long, PersonDTO>> personDTOsByShard = new HashMap<>();
+        personDTOs.forEach((id, personDTO) -> personDTOsByShard
+                .computeIfAbsent(personShards.shardOfId(id), shard -> new LinkedHashMap<>())
+                .put(id, personDTO));
+
+        List<List<Long>> results = personShards.callOnEach(shard -> {
+            Map<Long, PersonDTO> shardDTOs = personDTOsByShard.getOrDefault(shard, Collections.emptyMap());
+            return shardDTOs.isEmpty() ? Collections.<Long>emptyList() : (List<Long>) joinPoint.proceed(new Object[]{shardDTOs});
+        });
+        return results.stream().flatMap(List::stream).collect(Collectors.toList());
+    }
+
+    private MessageResponseDTO deleteAllById(ProceedingJoinPoint joinPoint, Collection<Long> ids) throws Throwable {
+        List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        if (distinctIds.size() > PersonService.MAX_BATCH_SIZE) {
+            return (MessageResponseDTO) joinPoint.proceed();
+        }
+        return PersonService.deletedMessage(((PersonService) joinPoint.getThis()).deleteExisting(distinctIds), distinctIds.size());
+    }
+
+    private int deleteExisting(ProceedingJoinPoint joinPoint, List<Long> distinctIds) throws Throwable {
+        Map<Integer, List<Long>> idsByShard = new HashMap<>();
+        distinctIds.forEach(id -> idsByShard.computeIfAbsent(personShards.shardOfId(id), shard -> new ArrayList<>()).add(id));
+
+        List<Integer> results = personShards.callOnEach(shard -> {
+            List<Long> shardIds = idsByShard.getOrDefault(shard, Collections.emptyList());
+            return shardIds.isEmpty() ? 0 : (Integer) joinPoint.proceed(new Object[]{shardIds});
+        });
+        return results.stream().mapToInt(Integer::intValue).sum();
+    }
+}
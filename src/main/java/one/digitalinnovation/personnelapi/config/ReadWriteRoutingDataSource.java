@@ -0,0 +1,48 @@
+package one.digitalinnovation.personnelapi.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hands out replica connections inside read-only transactions started by the given service while the
+ * {@link ReplicaLagMonitor} trusts the replica, and primary connections everywhere else. Other read-only
+ * transactions stay on the primary: Spring Data wraps every repository read in one, and readers such as
+ * the change feed must not see a lagging copy. The transaction's read-only flag is only set after the
+ * transaction manager asks for a connection, so this data source must sit behind a
+ * {@code LazyConnectionDataSourceProxy}, which defers the choice to the first statement.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Route {
+        PRIMARY, REPLICA
+    }
+
+    private final ReplicaLagMonitor replicaLagMonitor;
+
+    private final String replicaReaderPrefix;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, ReplicaLagMonitor replicaLagMonitor,
+                                      Class<?> replicaReader) {
+        this.replicaLagMonitor = replicaLagMonitor;
+        this.replicaReaderPrefix = replicaReader.getName() + ".";
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(Route.PRIMARY, primary);
+        targets.put(Route.REPLICA, replica);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String transactionName = TransactionSynchronizationManager.getCurrentTransactionName();
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && transactionName != null && transactionName.startsWith(replicaReaderPrefix)
+                && replicaLagMonitor.isReplicaUsable()
+                ? Route.REPLICA
+                : Route.PRIMARY;
+    }
+}
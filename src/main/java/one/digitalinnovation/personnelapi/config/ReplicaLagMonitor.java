@@ -0,0 +1,99 @@
+package one.digitalinnovation.personnelapi.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides whether read-only transactions may use the replica. Every check interval it runs the configured
+ * lag query on the replica, which must return the replication lag in seconds, and publishes it as
+ * {@code person.replica.lag}. While the lag exceeds the tolerated maximum, or the query fails, reads go to
+ * the primary. Without a lag query the replica is always trusted.
+ */
+public class ReplicaLagMonitor implements DisposableBean {
+
+    public static final String LAG_GAUGE = "person.replica.lag";
+
+    private final DataSource replica;
+
+    private final String lagQuery;
+
+    private final double maxLagSeconds;
+
+    private final ScheduledExecutorService checker;
+
+    private volatile double lagSeconds = Double.NaN;
+
+    private volatile boolean replicaUsable;
+
+    public ReplicaLagMonitor(DataSource replica, String lagQuery, Duration maxLag, Duration checkInterval,
+                             MeterRegistry meterRegistry) {
+        this.replica = replica;
+        this.lagQuery = lagQuery;
+        this.maxLagSeconds = maxLag.toMillis() / 1000.0;
+        this.replicaUsable = lagQuery == null;
+        Gauge.builder(LAG_GAUGE, this, ReplicaLagMonitor::getLagSeconds)
+                .description("Replication lag of the read replica, in seconds")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        if (lagQuery == null) {
+            this.checker = null;
+            return;
+        }
+        this.checker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-lag-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.checker.scheduleWithFixedDelay(this::check, 0, checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isReplicaUsable() {
+        return replicaUsable;
+    }
+
+    /**
+     * Last measured lag, {@code NaN} when it is unknown.
+     */
+    public double getLagSeconds() {
+        return lagSeconds;
+    }
+
+    public synchronized void check() {
+        if (lagQuery == null) {
+            return;
+        }
+        double lag = Double.NaN;
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(lagQuery)) {
+            if (resultSet.next()) {
+                lag = resultSet.getDouble(1);
+                if (resultSet.wasNull()) {
+                    lag = Double.NaN;
+                }
+            }
+        } catch (SQLException e) {
+            lag = Double.NaN;
+        }
+        lagSeconds = lag;
+        replicaUsable = lag <= maxLagSeconds;
+    }
+
+    @Override
+    public void destroy() {
+        if (checker != null) {
+            checker.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package one.digitalinnovation.personnelapi.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import one.digitalinnovation.personnelapi.repository.sharding.PersonShards;
+import one.digitalinnovation.personnelapi.repository.sharding.ShardRoutingDataSource;
+import one.digitalinnovation.personnelapi.repository.sharding.ShardSchemaIntegrator;
+import one.digitalinnovation.personnelapi.repository.sharding.ShardedSequenceGenerator;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.jpa.boot.internal.EntityManagerFactoryBuilderImpl;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Spreads persons over the databases listed under {@code personnel.sharding.shards}, each configured with the
+ * Hikari property names; see {@link PersonShards}. Only active when the first shard is configured, and then
+ * {@code spring.datasource} is not used. Cannot be combined with the read replica.
+ */
+@Configuration
+@ConditionalOnProperty(name = "personnel.sharding.shards[0].jdbc-url")
+public class ShardingConfig implements DisposableBean {
+
+    private ShardRoutingDataSource routingDataSource;
+
+    @Bean
+    public DataSource dataSource(Environment environment, MeterRegistry meterRegistry) {
+        List<HikariConfig> configs = Binder.get(environment)
+                .bind(PersonShards.SHARDS_PROPERTY, Bindable.listOf(HikariConfig.class)).get();
+        List<HikariDataSource> shards = new ArrayList<>(configs.size());
+        for (int shard = 0; shard < configs.size(); shard++) {
+            HikariConfig config = configs.get(shard);
+            if (config.getPoolName() == null) {
+                config.setPoolName("shard-" + shard);
+            }
+            config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            shards.add(new HikariDataSource(config));
+        }
+        routingDataSource = new ShardRoutingDataSource(shards);
+        routingDataSource.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    /**
+     * Connections are only taken once a statement runs, after the caller has bound its shard, and the id
+     * generator and schema management learn how many shards there are.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer shardingHibernateProperties(PersonShards personShards) {
+        return properties -> {
+            properties.put(ShardedSequenceGenerator.SHARD_COUNT_SETTING, personShards.count());
+            properties.put(AvailableSettings.CONNECTION_HANDLING,
+                    PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+            properties.put(EntityManagerFactoryBuilderImpl.INTEGRATOR_PROVIDER, (IntegratorProvider) () ->
+                    Collections.singletonList(new ShardSchemaIntegrator(personShards.count())));
+        };
+    }
+
+    @Override
+    public void destroy() {
+        if (routingDataSource != null) {
+            routingDataSource.close();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package one.digitalinnovation.personnelapi.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+import org.hibernate.BaseSessionEventListener;
+
+/**
+ * Records how many JDBC statements each Hibernate session prepared as {@code hibernate.session.statements}.
+ * With open-in-view a session spans the whole request, so this is the per-request statement count that
+ * exposes N+1 regressions; work handed to the async request executor is counted per transaction instead.
+ * Hibernate instantiates the listener itself for every session, so it records into the global registry,
+ * to which Spring Boot adds its own.
+ */
+public class StatementCountingSessionListener extends BaseSessionEventListener {
+
+    public static final String STATEMENTS_SUMMARY = "hibernate.session.statements";
+
+    private int statements;
+
+    @Override
+    public void jdbcPrepareStatementEnd() {
+        statements++;
+    }
+
+    @Override
+    public void end() {
+        DistributionSummary.builder(STATEMENTS_SUMMARY)
+                .description("JDBC statements prepared per Hibernate session")
+                .register(Metrics.globalRegistry)
+                .record(statements);
+    }
+}
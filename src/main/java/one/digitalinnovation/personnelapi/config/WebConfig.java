@@ -0,0 +1,20 @@
+package one.digitalinnovation.personnelapi.config;
+
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@AllArgsConstructor(onConstructor = @__(@Autowired))
+public class WebConfig implements WebMvcConfigurer {
+
+    private final Environment environment;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new AsyncTimeoutInterceptor(environment));
+    }
+}
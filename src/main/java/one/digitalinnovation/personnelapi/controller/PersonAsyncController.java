@@ -0,0 +1,87 @@
+package one.digitalinnovation.personnelapi.controller;
+
+import one.digitalinnovation.personnelapi.dto.PersonDTO;
+import one.digitalinnovation.personnelapi.service.PersonService;
+import one.digitalinnovation.personnelapi.service.RequestExecutor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import javax.annotation.PostConstruct;
+import javax.validation.Valid;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous variants of {@link PersonController#create} and {@link PersonController#findById}, registered
+ * only with {@code personnel.async.enabled=true}. On startup each takes over the mapping of the
+ * {@link PersonController} method with the same signature, so the Tomcat thread is released while
+ * {@link RequestExecutor} runs the database work; otherwise those methods answer on the Tomcat thread.
+ */
+@Component
+@ConditionalOnProperty(name = "personnel.async.enabled", havingValue = "true")
+public class PersonAsyncController {
+
+    private final PersonController personController;
+
+    private final PersonService personService;
+
+    private final RequestExecutor requestExecutor;
+
+    private final RequestMappingHandlerMapping handlerMapping;
+
+    @Autowired
+    public PersonAsyncController(PersonController personController, PersonService personService,
+                                 RequestExecutor requestExecutor,
+                                 @Qualifier("requestMappingHandlerMapping") RequestMappingHandlerMapping handlerMapping) {
+        this.personController = personController;
+        this.personService = personService;
+        this.requestExecutor = requestExecutor;
+        this.handlerMapping = handlerMapping;
+    }
+
+    @PostConstruct
+    void replaceBlockingMappings() {
+        List<Map.Entry<RequestMappingInfo, HandlerMethod>> mappings = new ArrayList<>(handlerMapping.getHandlerMethods().entrySet());
+        for (Map.Entry<RequestMappingInfo, HandlerMethod> mapping : mappings) {
+            Method blocking = mapping.getValue().getMethod();
+            Method async = mapping.getValue().getBeanType() == PersonController.class
+                    ? ReflectionUtils.findMethod(PersonAsyncController.class, blocking.getName(), blocking.getParameterTypes())
+                    : null;
+            if (async != null) {
+                handlerMapping.unregisterMapping(mapping.getKey());
+                handlerMapping.registerMapping(mapping.getKey(), this, async);
+            }
+        }
+    }
+
+    public CompletableFuture<ResponseEntity<Void>> create(@RequestBody @Valid PersonDTO personDTO) {
+        // Resolved here because the request is not bound to the thread that runs the insert.
+        UriComponentsBuilder location = ServletUriComponentsBuilder
+                .fromCurrentRequest()
+                .path("/{id}");
+
+        return requestExecutor.submit(() -> personService.create(personDTO))
+                .thenApply(savedPerson -> ResponseEntity.created(location.buildAndExpand(savedPerson.getId()).toUri()).build());
+    }
+
+    public CompletableFuture<ResponseEntity<PersonDTO>> findById(@PathVariable Long id,
+                                                                 @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return requestExecutor.submit(() -> personController.findById(id, ifNoneMatch));
+    }
+}
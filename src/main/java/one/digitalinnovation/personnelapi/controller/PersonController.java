@@ -1,29 +1,93 @@
 package one.digitalinnovation.personnelapi.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.AllArgsConstructor;
+import one.digitalinnovation.personnelapi.config.AsyncTimeout;
+import one.digitalinnovation.personnelapi.dto.BatchCreateResultDTO;
+import one.digitalinnovation.personnelapi.dto.ImportLineResultDTO;
+import one.digitalinnovation.personnelapi.dto.ImportProgressDTO;
 import one.digitalinnovation.personnelapi.dto.MessageResponseDTO;
+import one.digitalinnovation.personnelapi.dto.PersonChangeDTO;
 import one.digitalinnovation.personnelapi.dto.PersonDTO;
+import one.digitalinnovation.personnelapi.dto.PersonFieldsPageDTO;
+import one.digitalinnovation.personnelapi.dto.PersonNameMatchDTO;
+import one.digitalinnovation.personnelapi.dto.PersonPageDTO;
+import one.digitalinnovation.personnelapi.dto.PersonSearchDTO;
+import one.digitalinnovation.personnelapi.dto.PersonSyncPageDTO;
+import one.digitalinnovation.personnelapi.dto.QueuedUpdateDTO;
 import one.digitalinnovation.personnelapi.entity.Person;
+import one.digitalinnovation.personnelapi.exception.BatchSizeExceededException;
+import one.digitalinnovation.personnelapi.exception.CpfChangeNotSupportedException;
+import one.digitalinnovation.personnelapi.exception.InvalidFieldSelectionException;
+import one.digitalinnovation.personnelapi.exception.InvalidPersonPatchException;
 import one.digitalinnovation.personnelapi.exception.PersonAlreadyRegisteredException;
 import one.digitalinnovation.personnelapi.exception.PersonNotFoundException;
+import one.digitalinnovation.personnelapi.exception.PersonVersionMismatchException;
+import one.digitalinnovation.personnelapi.exception.UnsupportedExportFormatException;
+import one.digitalinnovation.personnelapi.exception.UpdateQueueFullException;
+import one.digitalinnovation.personnelapi.service.PersonChangeFeed;
+import one.digitalinnovation.personnelapi.service.PersonImportService;
 import one.digitalinnovation.personnelapi.service.PersonService;
+import one.digitalinnovation.personnelapi.service.PersonUpdateQueue;
+import one.digitalinnovation.personnelapi.utils.CsvUtils;
+import one.digitalinnovation.personnelapi.utils.ETagUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import javax.validation.Valid;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @AllArgsConstructor(onConstructor = @__(@Autowired))
 @RequestMapping("/api/v1/person")
 public class PersonController {
 
+    static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    static final String APPLICATION_MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
+    static final String TEXT_CSV_VALUE = "text/csv";
+    static final String LAST_EVENT_ID = "Last-Event-ID";
+    static final String PERSON_CHANGE_EVENT = "person-change";
+
+    private static final int GZIP_BUFFER_SIZE = 8192;
+
     private final PersonService personService;
 
+    private final ObjectMapper objectMapper;
+
+    private final PersonImportService personImportService;
+
+    private final PersonChangeFeed personChangeFeed;
+
+    private final PersonUpdateQueue personUpdateQueue;
+
     @PostMapping
     public ResponseEntity<Void> create(@RequestBody @Valid PersonDTO personDTO)
             throws PersonAlreadyRegisteredException {
@@ -38,29 +102,338 @@ public class PersonController {
         return ResponseEntity.created(uri).build();
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<BatchCreateResultDTO> createAll(@RequestBody List<PersonDTO> personDTOs)
+            throws BatchSizeExceededException {
+        return ResponseEntity.ok(personService.createAll(personDTOs));
+    }
+
+    /**
+     * Imports a CSV (same layout as the export) or NDJSON upload, optionally gzip-compressed, while it is
+     * being received. The response streams one NDJSON line per rejected record and the running totals after
+     * every chunk; the last line holds the final totals.
+     */
+    @AsyncTimeout("${personnel.import.timeout:30m}")
+    @PostMapping(value = "/import", consumes = {TEXT_CSV_VALUE, APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<StreamingResponseBody> importAll(InputStream inputStream,
+                                                           @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                           @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding) {
+        MediaType mediaType = MediaType.parseMediaType(contentType);
+        boolean csv = MediaType.parseMediaType(TEXT_CSV_VALUE).includes(mediaType);
+        Charset charset = mediaType.getCharset() == null ? StandardCharsets.UTF_8 : mediaType.getCharset();
+        boolean gzip = contentEncoding != null && contentEncoding.trim().equalsIgnoreCase("gzip");
+
+        StreamingResponseBody body = outputStream -> {
+            InputStream source = gzip ? new GZIPInputStream(inputStream, GZIP_BUFFER_SIZE) : inputStream;
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.setRootValueSeparator(null);
+                PersonImportService.Listener listener = new PersonImportService.Listener() {
+                    @Override
+                    public void onLineFailed(ImportLineResultDTO result) {
+                        writeLine(generator, result);
+                    }
+
+                    @Override
+                    public void onProgress(ImportProgressDTO progress) {
+                        writeLine(generator, progress);
+                    }
+                };
+                InputStreamReader reader = new InputStreamReader(source, charset);
+                if (csv) {
+                    personImportService.importCsv(reader, listener);
+                } else {
+                    personImportService.importNdjson(reader, listener);
+                }
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE))
+                .body(body);
+    }
+
     @GetMapping
-    public ResponseEntity<List<PersonDTO>> findAll() {
-        return ResponseEntity.ok(personService.findAll());
+    public ResponseEntity<PersonPageDTO> findAll(@RequestParam(required = false) Long after,
+                                                @RequestParam(required = false) Integer limit,
+                                                @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            String eTag = personService.findPageETag(after, limit);
+            if (ETagUtils.matchesAny(ifNoneMatch, eTag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+            }
+        }
+
+        PersonPageDTO personPage = personService.findAll(after, limit);
+        String eTag = ETagUtils.ofPage(
+                personPage.getContent().stream().map(PersonDTO::getId).collect(Collectors.toList()),
+                personPage.getContent().stream().map(PersonDTO::getVersion).collect(Collectors.toList()),
+                personPage.getNextCursor());
+
+        return ResponseEntity.ok().eTag(eTag).body(personPage);
+    }
+
+    @GetMapping(params = "fields")
+    public ResponseEntity<PersonFieldsPageDTO> findAll(@RequestParam Set<String> fields,
+                                                      @RequestParam(required = false) Long after,
+                                                      @RequestParam(required = false) Integer limit)
+            throws InvalidFieldSelectionException {
+        return ResponseEntity.ok(personService.findAll(after, limit, fields));
+    }
+
+    @GetMapping(params = {"updatedSince", "!fields"})
+    public ResponseEntity<PersonSyncPageDTO> findUpdatedSince(@RequestParam Instant updatedSince,
+                                                             @RequestParam(required = false) Long after,
+                                                             @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(personService.findUpdatedSince(updatedSince, after, limit));
+    }
+
+    @AsyncTimeout("${personnel.export.timeout:30m}")
+    @GetMapping(produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE))
+                .body(this::writeNdjson);
+    }
+
+    /**
+     * Full dump of every person with its phones, written while the rows are read so memory use does not
+     * depend on the table size. The body is gzip-compressed when the client accepts it.
+     */
+    @AsyncTimeout("${personnel.export.timeout:30m}")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(defaultValue = "ndjson") String format,
+                                                        @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding)
+            throws UnsupportedExportFormatException {
+        boolean csv;
+        switch (format.toLowerCase(Locale.ROOT)) {
+            case "csv":
+                csv = true;
+                break;
+            case "ndjson":
+                csv = false;
+                break;
+            default:
+                throw new UnsupportedExportFormatException("Export format must be csv or ndjson, got " + format);
+        }
+        boolean gzip = acceptsGzip(acceptEncoding);
+
+        StreamingResponseBody body = outputStream -> {
+            OutputStream target = gzip ? new GZIPOutputStream(outputStream, GZIP_BUFFER_SIZE) : outputStream;
+            if (csv) {
+                writeCsv(target);
+            } else {
+                writeNdjson(target);
+            }
+            if (gzip) {
+                ((GZIPOutputStream) target).finish();
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(csv ? TEXT_CSV_VALUE : APPLICATION_NDJSON_VALUE))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(csv ? "persons.csv" : "persons.ndjson")
+                        .build()
+                        .toString())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    /**
+     * Server-sent events for every committed create, update and delete after {@code since}, in order, or only
+     * for new changes when neither {@code since} nor {@code Last-Event-ID} is given. Each event id is the change
+     * sequence number, so a reconnecting client resumes where it stopped.
+     */
+    @AsyncTimeout("${personnel.changes.timeout:30m}")
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter changes(@RequestParam(required = false) Long since,
+                              @RequestHeader(value = LAST_EVENT_ID, required = false) Long lastEventId) {
+        SseEmitter emitter = new SseEmitter();
+        Runnable unsubscribe = personChangeFeed.subscribe(lastEventId != null ? lastEventId : since, new PersonChangeFeed.Subscriber() {
+            @Override
+            public void onChanges(List<PersonChangeDTO> changes) throws IOException {
+                for (PersonChangeDTO change : changes) {
+                    emitter.send(SseEmitter.event()
+                            .id(String.valueOf(change.getSeq()))
+                            .name(PERSON_CHANGE_EVENT)
+                            .data(change, MediaType.APPLICATION_JSON));
+                }
+            }
+
+            @Override
+            public void onHeartbeat() throws IOException {
+                emitter.send(SseEmitter.event().comment("heartbeat"));
+            }
+
+            @Override
+            public void onError(Exception e) {
+                emitter.completeWithError(e);
+            }
+        });
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(e -> unsubscribe.run());
+        return emitter;
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<PersonDTO> findById(@PathVariable Long id) throws PersonNotFoundException {
+    public ResponseEntity<PersonDTO> findById(@PathVariable Long id,
+                                              @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch)
+            throws PersonNotFoundException {
+        if (ifNoneMatch != null) {
+            String eTag = ETagUtils.ofVersion(this.personService.findVersionById(id));
+            if (ETagUtils.matchesAny(ifNoneMatch, eTag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+            }
+        }
+
         PersonDTO personDTO = this.personService.findById(id);
 
-        return ResponseEntity.ok(personDTO);
+        return ResponseEntity.ok().eTag(ETagUtils.ofVersion(personDTO.getVersion())).body(personDTO);
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<PersonPageDTO> search(PersonSearchDTO search,
+                                                @RequestParam(required = false) Long after,
+                                                @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(personService.search(search, after, limit));
+    }
+
+    @GetMapping("/search/name")
+    public ResponseEntity<List<PersonNameMatchDTO>> searchByName(@RequestParam String q,
+                                                                 @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(personService.searchByName(q, limit));
+    }
+
+    @GetMapping("/by-cpf/{cpf}")
+    public ResponseEntity<PersonDTO> findByCpf(@PathVariable String cpf) throws PersonNotFoundException {
+        return ResponseEntity.ok(this.personService.findByCpf(cpf));
+    }
+
+    /**
+     * Persons owning the phone number, formatted or not; usually exactly one.
+     */
+    @GetMapping("/by-phone/{number}")
+    public ResponseEntity<List<PersonDTO>> findByPhone(@PathVariable String number) throws PersonNotFoundException {
+        List<PersonDTO> owners = new ArrayList<>();
+        for (Long id : this.personService.findIdsByPhone(number)) {
+            owners.add(this.personService.findById(id));
+        }
+        return ResponseEntity.ok(owners);
+    }
+
+    @DeleteMapping(params = "ids")
+    public ResponseEntity<MessageResponseDTO> deleteAll(@RequestParam List<Long> ids) throws BatchSizeExceededException {
+        ids.forEach(personUpdateQueue::discardPending);
+        return ResponseEntity.ok(this.personService.deleteAllById(ids));
     }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> delete(@PathVariable Long id) throws PersonNotFoundException {
+        personUpdateQueue.discardPending(id);
         this.personService.deleteById(id);
         return ResponseEntity.noContent().build();
     }
 
+    /**
+     * Replaces the person. With write-behind enabled an unconditional update of an existing person is queued
+     * and answered with 202, pointing at {@link #findQueuedUpdate} to follow it; conditional updates
+     * ({@code If-Match}) are always applied before responding, after any update still queued for the person,
+     * so the ETag they are checked against is the one the queued update produces.
+     */
     @PutMapping("/{id}")
-    public ResponseEntity<Void> update(@PathVariable Long id, @RequestBody @Valid PersonDTO personDTO)
-            throws PersonNotFoundException {
-        this.personService.updateById(id, personDTO);
+    public ResponseEntity<Void> update(@PathVariable Long id, @RequestBody @Valid PersonDTO personDTO,
+                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch)
+            throws PersonNotFoundException, PersonVersionMismatchException, PersonAlreadyRegisteredException,
+            CpfChangeNotSupportedException, UpdateQueueFullException {
+        if (ifMatch == null && personUpdateQueue.isEnabled()) {
+            personUpdateQueue.enqueue(id, personDTO);
+            return ResponseEntity.accepted()
+                    .location(ServletUriComponentsBuilder.fromCurrentRequest().path("/queued-update").build().toUri())
+                    .build();
+        }
+        personUpdateQueue.writePending(id);
+        this.personService.updateById(id, personDTO, parseExpectedVersion(ifMatch));
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Whether the last update queued for the person is still waiting, was written or was dropped, and why.
+     */
+    @GetMapping("/{id}/queued-update")
+    public ResponseEntity<QueuedUpdateDTO> findQueuedUpdate(@PathVariable Long id) {
+        return ResponseEntity.ok(personUpdateQueue.status(id));
+    }
+
+    /**
+     * Applies a JSON merge patch, after any update still queued for the person.
+     */
+    @PatchMapping(value = "/{id}", consumes = {APPLICATION_MERGE_PATCH_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<Void> patch(@PathVariable Long id, @RequestBody JsonNode patch,
+                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch)
+            throws PersonNotFoundException, PersonVersionMismatchException, PersonAlreadyRegisteredException,
+            InvalidPersonPatchException, CpfChangeNotSupportedException {
+        personUpdateQueue.writePending(id);
+        this.personService.patchById(id, patch, parseExpectedVersion(ifMatch));
         return ResponseEntity.noContent().build();
     }
 
+    private Long parseExpectedVersion(String ifMatch) throws PersonVersionMismatchException {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        try {
+            return ETagUtils.parseVersion(ifMatch);
+        } catch (IllegalArgumentException e) {
+            throw new PersonVersionMismatchException("If-Match must be a single strong person ETag");
+        }
+    }
+
+    private void writeNdjson(OutputStream outputStream) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            personService.streamAll(personDTO -> writeLine(generator, personDTO));
+        }
+    }
+
+    private void writeCsv(OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        CsvUtils.writePersonHeader(writer);
+        personService.streamAll(personDTO -> {
+            try {
+                CsvUtils.writePerson(writer, personDTO);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.flush();
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length == 1 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    private void writeLine(JsonGenerator generator, Object value) {
+        try {
+            objectMapper.writeValue(generator, value);
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
 }
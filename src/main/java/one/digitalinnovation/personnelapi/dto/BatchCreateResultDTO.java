@@ -0,0 +1,18 @@
+package one.digitalinnovation.personnelapi.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchCreateResultDTO {
+
+    private int created;
+
+    private int failed;
+
+    private List<BatchItemResultDTO> items;
+}
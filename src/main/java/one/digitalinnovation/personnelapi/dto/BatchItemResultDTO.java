@@ -0,0 +1,19 @@
+package one.digitalinnovation.personnelapi.dto;
+
+import lombok.*;
+import one.digitalinnovation.personnelapi.enums.BatchItemStatus;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchItemResultDTO {
+
+    private int index;
+
+    private Long id;
+
+    private BatchItemStatus status;
+
+    private String message;
+}
@@ -0,0 +1,20 @@
+package one.digitalinnovation.personnelapi.dto;
+
+import lombok.*;
+import one.digitalinnovation.personnelapi.enums.BatchItemStatus;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportLineResultDTO {
+
+    /**
+     * 1-based line of the upload the record starts on.
+     */
+    private long line;
+
+    private BatchItemStatus status;
+
+    private String message;
+}
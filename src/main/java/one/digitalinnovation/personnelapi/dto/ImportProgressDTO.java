@@ -0,0 +1,16 @@
+package one.digitalinnovation.personnelapi.dto;
+
+import lombok.*;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportProgressDTO {
+
+    private long processed;
+
+    private long created;
+
+    private long failed;
+}
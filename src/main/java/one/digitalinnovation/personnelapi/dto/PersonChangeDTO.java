@@ -0,0 +1,26 @@
+package one.digitalinnovation.personnelapi.dto;
+
+import lombok.*;
+import one.digitalinnovation.personnelapi.enums.PersonChangeType;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PersonChangeDTO {
+
+    private Long seq;
+
+    private PersonChangeType type;
+
+    private Long personId;
+
+    /**
+     * Version of the person after the change, or its last version for a deletion.
+     */
+    private Long version;
+
+    private Instant occurredAt;
+}
@@ -1,7 +1,8 @@
 package one.digitalinnovation.personnelapi.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.*;
-import one.digitalinnovation.personnelapi.entity.Phone;
 
 import javax.persistence.*;
 import javax.validation.Valid;
@@ -9,6 +10,7 @@ import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 import org.hibernate.validator.constraints.br.CPF;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -38,5 +40,14 @@ public class PersonDTO {
 
     @Valid
     @NotEmpty
-    private List<Phone> phones;
+    private List<PhoneDTO> phones;
+
+    @JsonIgnore
+    private Long version;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Instant createdAt;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Instant updatedAt;
 }
@@ -0,0 +1,23 @@
+package one.digitalinnovation.personnelapi.dto;
+
+import lombok.*;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PersonFieldsPageDTO {
+
+    /**
+     * One map per person holding only the selected fields, in the order they were requested.
+     */
+    private List<Map<String, Object>> content;
+
+    /**
+     * Id to pass as {@code after} to fetch the next page, or {@code null} when this is the last page.
+     */
+    private Long nextCursor;
+}
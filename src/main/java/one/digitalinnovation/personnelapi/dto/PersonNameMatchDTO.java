@@ -0,0 +1,21 @@
+package one.digitalinnovation.personnelapi.dto;
+
+import lombok.*;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PersonNameMatchDTO {
+
+    private Long id;
+
+    private String firstName;
+
+    private String lastName;
+
+    /**
+     * Share of the query trigrams found in the name, from 0 to 1.
+     */
+    private double score;
+}
@@ -0,0 +1,19 @@
+package one.digitalinnovation.personnelapi.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PersonPageDTO {
+
+    private List<PersonDTO> content;
+
+    /**
+     * Id to pass as {@code after} to fetch the next page, or {@code null} when this is the last page.
+     */
+    private Long nextCursor;
+}
@@ -0,0 +1,29 @@
+package one.digitalinnovation.personnelapi.dto;
+
+import lombok.*;
+import one.digitalinnovation.personnelapi.enums.PhoneType;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+/**
+ * Filters of {@code GET /api/v1/person/search}; every filter is optional and they are combined with "and".
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PersonSearchDTO {
+
+    private String firstName;
+
+    private String lastName;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate bornFrom;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate bornTo;
+
+    private PhoneType phoneType;
+}
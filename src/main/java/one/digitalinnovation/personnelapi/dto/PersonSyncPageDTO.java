@@ -0,0 +1,31 @@
+package one.digitalinnovation.personnelapi.dto;
+
+import lombok.*;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PersonSyncPageDTO {
+
+    /**
+     * Persons created or updated since the requested instant, in {@code (updatedAt, id)} order.
+     */
+    private List<PersonDTO> content;
+
+    /**
+     * Persons deleted since the requested instant, in {@code (deletedAt, id)} order.
+     */
+    private List<PersonTombstoneDTO> deleted;
+
+    /**
+     * Values to pass as {@code updatedSince} and {@code after} to fetch the next page, or {@code null}
+     * when this is the last page.
+     */
+    private Instant nextUpdatedSince;
+
+    private Long nextAfter;
+}
@@ -0,0 +1,16 @@
+package one.digitalinnovation.personnelapi.dto;
+
+import lombok.*;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PersonTombstoneDTO {
+
+    private Long id;
+
+    private Instant deletedAt;
+}
@@ -2,9 +2,12 @@ package one.digitalinnovation.personnelapi.dto;
 
 import lombok.*;
 import one.digitalinnovation.personnelapi.enums.PhoneType;
+import one.digitalinnovation.personnelapi.utils.PhoneNumberUtils;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
 import javax.validation.constraints.Size;
 
 
@@ -18,10 +21,12 @@ public class PhoneDTO {
 
     private Long id;
 
+    @NotNull
     @Enumerated(EnumType.STRING)
     private PhoneType type;
 
     @NotEmpty
     @Size(min=7, max=14)
+    @Pattern(regexp = PhoneNumberUtils.PATTERN)
     private String number;
 }
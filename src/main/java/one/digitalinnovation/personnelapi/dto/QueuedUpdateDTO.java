@@ -0,0 +1,17 @@
+package one.digitalinnovation.personnelapi.dto;
+
+import lombok.*;
+import one.digitalinnovation.personnelapi.enums.QueuedUpdateStatus;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class QueuedUpdateDTO {
+
+    private Long id;
+
+    private QueuedUpdateStatus status;
+
+    private String message;
+}
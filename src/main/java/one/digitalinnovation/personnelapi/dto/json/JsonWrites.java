@@ -0,0 +1,47 @@
+package one.digitalinnovation.personnelapi.dto.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+import java.io.IOException;
+import java.time.Instant;
+
+/**
+ * Null-aware value writes shared by the hand-written serializers.
+ */
+final class JsonWrites {
+
+    private JsonWrites() {
+    }
+
+    static void writeNumber(JsonGenerator generator, Long value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(value.longValue());
+        }
+    }
+
+    static void writeString(JsonGenerator generator, String value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeString(value);
+        }
+    }
+
+    /**
+     * ISO-8601, like the JSR-310 module once timestamps are disabled as Spring Boot does; otherwise the
+     * registered serializer decides.
+     */
+    static void writeInstant(JsonGenerator generator, SerializerProvider provider, Instant value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (provider.isEnabled(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)) {
+            provider.defaultSerializeValue(value, generator);
+        } else {
+            generator.writeString(value.toString());
+        }
+    }
+}
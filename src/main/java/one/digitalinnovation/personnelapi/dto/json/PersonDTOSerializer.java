@@ -0,0 +1,72 @@
+package one.digitalinnovation.personnelapi.dto.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import one.digitalinnovation.personnelapi.dto.PersonDTO;
+import one.digitalinnovation.personnelapi.dto.PhoneDTO;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes a {@link PersonDTO} straight to the generator, producing the same JSON as Jackson's reflective bean
+ * serializer under the API's settings (same property order, nulls included, {@code version} left out). Field
+ * names are encoded once, and no accessor reflection or per-property serializer lookups happen per person.
+ */
+public class PersonDTOSerializer extends StdSerializer<PersonDTO> {
+
+    private static final SerializableString ID = new SerializedString("id");
+    private static final SerializableString FIRST_NAME = new SerializedString("firstName");
+    private static final SerializableString LAST_NAME = new SerializedString("lastName");
+    private static final SerializableString CPF = new SerializedString("cpf");
+    private static final SerializableString BIRTH_DATE = new SerializedString("birthDate");
+    private static final SerializableString PHONES = new SerializedString("phones");
+    private static final SerializableString CREATED_AT = new SerializedString("createdAt");
+    private static final SerializableString UPDATED_AT = new SerializedString("updatedAt");
+
+    public PersonDTOSerializer() {
+        super(PersonDTO.class);
+    }
+
+    @Override
+    public void serialize(PersonDTO personDTO, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        generator.writeStartObject(personDTO);
+        generator.writeFieldName(ID);
+        JsonWrites.writeNumber(generator, personDTO.getId());
+        generator.writeFieldName(FIRST_NAME);
+        JsonWrites.writeString(generator, personDTO.getFirstName());
+        generator.writeFieldName(LAST_NAME);
+        JsonWrites.writeString(generator, personDTO.getLastName());
+        generator.writeFieldName(CPF);
+        JsonWrites.writeString(generator, personDTO.getCpf());
+        generator.writeFieldName(BIRTH_DATE);
+        JsonWrites.writeString(generator, personDTO.getBirthDate());
+        generator.writeFieldName(PHONES);
+        writePhones(generator, personDTO.getPhones());
+        generator.writeFieldName(CREATED_AT);
+        JsonWrites.writeInstant(generator, provider, personDTO.getCreatedAt());
+        generator.writeFieldName(UPDATED_AT);
+        JsonWrites.writeInstant(generator, provider, personDTO.getUpdatedAt());
+        generator.writeEndObject();
+    }
+
+    private void writePhones(JsonGenerator generator, List<PhoneDTO> phones) throws IOException {
+        if (phones == null) {
+            generator.writeNull();
+            return;
+        }
+        generator.writeStartArray(phones, phones.size());
+        for (int i = 0; i < phones.size(); i++) {
+            PhoneDTO phone = phones.get(i);
+            if (phone == null) {
+                generator.writeNull();
+            } else {
+                PhoneDTOSerializer.write(phone, generator);
+            }
+        }
+        generator.writeEndArray();
+    }
+}
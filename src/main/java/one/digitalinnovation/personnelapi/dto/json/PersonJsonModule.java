@@ -0,0 +1,17 @@
+package one.digitalinnovation.personnelapi.dto.json;
+
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import one.digitalinnovation.personnelapi.dto.PersonDTO;
+import one.digitalinnovation.personnelapi.dto.PhoneDTO;
+
+/**
+ * Registers the hand-written {@link PersonDTO} and {@link PhoneDTO} serializers. Deserialization is unchanged.
+ */
+public class PersonJsonModule extends SimpleModule {
+
+    public PersonJsonModule() {
+        super(PersonJsonModule.class.getSimpleName());
+        addSerializer(PersonDTO.class, new PersonDTOSerializer());
+        addSerializer(PhoneDTO.class, new PhoneDTOSerializer());
+    }
+}
@@ -0,0 +1,40 @@
+package one.digitalinnovation.personnelapi.dto.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import one.digitalinnovation.personnelapi.dto.PhoneDTO;
+
+import java.io.IOException;
+
+/**
+ * Writes a {@link PhoneDTO} field by field, producing the same JSON as Jackson's reflective bean serializer.
+ */
+public class PhoneDTOSerializer extends StdSerializer<PhoneDTO> {
+
+    private static final SerializableString ID = new SerializedString("id");
+    private static final SerializableString TYPE = new SerializedString("type");
+    private static final SerializableString NUMBER = new SerializedString("number");
+
+    public PhoneDTOSerializer() {
+        super(PhoneDTO.class);
+    }
+
+    @Override
+    public void serialize(PhoneDTO phoneDTO, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        write(phoneDTO, generator);
+    }
+
+    static void write(PhoneDTO phoneDTO, JsonGenerator generator) throws IOException {
+        generator.writeStartObject(phoneDTO);
+        generator.writeFieldName(ID);
+        JsonWrites.writeNumber(generator, phoneDTO.getId());
+        generator.writeFieldName(TYPE);
+        JsonWrites.writeString(generator, phoneDTO.getType() == null ? null : phoneDTO.getType().name());
+        generator.writeFieldName(NUMBER);
+        JsonWrites.writeString(generator, phoneDTO.getNumber());
+        generator.writeEndObject();
+    }
+}
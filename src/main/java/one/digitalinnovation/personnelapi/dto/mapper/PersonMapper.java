@@ -1,7 +1,9 @@
 package one.digitalinnovation.personnelapi.dto.mapper;
 
 import one.digitalinnovation.personnelapi.dto.PersonDTO;
+import one.digitalinnovation.personnelapi.dto.PhoneDTO;
 import one.digitalinnovation.personnelapi.entity.Person;
+import one.digitalinnovation.personnelapi.entity.Phone;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.factory.Mappers;
@@ -12,7 +14,18 @@ public interface PersonMapper {
     PersonMapper INSTANCE = Mappers.getMapper(PersonMapper.class);
 
     @Mapping(target = "birthDate", source = "birthDate", dateFormat = "dd-MM-yyyy")
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "createdAt", ignore = true)
+    @Mapping(target = "updatedAt", ignore = true)
+    @Mapping(target = "cpfKey", ignore = true)
     Person toModel(PersonDTO dto);
 
     PersonDTO toDto(Person person);
+
+    @Mapping(target = "numberKey", ignore = true)
+    @Mapping(target = "createdAt", ignore = true)
+    @Mapping(target = "updatedAt", ignore = true)
+    Phone toModel(PhoneDTO dto);
+
+    PhoneDTO toDto(Phone phone);
 }
@@ -1,8 +1,18 @@
 package one.digitalinnovation.personnelapi.entity;
 
 import lombok.*;
+import one.digitalinnovation.personnelapi.service.CpfMembershipListener;
+import one.digitalinnovation.personnelapi.service.PersonNameIndexListener;
+import one.digitalinnovation.personnelapi.service.PhoneNumberIndexListener;
+import one.digitalinnovation.personnelapi.utils.CpfUtils;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import javax.persistence.*;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -13,10 +23,26 @@ import java.util.List;
 @Setter
 @Builder
 @Entity
+@EntityListeners({AuditingEntityListener.class, CpfMembershipListener.class, PersonNameIndexListener.class,
+        PhoneNumberIndexListener.class})
+@Table(uniqueConstraints = @UniqueConstraint(name = Person.CPF_UNIQUE_CONSTRAINT, columnNames = "cpfKey"),
+        indexes = {
+                @Index(name = "idx_person_last_name", columnList = "lastName, firstName"),
+                @Index(name = "idx_person_first_name", columnList = "firstName"),
+                @Index(name = "idx_person_birth_date", columnList = "birthDate"),
+                @Index(name = "idx_person_updated_at", columnList = "updatedAt, id")
+        })
 public class Person {
 
+    public static final String CPF_UNIQUE_CONSTRAINT = "uk_person_cpf";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "person_seq")
+    @GenericGenerator(name = "person_seq", strategy = "one.digitalinnovation.personnelapi.repository.sharding.ShardedSequenceGenerator",
+            parameters = {
+                    @Parameter(name = "sequence_name", value = "person_seq"),
+                    @Parameter(name = "increment_size", value = "50")
+            })
     private Long id;
 
     @Column(nullable = false)
@@ -25,13 +51,45 @@ public class Person {
     @Column(nullable = false)
     private String lastName;
 
-    @Column(nullable = false, unique = true)
+    @Column(nullable = false)
     private String cpf;
 
+    @Column(nullable = false)
+    private Long cpfKey;
+
     @Column(nullable = true)
     private LocalDate birthDate;
 
-    @OneToMany(fetch = FetchType.LAZY, cascade = {CascadeType.PERSIST, CascadeType.MERGE, CascadeType.REMOVE})
+    @Version
+    private Long version;
+
+    @CreatedDate
+    @Column(nullable = false, updatable = false)
+    private Instant createdAt;
+
+    /**
+     * Advances with every change of the person or of its phones; see {@code PersonService.findUpdatedSince}.
+     */
+    @LastModifiedDate
+    @Column(nullable = false)
+    private Instant updatedAt;
+
+    /**
+     * Indexed rather than a bag, so removing a phone deletes its join row instead of rewriting all of them.
+     */
+    @OneToMany(fetch = FetchType.LAZY, cascade = {CascadeType.PERSIST, CascadeType.MERGE, CascadeType.REMOVE}, orphanRemoval = true)
+    @JoinTable(name = "person_phones",
+            joinColumns = @JoinColumn(name = "person_id"),
+            inverseJoinColumns = @JoinColumn(name = "phones_id"),
+            indexes = @Index(name = "idx_person_phones_person", columnList = "person_id"))
+    @OrderColumn(name = "phones_order")
     private List<Phone> phones;
 
+    @PrePersist
+    @PreUpdate
+    void normalizeCpf() {
+        cpfKey = CpfUtils.toKey(cpf);
+        cpf = CpfUtils.fromKey(cpfKey);
+    }
+
 }
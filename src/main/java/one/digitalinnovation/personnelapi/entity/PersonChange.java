@@ -0,0 +1,39 @@
+package one.digitalinnovation.personnelapi.entity;
+
+import lombok.*;
+import one.digitalinnovation.personnelapi.enums.PersonChangeType;
+
+import javax.persistence.*;
+import java.time.Instant;
+
+/**
+ * Outbox row written in the same transaction as the person mutation it describes. The sequence number, taken
+ * from the {@link PersonChangeCounter} as {@code PersonChangeLog} inserts the rows, orders the changes by commit
+ * and is the cursor change feed consumers resume from. {@code DELETED} rows also serve as the tombstones
+ * returned by {@code PersonService.findUpdatedSince}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Builder
+@Entity
+@Table(indexes = @Index(name = "idx_person_change_type_occurred_at", columnList = "type, occurredAt, personId"))
+public class PersonChange {
+
+    @Id
+    private Long seq;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private PersonChangeType type;
+
+    @Column(nullable = false)
+    private Long personId;
+
+    private Long version;
+
+    @Column(nullable = false)
+    private Instant occurredAt;
+}
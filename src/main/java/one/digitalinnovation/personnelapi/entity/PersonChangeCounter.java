@@ -0,0 +1,27 @@
+package one.digitalinnovation.personnelapi.entity;
+
+import lombok.*;
+
+import javax.persistence.*;
+
+/**
+ * Single row holding the last sequence number given to a {@link PersonChange}. {@code PersonChangeLog}
+ * increments it in the transaction that inserts the changes, which keeps the row locked until that transaction
+ * ends, so numbers are given in commit order and a transaction that rolls back gives its numbers back.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Entity
+public class PersonChangeCounter {
+
+    public static final int ID = 1;
+
+    @Id
+    private Integer id;
+
+    @Column(nullable = false)
+    private Long lastSeq;
+}
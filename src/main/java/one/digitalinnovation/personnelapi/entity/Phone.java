@@ -2,8 +2,13 @@ package one.digitalinnovation.personnelapi.entity;
 
 import lombok.*;
 import one.digitalinnovation.personnelapi.enums.PhoneType;
+import one.digitalinnovation.personnelapi.utils.PhoneNumberUtils;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import javax.persistence.*;
+import java.time.Instant;
 
 @Data
 @NoArgsConstructor
@@ -12,10 +17,17 @@ import javax.persistence.*;
 @Setter
 @Builder
 @Entity
+@EntityListeners(AuditingEntityListener.class)
+@Table(indexes = {
+        @Index(name = "idx_phone_type", columnList = "type"),
+        @Index(name = "idx_phone_number_key", columnList = "numberKey"),
+        @Index(name = "idx_phone_updated_at", columnList = "updatedAt")
+})
 public class Phone {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "phone_seq")
+    @SequenceGenerator(name = "phone_seq", sequenceName = "phone_seq", allocationSize = 50)
     private Long id;
 
     @Enumerated(EnumType.STRING)
@@ -24,4 +36,21 @@ public class Phone {
 
     @Column(nullable = false)
     private String number;
+
+    @Column(nullable = false)
+    private Long numberKey;
+
+    @CreatedDate
+    @Column(nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @LastModifiedDate
+    @Column(nullable = false)
+    private Instant updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    void normalizeNumber() {
+        numberKey = PhoneNumberUtils.toKey(number);
+    }
 }
@@ -0,0 +1,6 @@
+package one.digitalinnovation.personnelapi.enums;
+
+public enum QueuedUpdateStatus {
+
+    PENDING, WRITTEN, DROPPED
+}
@@ -0,0 +1,11 @@
+package one.digitalinnovation.personnelapi.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class CpfChangeNotSupportedException extends Exception {
+    public CpfChangeNotSupportedException(String errorMessage) {
+        super(errorMessage);
+    }
+}
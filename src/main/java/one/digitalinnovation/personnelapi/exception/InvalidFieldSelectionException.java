@@ -0,0 +1,11 @@
+package one.digitalinnovation.personnelapi.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidFieldSelectionException extends Exception {
+    public InvalidFieldSelectionException(String errorMessage) {
+        super(errorMessage);
+    }
+}
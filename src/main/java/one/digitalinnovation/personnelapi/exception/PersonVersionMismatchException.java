@@ -0,0 +1,11 @@
+package one.digitalinnovation.personnelapi.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+public class PersonVersionMismatchException extends Exception {
+    public PersonVersionMismatchException(String errorMessage) {
+        super(errorMessage);
+    }
+}
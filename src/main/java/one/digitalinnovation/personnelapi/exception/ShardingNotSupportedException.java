@@ -0,0 +1,14 @@
+package one.digitalinnovation.personnelapi.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Unchecked, as it is raised around service methods whose signatures do not declare it.
+ */
+@ResponseStatus(HttpStatus.NOT_IMPLEMENTED)
+public class ShardingNotSupportedException extends RuntimeException {
+    public ShardingNotSupportedException(String errorMessage) {
+        super(errorMessage);
+    }
+}
@@ -0,0 +1,11 @@
+package one.digitalinnovation.personnelapi.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class UpdateQueueFullException extends Exception {
+    public UpdateQueueFullException(String errorMessage) {
+        super(errorMessage);
+    }
+}
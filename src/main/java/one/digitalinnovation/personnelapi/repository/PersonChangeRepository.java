@@ -0,0 +1,24 @@
+package one.digitalinnovation.personnelapi.repository;
+
+import one.digitalinnovation.personnelapi.entity.PersonChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+public interface PersonChangeRepository extends JpaRepository<PersonChange, Long> {
+
+    @Query("select c from PersonChange c where c.seq > :after and c.seq <= :upTo order by c.seq")
+    List<PersonChange> findChanges(@Param("after") Long after, @Param("upTo") Long upTo, Pageable pageable);
+
+    @Query("select c from PersonChange c where c.type = one.digitalinnovation.personnelapi.enums.PersonChangeType.DELETED"
+            + " and (c.occurredAt > :since or (c.occurredAt = :since and c.personId > :after)) order by c.occurredAt, c.personId")
+    List<PersonChange> findDeletedAfter(@Param("since") Instant since, @Param("after") Long after, Pageable pageable);
+
+    @Query("select max(c.seq) from PersonChange c")
+    Optional<Long> findLastSeq();
+}
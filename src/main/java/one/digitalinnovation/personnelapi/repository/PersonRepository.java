@@ -1,11 +1,89 @@
 package one.digitalinnovation.personnelapi.repository;
 
 import one.digitalinnovation.personnelapi.entity.Person;
+import one.digitalinnovation.personnelapi.repository.projection.PersonName;
+import one.digitalinnovation.personnelapi.repository.projection.PersonPhoneId;
+import one.digitalinnovation.personnelapi.repository.projection.PersonPhoneNumber;
+import one.digitalinnovation.personnelapi.repository.projection.PersonUpdate;
+import one.digitalinnovation.personnelapi.repository.projection.PersonVersion;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
-public interface PersonRepository extends JpaRepository<Person, Long> {
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_PASS_DISTINCT_THROUGH;
 
-    Optional<Person> findByCpf(String cpf);
+public interface PersonRepository extends JpaRepository<Person, Long>, PersonRepositoryCustom {
+
+    @EntityGraph(attributePaths = "phones")
+    Optional<Person> findByCpfKey(Long cpfKey);
+
+    boolean existsByCpfKey(Long cpfKey);
+
+    @Query("select p.cpfKey from Person p where p.cpfKey in :cpfKeys")
+    Set<Long> findRegisteredCpfKeys(@Param("cpfKeys") Collection<Long> cpfKeys);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select p.cpfKey from Person p")
+    Stream<Long> streamAllCpfKeys();
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select p.id as id, p.firstName as firstName, p.lastName as lastName from Person p")
+    Stream<PersonName> streamAllNames();
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select ph.numberKey as numberKey, p.id as personId from Person p join p.phones ph")
+    Stream<PersonPhoneNumber> streamAllPhoneNumbers();
+
+    @Query("select distinct p.id from Person p join p.phones ph where ph.numberKey = :numberKey order by p.id")
+    List<Long> findIdsByPhoneNumberKey(@Param("numberKey") Long numberKey);
+
+    @Override
+    @EntityGraph(attributePaths = "phones")
+    Optional<Person> findById(Long id);
+
+    @Query("select p.id from Person p where p.id > :after order by p.id")
+    List<Long> findIdsAfter(@Param("after") Long after, Pageable pageable);
+
+    @Query("select p.id as id, p.version as version from Person p where p.id > :after order by p.id")
+    List<PersonVersion> findVersionsAfter(@Param("after") Long after, Pageable pageable);
+
+    @Query("select p.id as id, p.updatedAt as updatedAt from Person p"
+            + " where p.updatedAt > :since or (p.updatedAt = :since and p.id > :after) order by p.updatedAt, p.id")
+    List<PersonUpdate> findUpdatedAfter(@Param("since") Instant since, @Param("after") Long after, Pageable pageable);
+
+    @Query("select p.version from Person p where p.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    @EntityGraph(attributePaths = "phones")
+    @QueryHints(@QueryHint(name = HINT_PASS_DISTINCT_THROUGH, value = "false"))
+    @Query("select distinct p from Person p where p.id in :ids order by p.id")
+    List<Person> findAllWithPhonesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("select p.id from Person p order by p.id")
+    Stream<Long> streamAllIds();
+
+    @Query("select p.id as personId, p.version as version, ph.id as phoneId, ph.numberKey as numberKey"
+            + " from Person p left join p.phones ph where p.id in :ids")
+    List<PersonPhoneId> findPhoneIdsByPersonIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Bulk delete; Hibernate removes the matching {@code person_phones} rows in a statement of its own first.
+     */
+    @Modifying
+    @Query("delete from Person p where p.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,21 @@
+package one.digitalinnovation.personnelapi.repository;
+
+import one.digitalinnovation.personnelapi.entity.Person;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.Tuple;
+import java.util.List;
+
+public interface PersonRepositoryCustom {
+
+    /**
+     * Keyset page of persons with {@code id > after}, in id order, selecting only the given basic attributes.
+     * Each tuple element is aliased with its attribute name.
+     */
+    List<Tuple> findAttributesAfter(List<String> attributes, Long after, int limit);
+
+    /**
+     * Keyset page of the ids of persons matching the specification with {@code id > after}, in id order.
+     */
+    List<Long> findIdsAfter(Specification<Person> specification, Long after, int limit);
+}
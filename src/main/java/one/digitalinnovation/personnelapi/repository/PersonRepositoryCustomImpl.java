@@ -0,0 +1,54 @@
+package one.digitalinnovation.personnelapi.repository;
+
+import one.digitalinnovation.personnelapi.entity.Person;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class PersonRepositoryCustomImpl implements PersonRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Tuple> findAttributesAfter(List<String> attributes, Long after, int limit) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+        Root<Person> person = query.from(Person.class);
+
+        List<Selection<?>> selections = attributes.stream()
+                .map(attribute -> person.get(attribute).alias(attribute))
+                .collect(Collectors.toList());
+        query.multiselect(selections)
+                .where(criteriaBuilder.greaterThan(person.get("id"), after))
+                .orderBy(criteriaBuilder.asc(person.get("id")));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public List<Long> findIdsAfter(Specification<Person> specification, Long after, int limit) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = criteriaBuilder.createQuery(Long.class);
+        Root<Person> person = query.from(Person.class);
+
+        Specification<Person> keyset = (root, criteriaQuery, builder) -> builder.greaterThan(root.get("id"), after);
+        query.select(person.get("id"))
+                .where(keyset.and(specification).toPredicate(person, query, criteriaBuilder))
+                .orderBy(criteriaBuilder.asc(person.get("id")));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
@@ -0,0 +1,59 @@
+package one.digitalinnovation.personnelapi.repository;
+
+import one.digitalinnovation.personnelapi.entity.Person;
+import one.digitalinnovation.personnelapi.entity.Phone;
+import one.digitalinnovation.personnelapi.enums.PhoneType;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
+import java.time.LocalDate;
+
+/**
+ * Search predicates over {@link Person}. Name prefixes are matched case-sensitively with a plain
+ * {@code like 'prefix%'} so the name indexes can serve them.
+ */
+public final class PersonSpecifications {
+
+    private static final char LIKE_ESCAPE = '\\';
+
+    private PersonSpecifications() {
+    }
+
+    public static Specification<Person> firstNameStartsWith(String prefix) {
+        return (person, query, criteriaBuilder) ->
+                criteriaBuilder.like(person.get("firstName"), escapeLike(prefix) + "%", LIKE_ESCAPE);
+    }
+
+    public static Specification<Person> lastNameStartsWith(String prefix) {
+        return (person, query, criteriaBuilder) ->
+                criteriaBuilder.like(person.get("lastName"), escapeLike(prefix) + "%", LIKE_ESCAPE);
+    }
+
+    public static Specification<Person> bornOnOrAfter(LocalDate date) {
+        return (person, query, criteriaBuilder) -> criteriaBuilder.greaterThanOrEqualTo(person.get("birthDate"), date);
+    }
+
+    public static Specification<Person> bornOnOrBefore(LocalDate date) {
+        return (person, query, criteriaBuilder) -> criteriaBuilder.lessThanOrEqualTo(person.get("birthDate"), date);
+    }
+
+    /**
+     * Persons with at least one phone of the given type, as an {@code exists} subquery so that a person
+     * with several matching phones is still returned once.
+     */
+    public static Specification<Person> hasPhoneType(PhoneType type) {
+        return (person, query, criteriaBuilder) -> {
+            Subquery<Long> phones = query.subquery(Long.class);
+            Root<Person> owner = phones.correlate(person);
+            Join<Person, Phone> phone = owner.join("phones");
+            phones.select(phone.get("id")).where(criteriaBuilder.equal(phone.get("type"), type));
+            return criteriaBuilder.exists(phones);
+        };
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
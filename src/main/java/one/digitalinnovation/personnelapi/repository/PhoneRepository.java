@@ -2,7 +2,15 @@ package one.digitalinnovation.personnelapi.repository;
 
 import one.digitalinnovation.personnelapi.entity.Phone;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
 
 public interface PhoneRepository extends JpaRepository<Phone, Long> {
 
+    @Modifying
+    @Query("delete from Phone ph where ph.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,10 @@
+package one.digitalinnovation.personnelapi.repository.projection;
+
+public interface PersonName {
+
+    Long getId();
+
+    String getFirstName();
+
+    String getLastName();
+}
@@ -0,0 +1,15 @@
+package one.digitalinnovation.personnelapi.repository.projection;
+
+public interface PersonPhoneId {
+
+    Long getPersonId();
+
+    Long getVersion();
+
+    /**
+     * {@code null} for a person without phones.
+     */
+    Long getPhoneId();
+
+    Long getNumberKey();
+}
@@ -0,0 +1,8 @@
+package one.digitalinnovation.personnelapi.repository.projection;
+
+public interface PersonPhoneNumber {
+
+    Long getNumberKey();
+
+    Long getPersonId();
+}
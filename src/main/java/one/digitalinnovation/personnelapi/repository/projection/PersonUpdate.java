@@ -0,0 +1,10 @@
+package one.digitalinnovation.personnelapi.repository.projection;
+
+import java.time.Instant;
+
+public interface PersonUpdate {
+
+    Long getId();
+
+    Instant getUpdatedAt();
+}
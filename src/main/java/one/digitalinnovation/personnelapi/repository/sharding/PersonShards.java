@@ -0,0 +1,231 @@
+package one.digitalinnovation.personnelapi.repository.sharding;
+
+import com.zaxxer.hikari.HikariConfig;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Partitioning of persons across the databases listed under {@code personnel.sharding.shards}. A person lives
+ * on the shard picked by a hash of its normalized CPF, so the CPF unique constraint of that shard keeps CPFs
+ * unique across all of them, and its id is drawn there by {@link ShardedSequenceGenerator} so that the id
+ * names the shard again. The shard a thread works on is bound with {@link #callOn}, and
+ * {@link ShardRoutingDataSource} hands out connections to it. With a single database, the default, nothing
+ * is ever bound and every call runs as is.
+ */
+@Component
+public class PersonShards implements DisposableBean {
+
+    public static final String SHARDS_PROPERTY = "personnel.sharding.shards";
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private final int count;
+
+    private final ObjectProvider<PlatformTransactionManager> transactionManager;
+
+    private final ExecutorService executor;
+
+    private volatile TransactionTemplate readTransaction;
+
+    @Autowired
+    public PersonShards(Environment environment, ObjectProvider<PlatformTransactionManager> transactionManager) {
+        this(Binder.get(environment).bind(SHARDS_PROPERTY, Bindable.listOf(HikariConfig.class)).map(List::size).orElse(1),
+                transactionManager);
+    }
+
+    private PersonShards(int count, ObjectProvider<PlatformTransactionManager> transactionManager) {
+        this.count = count;
+        this.transactionManager = transactionManager;
+        this.executor = count > 1 ? Executors.newCachedThreadPool(new ShardThreadFactory()) : null;
+    }
+
+    /**
+     * A single unsharded database, for code running outside the application context.
+     */
+    public static PersonShards single() {
+        return new PersonShards(1, null);
+    }
+
+    @FunctionalInterface
+    public interface ShardCall<T> {
+
+        T call(int shard) throws Throwable;
+    }
+
+    /**
+     * Shard the current thread is bound to, {@code 0} when none is.
+     */
+    public static int current() {
+        Integer shard = CURRENT.get();
+        return shard == null ? 0 : shard;
+    }
+
+    public static boolean isBound() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * Runs the task bound to the shard; for code that is not a bean, such as Hibernate integrators.
+     */
+    public static void runOn(int shard, Runnable task) {
+        Integer previous = bind(shard);
+        try {
+            task.run();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public boolean isSharded() {
+        return count > 1;
+    }
+
+    public int shardOfId(long id) {
+        return (int) Math.floorMod(id, (long) count);
+    }
+
+    public int shardOfCpfKey(long cpfKey) {
+        long hash = cpfKey * 0x9e3779b97f4a7c15L;
+        return (int) Math.floorMod(hash ^ (hash >>> 32), (long) count);
+    }
+
+    public <T> T callOn(int shard, ShardCall<T> call) throws Throwable {
+        Integer previous = bind(shard);
+        try {
+            return call.call(shard);
+        } finally {
+            restore(previous);
+        }
+    }
+
+    /**
+     * Runs the call on every shard in parallel and returns the results in shard order. The first failure, in
+     * shard order, is rethrown once all calls have finished.
+     */
+    public <T> List<T> callOnEach(ShardCall<T> call) throws Throwable {
+        if (!isSharded()) {
+            return Collections.singletonList(call.call(0));
+        }
+        List<Future<T>> futures = new ArrayList<>(count);
+        for (int shard = 0; shard < count; shard++) {
+            int target = shard;
+            futures.add(executor.submit(() -> {
+                try {
+                    return callOn(target, call);
+                } catch (Error | Exception e) {
+                    throw e;
+                } catch (Throwable t) {
+                    throw new UndeclaredThrowableException(t);
+                }
+            }));
+        }
+        List<T> results = new ArrayList<>(count);
+        Throwable failure = null;
+        for (Future<T> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                failure = failure != null ? failure : e.getCause();
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
+    }
+
+    /**
+     * Runs the read on every shard, one after the other, each in a read-only transaction of its own. Unsharded,
+     * the read simply joins the caller's transaction.
+     */
+    public <T> List<T> readEach(Supplier<T> read) {
+        if (!isSharded()) {
+            return Collections.singletonList(read.get());
+        }
+        TransactionTemplate template = readTransaction();
+        List<T> results = new ArrayList<>(count);
+        for (int shard = 0; shard < count; shard++) {
+            Integer previous = bind(shard);
+            try {
+                results.add(template.execute(status -> read.get()));
+            } finally {
+                restore(previous);
+            }
+        }
+        return results;
+    }
+
+    public void readEach(Runnable read) {
+        readEach(() -> {
+            read.run();
+            return null;
+        });
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private TransactionTemplate readTransaction() {
+        if (readTransaction == null) {
+            TransactionTemplate template = new TransactionTemplate(transactionManager.getObject());
+            template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            template.setReadOnly(true);
+            readTransaction = template;
+        }
+        return readTransaction;
+    }
+
+    private static Integer bind(int shard) {
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        return previous;
+    }
+
+    private static void restore(Integer previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    private static class ShardThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger sequence = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "person-shards-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
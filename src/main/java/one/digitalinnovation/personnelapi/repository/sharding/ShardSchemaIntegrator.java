@@ -0,0 +1,36 @@
+package one.digitalinnovation.personnelapi.repository.sharding;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.tool.schema.spi.SchemaManagementToolCoordinator;
+
+/**
+ * Applies the {@code hibernate.hbm2ddl.auto} action, which Hibernate itself only runs against the first shard,
+ * to every other shard as well. The drop of {@code create-drop} is not repeated at shutdown.
+ */
+public class ShardSchemaIntegrator implements Integrator {
+
+    private final int shardCount;
+
+    public ShardSchemaIntegrator(int shardCount) {
+        this.shardCount = shardCount;
+    }
+
+    @Override
+    public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory,
+                          SessionFactoryServiceRegistry serviceRegistry) {
+        ConfigurationService configuration = serviceRegistry.getService(ConfigurationService.class);
+        for (int shard = 1; shard < shardCount; shard++) {
+            PersonShards.runOn(shard, () -> SchemaManagementToolCoordinator.process(metadata, serviceRegistry,
+                    configuration.getSettings(), delayedDrop -> {
+                    }));
+        }
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+}
@@ -0,0 +1,56 @@
+package one.digitalinnovation.personnelapi.repository.sharding;
+
+import org.hibernate.HibernateException;
+import org.hibernate.MappingException;
+import org.hibernate.boot.model.relational.Database;
+import org.hibernate.boot.model.relational.ExportableProducer;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.Configurable;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.util.Properties;
+
+/**
+ * Sequence-based ids that name the shard they were drawn on: every shard has its own copy of the sequence,
+ * and its values are spread so that {@code id % shardCount} is the index of that shard. With a single shard
+ * the ids are the plain sequence values. Each shard keeps an optimizer of its own, since the blocks of values
+ * it caches come from that shard's sequence.
+ */
+public class ShardedSequenceGenerator implements IdentifierGenerator, Configurable, ExportableProducer {
+
+    /**
+     * Hibernate setting with the number of shards, {@code 1} when absent.
+     */
+    public static final String SHARD_COUNT_SETTING = "personnel.sharding.shard-count";
+
+    private SequenceStyleGenerator[] shards;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        Object shardCount = serviceRegistry.getService(ConfigurationService.class).getSettings().get(SHARD_COUNT_SETTING);
+        shards = new SequenceStyleGenerator[shardCount == null ? 1 : Integer.parseInt(shardCount.toString())];
+        for (int shard = 0; shard < shards.length; shard++) {
+            shards[shard] = new SequenceStyleGenerator();
+            shards[shard].configure(type, (Properties) params.clone(), serviceRegistry);
+        }
+    }
+
+    @Override
+    public void registerExportables(Database database) {
+        for (SequenceStyleGenerator shard : shards) {
+            shard.registerExportables(database);
+        }
+    }
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) throws HibernateException {
+        int shard = PersonShards.current();
+        long value = ((Number) shards[shard].generate(session, object)).longValue();
+        return shards.length == 1 ? value : value * shards.length + shard;
+    }
+}
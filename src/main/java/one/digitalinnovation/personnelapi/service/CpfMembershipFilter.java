@@ -0,0 +1,191 @@
+package one.digitalinnovation.personnelapi.service;
+
+import one.digitalinnovation.personnelapi.repository.PersonRepository;
+import one.digitalinnovation.personnelapi.repository.sharding.PersonShards;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+
+/**
+ * Bloom filter over the normalized CPF keys of all registered persons. A negative answer means the CPF
+ * is certainly not registered, so callers can skip the database; a positive answer may be a false
+ * positive and must be confirmed with a query. Keys are never removed, so deleted CPFs only cost an
+ * extra query. Until the filter has been loaded at startup every key is reported as possibly present.
+ * New keys are added by {@link CpfMembershipListener} whenever a person is inserted or updated.
+ * <p>
+ * The listener only sees the writes of this instance made through JPA. With several instances, or with rows
+ * written by bulk statements or other applications, a registered CPF can be reported as absent, so lookups
+ * answer not found and batch creates skip their duplicate check; the unique constraint still rejects the
+ * insert, and a CPF rejected that way is added. Every {@code personnel.cpf-filter.refresh-interval} the keys
+ * of all stored persons are added again, which bounds how long such a CPF stays missing; a zero interval
+ * disables the refresh for a single instance that owns all writes.
+ * <p>
+ * Lookups only answer not found from the filter alone ({@link #provesAbsent}) while
+ * {@code personnel.cpf-filter.single-instance} is true, the default. Deployments with several instances
+ * must set it to false, so a negative is always confirmed in the database.
+ */
+@Component
+public class CpfMembershipFilter implements DisposableBean {
+
+    private static final long SEED = 0x9e3779b97f4a7c15L;
+
+    private final PersonRepository personRepository;
+
+    private final PersonShards personShards;
+
+    private final TransactionTemplate readTransaction;
+
+    private final boolean enabled;
+
+    private final boolean singleInstance;
+
+    private final AtomicLongArray bits;
+
+    private final long bitCount;
+
+    private final int hashCount;
+
+    private final ScheduledExecutorService refresher;
+
+    private volatile boolean loaded;
+
+    @Autowired
+    public CpfMembershipFilter(PersonRepository personRepository, PersonShards personShards,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${personnel.cpf-filter.enabled:true}") boolean enabled,
+                               @Value("${personnel.cpf-filter.expected-insertions:1000000}") long expectedInsertions,
+                               @Value("${personnel.cpf-filter.false-positive-probability:0.01}") double falsePositiveProbability,
+                               @Value("${personnel.cpf-filter.refresh-interval:5m}") Duration refreshInterval,
+                               @Value("${personnel.cpf-filter.single-instance:true}") boolean singleInstance) {
+        this.personRepository = personRepository;
+        this.personShards = personShards;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.enabled = enabled;
+        this.singleInstance = singleInstance;
+
+        long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+        int words = enabled ? (int) Math.max(1, (optimalBits + 63) / 64) : 1;
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = words * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) optimalBits / expectedInsertions * Math.log(2)));
+
+        if (!enabled || refreshInterval.isZero()) {
+            this.refresher = null;
+            return;
+        }
+        this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cpf-filter-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.refresher.scheduleWithFixedDelay(this::tryRefresh, refreshInterval.toMillis(), refreshInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        refresh();
+        loaded = true;
+    }
+
+    /**
+     * Adds the keys of all stored persons. Keys are only ever added, so writes running meanwhile are never lost.
+     */
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        readTransaction.executeWithoutResult(status -> personShards.readEach(() -> {
+            try (Stream<Long> cpfKeys = personRepository.streamAllCpfKeys()) {
+                cpfKeys.forEach(this::put);
+            }
+        }));
+    }
+
+    private void tryRefresh() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            // The keys already added stay valid; the next refresh tries again.
+        }
+    }
+
+    public void put(long cpfKey) {
+        if (!enabled) {
+            return;
+        }
+        long hash1 = mix(cpfKey + SEED);
+        long hash2 = mix(hash1) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            setBit(bit);
+        }
+    }
+
+    public boolean mightContain(long cpfKey) {
+        if (!enabled || !loaded) {
+            return true;
+        }
+        long hash1 = mix(cpfKey + SEED);
+        long hash2 = mix(hash1) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether the CPF is certainly not registered, so a lookup may answer not found without a query.
+     * Never true with several instances, where another one may have registered it since the last refresh.
+     */
+    public boolean provesAbsent(long cpfKey) {
+        return singleInstance && !mightContain(cpfKey);
+    }
+
+    private void setBit(long bit) {
+        int word = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        long current;
+        do {
+            current = bits.get(word);
+            if ((current & mask) != 0) {
+                return;
+            }
+        } while (!bits.compareAndSet(word, current, current | mask));
+    }
+
+    @Override
+    public void destroy() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -0,0 +1,26 @@
+package one.digitalinnovation.personnelapi.service;
+
+import lombok.AllArgsConstructor;
+import one.digitalinnovation.personnelapi.entity.Person;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostUpdate;
+
+/**
+ * Keeps the {@link CpfMembershipFilter} in sync with every person write, whichever path it comes from.
+ * The filter is resolved lazily because entity listeners are created while the entity manager factory,
+ * which the filter itself depends on, is still being built.
+ */
+@AllArgsConstructor(onConstructor = @__(@Autowired))
+public class CpfMembershipListener {
+
+    private final ObjectProvider<CpfMembershipFilter> cpfMembershipFilter;
+
+    @PostPersist
+    @PostUpdate
+    void addCpfKey(Person person) {
+        cpfMembershipFilter.ifAvailable(filter -> filter.put(person.getCpfKey()));
+    }
+}
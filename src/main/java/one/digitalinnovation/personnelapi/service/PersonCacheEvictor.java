@@ -0,0 +1,44 @@
+package one.digitalinnovation.personnelapi.service;
+
+import one.digitalinnovation.personnelapi.utils.TransactionUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Evicts written persons from the {@value PersonService#PERSON_CACHE} cache once their transaction commits.
+ * {@code @CacheEvict} would evict when the service method returns, before the commit, so a read running
+ * meanwhile could cache the old row again. {@link PersonService#findById} loads inside the cache's own
+ * computation of the entry, which an eviction waits for, so a load that read the old row is also evicted.
+ * Does nothing when caching is disabled.
+ */
+@Component
+public class PersonCacheEvictor {
+
+    private final Cache cache;
+
+    @Autowired
+    public PersonCacheEvictor(ObjectProvider<CacheManager> cacheManager) {
+        CacheManager manager = cacheManager.getIfAvailable();
+        this.cache = manager == null ? null : manager.getCache(PersonService.PERSON_CACHE);
+    }
+
+    public void evictAfterCommit(Long id) {
+        if (cache != null) {
+            TransactionUtils.afterCommit(() -> cache.evict(id));
+        }
+    }
+
+    public void evictAfterCommit(Collection<Long> ids) {
+        if (cache != null && !ids.isEmpty()) {
+            List<Long> copy = new ArrayList<>(ids);
+            TransactionUtils.afterCommit(() -> copy.forEach(cache::evict));
+        }
+    }
+}
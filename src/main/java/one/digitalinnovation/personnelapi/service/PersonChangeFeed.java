@@ -0,0 +1,143 @@
+package one.digitalinnovation.personnelapi.service;
+
+import one.digitalinnovation.personnelapi.dto.PersonChangeDTO;
+import one.digitalinnovation.personnelapi.entity.PersonChange;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Pushes committed person changes, in sequence order, to subscribers that each resume from their own cursor.
+ * A single dispatcher thread reads the outbox after every commit that recorded changes and at every heartbeat
+ * interval, for changes committed by other instances or a missed notification, so subscribers never block
+ * request or database threads.
+ */
+@Component
+public class PersonChangeFeed implements DisposableBean {
+
+    private final PersonChangeLog personChangeLog;
+
+    private final ScheduledExecutorService dispatcher;
+
+    private final Map<Subscriber, Long> cursors = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean dispatchPending = new AtomicBoolean();
+
+    @Autowired
+    public PersonChangeFeed(PersonChangeLog personChangeLog, @Value("${personnel.changes.heartbeat-interval:15s}") Duration heartbeatInterval) {
+        this.personChangeLog = personChangeLog;
+        this.dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "person-change-feed");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.dispatcher.scheduleWithFixedDelay(this::heartbeat, heartbeatInterval.toMillis(), heartbeatInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+        personChangeLog.onCommit(this::requestDispatch);
+    }
+
+    public interface Subscriber {
+
+        void onChanges(List<PersonChangeDTO> changes) throws IOException;
+
+        void onHeartbeat() throws IOException;
+
+        /**
+         * Called once when the subscriber is dropped because delivering to it failed.
+         */
+        void onError(Exception e);
+    }
+
+    /**
+     * Starts delivering the changes after {@code since}, or only new changes when it is {@code null}.
+     * Returns the action that cancels the subscription.
+     */
+    public Runnable subscribe(Long since, Subscriber subscriber) {
+        cursors.put(subscriber, since != null ? since : lastSeq());
+        requestDispatch();
+        return () -> cursors.remove(subscriber);
+    }
+
+    /**
+     * Sequence number of the last final change, {@code 0} when there is none.
+     */
+    public long lastSeq() {
+        return personChangeLog.watermark();
+    }
+
+    @Override
+    public void destroy() {
+        dispatcher.shutdownNow();
+    }
+
+    private void requestDispatch() {
+        if (dispatchPending.compareAndSet(false, true)) {
+            dispatcher.execute(this::dispatch);
+        }
+    }
+
+    private void dispatch() {
+        dispatchPending.set(false);
+        if (cursors.isEmpty()) {
+            return;
+        }
+        long upTo = personChangeLog.watermark();
+        cursors.forEach((subscriber, cursor) -> deliver(subscriber, cursor, upTo));
+    }
+
+    private void deliver(Subscriber subscriber, long cursor, long upTo) {
+        try {
+            List<PersonChange> page;
+            do {
+                page = personChangeLog.findChanges(cursor, upTo);
+                if (page.isEmpty()) {
+                    return;
+                }
+                subscriber.onChanges(page.stream().map(this::toDto).collect(Collectors.toList()));
+                cursor = page.get(page.size() - 1).getSeq();
+                cursors.replace(subscriber, cursor);
+            } while (page.size() == PersonChangeLog.PAGE_SIZE);
+        } catch (IOException | RuntimeException e) {
+            drop(subscriber, e);
+        }
+    }
+
+    private void heartbeat() {
+        dispatch();
+        cursors.keySet().forEach(subscriber -> {
+            try {
+                subscriber.onHeartbeat();
+            } catch (IOException | RuntimeException e) {
+                drop(subscriber, e);
+            }
+        });
+    }
+
+    private void drop(Subscriber subscriber, Exception e) {
+        if (cursors.remove(subscriber) != null) {
+            subscriber.onError(e);
+        }
+    }
+
+    private PersonChangeDTO toDto(PersonChange change) {
+        return PersonChangeDTO.builder()
+                .seq(change.getSeq())
+                .type(change.getType())
+                .personId(change.getPersonId())
+                .version(change.getVersion())
+                .occurredAt(change.getOccurredAt())
+                .build();
+    }
+}
@@ -0,0 +1,262 @@
+package one.digitalinnovation.personnelapi.service;
+
+import one.digitalinnovation.personnelapi.entity.PersonChange;
+import one.digitalinnovation.personnelapi.entity.PersonChangeCounter;
+import one.digitalinnovation.personnelapi.enums.PersonChangeType;
+import one.digitalinnovation.personnelapi.repository.PersonChangeRepository;
+import one.digitalinnovation.personnelapi.repository.sharding.PersonShards;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.support.SQLStateSQLExceptionTranslator;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+/**
+ * Transactional outbox of person mutations: every change is written as a {@link PersonChange} row in the
+ * transaction that makes it, so the log holds exactly the committed changes.
+ * <p>
+ * The changes of a transaction are gathered as they are recorded and inserted just before it commits. Their
+ * sequence numbers are taken by incrementing the {@link PersonChangeCounter} row in the same transaction, which
+ * keeps the row locked until the transaction ends: writing transactions of every instance pass through that
+ * section one at a time, so numbers are given in commit order and a transaction that rolls back gives its
+ * numbers back. Every number up to the highest committed one is therefore committed, and readers never wait for
+ * or skip a missing one. The statements are plain SQL that any database runs.
+ * <p>
+ * When persons are sharded each change is stored on the shard of its person, while the counter lives on the
+ * first shard. A transaction on another shard increments it on a connection of its own, which commits right
+ * after the shard's transaction; if the process dies between the two commits the numbers are given again, and
+ * a consumer that already read past them misses the changes of that transaction.
+ */
+@Component
+public class PersonChangeLog {
+
+    public static final int PAGE_SIZE = 500;
+
+    private static final String INCREMENT_COUNTER =
+            "update person_change_counter set last_seq = last_seq + ? where id = " + PersonChangeCounter.ID;
+
+    private static final String READ_COUNTER =
+            "select last_seq from person_change_counter where id = " + PersonChangeCounter.ID;
+
+    private final EntityManager entityManager;
+
+    private final PersonChangeRepository personChangeRepository;
+
+    private final PersonShards personShards;
+
+    private final DataSource dataSource;
+
+    private final TransactionTemplate transaction;
+
+    private final List<Runnable> commitListeners = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    public PersonChangeLog(EntityManager entityManager, PersonChangeRepository personChangeRepository,
+                           PersonShards personShards, DataSource dataSource,
+                           PlatformTransactionManager transactionManager) {
+        this.entityManager = entityManager;
+        this.personChangeRepository = personChangeRepository;
+        this.personShards = personShards;
+        this.dataSource = dataSource;
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Creates the counter on the first shard, starting after the changes already stored, unless it exists.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void createCounter() {
+        long lastSeq = watermark();
+        PersonShards.runOn(0, () -> {
+            try {
+                transaction.executeWithoutResult(status -> {
+                    if (entityManager.find(PersonChangeCounter.class, PersonChangeCounter.ID) == null) {
+                        entityManager.persist(new PersonChangeCounter(PersonChangeCounter.ID, lastSeq));
+                    }
+                });
+            } catch (DataIntegrityViolationException e) {
+                // Created meanwhile by another instance.
+            }
+        });
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(PersonChangeType type, Long personId, Long version) {
+        transactionChanges().changes.add(PersonChange.builder()
+                .type(type)
+                .personId(personId)
+                .version(version)
+                .build());
+    }
+
+    /**
+     * Sequence number of the last committed change, {@code 0} when there is none. Every change up to it is
+     * committed.
+     */
+    public long watermark() {
+        return personShards.readEach(() -> personChangeRepository.findLastSeq().orElse(0L))
+                .stream().max(Long::compare).orElse(0L);
+    }
+
+    /**
+     * Next page of changes; with sharded persons the pages of all shards are merged by sequence number.
+     */
+    public List<PersonChange> findChanges(long after, long upTo) {
+        List<List<PersonChange>> pages = personShards.readEach(
+                () -> personChangeRepository.findChanges(after, upTo, PageRequest.of(0, PAGE_SIZE)));
+        if (pages.size() == 1) {
+            return pages.get(0);
+        }
+        return pages.stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparingLong(PersonChange::getSeq))
+                .limit(PAGE_SIZE)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Runs the listener after every commit that recorded changes.
+     */
+    public void onCommit(Runnable listener) {
+        commitListeners.add(listener);
+    }
+
+    private TransactionChanges transactionChanges() {
+        TransactionChanges changes = (TransactionChanges) TransactionSynchronizationManager.getResource(this);
+        if (changes == null) {
+            changes = new TransactionChanges();
+            TransactionSynchronizationManager.bindResource(this, changes);
+            TransactionSynchronizationManager.registerSynchronization(changes);
+        }
+        return changes;
+    }
+
+    /**
+     * The changes recorded by one transaction and, on a shard other than the first, the connection holding the
+     * counter incremented for them.
+     */
+    private class TransactionChanges implements TransactionSynchronization {
+
+        private final List<PersonChange> changes = new ArrayList<>();
+
+        private Connection counterConnection;
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            insert(this);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(PersonChangeLog.this);
+            if (counterConnection != null) {
+                finishOnFirstShard(counterConnection, status == STATUS_COMMITTED);
+            }
+            if (status == STATUS_COMMITTED) {
+                commitListeners.forEach(Runnable::run);
+            }
+        }
+    }
+
+    /**
+     * Flushes the transaction's other writes first, so only the commit remains once the counter is locked.
+     */
+    private void insert(TransactionChanges transactionChanges) {
+        List<PersonChange> changes = transactionChanges.changes;
+        try {
+            entityManager.flush();
+            long lastSeq;
+            if (personShards.isSharded() && PersonShards.current() != 0) {
+                lastSeq = incrementOnFirstShard(transactionChanges, changes.size());
+            } else {
+                lastSeq = increment(changes.size());
+            }
+            Instant occurredAt = Instant.now();
+            long seq = lastSeq - changes.size();
+            for (PersonChange change : changes) {
+                change.setSeq(++seq);
+                change.setOccurredAt(occurredAt);
+                entityManager.persist(change);
+            }
+            entityManager.flush();
+        } catch (PersistenceException e) {
+            DataAccessException translated = EntityManagerFactoryUtils.convertJpaAccessExceptionIfPossible(e);
+            throw translated != null ? translated : e;
+        }
+    }
+
+    private long increment(int count) {
+        int updated = entityManager.createNativeQuery(INCREMENT_COUNTER)
+                .setParameter(1, count)
+                .executeUpdate();
+        if (updated == 0) {
+            throw new IllegalStateException("The person change counter has not been created");
+        }
+        return ((Number) entityManager.createNativeQuery(READ_COUNTER).getSingleResult()).longValue();
+    }
+
+    /**
+     * Increments the counter on a connection of the first shard of its own, left open until the transaction of
+     * this shard completes.
+     */
+    private long incrementOnFirstShard(TransactionChanges transactionChanges, int count) {
+        long[] lastSeq = new long[1];
+        PersonShards.runOn(0, () -> {
+            try {
+                Connection connection = dataSource.getConnection();
+                transactionChanges.counterConnection = connection;
+                connection.setAutoCommit(false);
+                try (PreparedStatement increment = connection.prepareStatement(INCREMENT_COUNTER);
+                     PreparedStatement read = connection.prepareStatement(READ_COUNTER)) {
+                    increment.setInt(1, count);
+                    if (increment.executeUpdate() == 0) {
+                        throw new IllegalStateException("The person change counter has not been created");
+                    }
+                    try (ResultSet resultSet = read.executeQuery()) {
+                        resultSet.next();
+                        lastSeq[0] = resultSet.getLong(1);
+                    }
+                }
+            } catch (SQLException e) {
+                throw new SQLStateSQLExceptionTranslator().translate("increment change counter", null, e);
+            }
+        });
+        return lastSeq[0];
+    }
+
+    private void finishOnFirstShard(Connection connection, boolean commit) {
+        try (Connection closing = connection) {
+            if (commit) {
+                closing.commit();
+            } else {
+                closing.rollback();
+            }
+        } catch (SQLException e) {
+            throw new SQLStateSQLExceptionTranslator().translate("finish change counter", null, e);
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package one.digitalinnovation.personnelapi.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.annotation.Timed;
+import one.digitalinnovation.personnelapi.dto.BatchCreateResultDTO;
+import one.digitalinnovation.personnelapi.dto.BatchItemResultDTO;
+import one.digitalinnovation.personnelapi.dto.ImportLineResultDTO;
+import one.digitalinnovation.personnelapi.dto.ImportProgressDTO;
+import one.digitalinnovation.personnelapi.dto.PersonDTO;
+import one.digitalinnovation.personnelapi.enums.BatchItemStatus;
+import one.digitalinnovation.personnelapi.exception.BatchSizeExceededException;
+import one.digitalinnovation.personnelapi.utils.CsvUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.LineNumberReader;
+import java.io.Reader;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Loads persons from CSV or NDJSON uploads. The input is parsed one record at a time and handed to
+ * {@link PersonService#createAll} in chunks, each validated and inserted in JDBC batches in a transaction
+ * of its own, so only the current chunk is held in memory and chunks already committed are kept when a
+ * later one fails. Rejected records and progress are reported to the listener as they happen.
+ */
+@Service
+public class PersonImportService {
+
+    /**
+     * Longest NDJSON line read, the same limit as a CSV record.
+     */
+    public static final int MAX_LINE_LENGTH = CsvUtils.MAX_RECORD_LENGTH;
+
+    private static final List<String> REQUIRED_CSV_COLUMNS = Arrays.asList("firstName", "lastName", "cpf", "phones");
+
+    private static final Pattern ISO_DATE = Pattern.compile("\\d{4}-\\d{2}-\\d{2}");
+
+    private static final DateTimeFormatter BIRTH_DATE_FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+
+    private final PersonService personService;
+
+    private final ObjectMapper objectMapper;
+
+    private final int chunkSize;
+
+    @Autowired
+    public PersonImportService(PersonService personService, ObjectMapper objectMapper,
+                               @Value("${personnel.import.chunk-size:1000}") int chunkSize) {
+        if (chunkSize < 1 || chunkSize > PersonService.MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("personnel.import.chunk-size must be between 1 and " + PersonService.MAX_BATCH_SIZE);
+        }
+        this.personService = personService;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+    }
+
+    public interface Listener {
+
+        void onLineFailed(ImportLineResultDTO result);
+
+        /**
+         * Called with the running totals after every chunk; the last call carries the final totals.
+         */
+        void onProgress(ImportProgressDTO progress);
+    }
+
+    /**
+     * Imports one JSON person per line; blank lines are skipped and lines longer than {@value #MAX_LINE_LENGTH}
+     * characters are rejected.
+     */
+    @Timed(PersonService.SERVICE_TIMER)
+    public ImportProgressDTO importNdjson(Reader input, Listener listener) throws IOException {
+        LineNumberReader reader = new LineNumberReader(input);
+        Chunk chunk = new Chunk(listener);
+        while (true) {
+            long lineNumber = reader.getLineNumber() + 1;
+            String line;
+            try {
+                line = readLine(reader);
+            } catch (IllegalArgumentException e) {
+                chunk.reject(lineNumber, e.getMessage());
+                continue;
+            }
+            if (line == null) {
+                break;
+            }
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            PersonDTO personDTO;
+            try {
+                personDTO = objectMapper.readValue(line, PersonDTO.class);
+            } catch (JsonProcessingException e) {
+                chunk.reject(lineNumber, "Malformed JSON: " + e.getOriginalMessage());
+                continue;
+            }
+            if (personDTO == null) {
+                chunk.reject(lineNumber, "A line must hold a JSON object, not null");
+                continue;
+            }
+            chunk.add(lineNumber, personDTO);
+        }
+        return chunk.finish();
+    }
+
+    /**
+     * Imports a CSV file laid out like the export: a header naming the columns, then one person per record.
+     */
+    @Timed(PersonService.SERVICE_TIMER)
+    public ImportProgressDTO importCsv(Reader input, Listener listener) throws IOException {
+        LineNumberReader reader = new LineNumberReader(input);
+        Chunk chunk = new Chunk(listener);
+        List<String> header = CsvUtils.readRecord(reader);
+        if (header == null) {
+            return chunk.finish();
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim(), i);
+        }
+        List<String> missing = REQUIRED_CSV_COLUMNS.stream()
+                .filter(column -> !columns.containsKey(column))
+                .collect(Collectors.toList());
+        if (!missing.isEmpty()) {
+            chunk.reject(1, "Header is missing the columns " + String.join(", ", missing));
+            return chunk.finish();
+        }
+
+        while (true) {
+            long line = reader.getLineNumber() + 1;
+            List<String> record;
+            try {
+                record = CsvUtils.readRecord(reader);
+            } catch (IllegalArgumentException e) {
+                chunk.reject(line, e.getMessage());
+                break;
+            }
+            if (record == null) {
+                break;
+            }
+            if (record.size() == 1 && record.get(0).trim().isEmpty()) {
+                continue;
+            }
+            try {
+                chunk.add(line, CsvUtils.readPerson(columns, record));
+            } catch (IllegalArgumentException e) {
+                chunk.reject(line, e.getMessage());
+            }
+        }
+        return chunk.finish();
+    }
+
+    /**
+     * Next line without its terminator, or {@code null} at the end of the input. A longer line than
+     * {@value #MAX_LINE_LENGTH} characters is read up to its end without being kept, then rejected, so an
+     * upload without line breaks is never held in memory.
+     */
+    private static String readLine(LineNumberReader reader) throws IOException {
+        int c = reader.read();
+        if (c == -1) {
+            return null;
+        }
+        StringBuilder line = new StringBuilder();
+        boolean tooLong = false;
+        while (c != -1 && c != '\n') {
+            if (line.length() < MAX_LINE_LENGTH) {
+                line.append((char) c);
+            } else {
+                tooLong = true;
+            }
+            c = reader.read();
+        }
+        if (tooLong) {
+            throw new IllegalArgumentException("Line is longer than " + MAX_LINE_LENGTH + " characters");
+        }
+        return line.toString();
+    }
+
+    /**
+     * Exports carry birth dates the way the API returns them, {@code yyyy-MM-dd}, while creation expects
+     * {@code dd-MM-yyyy}; an exported file is imported back as is.
+     */
+    private static void normalizeBirthDate(PersonDTO personDTO) {
+        String birthDate = personDTO.getBirthDate();
+        if (birthDate == null || !ISO_DATE.matcher(birthDate).matches()) {
+            return;
+        }
+        try {
+            personDTO.setBirthDate(LocalDate.parse(birthDate).format(BIRTH_DATE_FORMAT));
+        } catch (DateTimeParseException e) {
+            // Left as is for createAll to report the record as invalid.
+        }
+    }
+
+    private final class Chunk {
+
+        private final Listener listener;
+
+        private final List<PersonDTO> persons = new ArrayList<>(chunkSize);
+
+        private final List<Long> lines = new ArrayList<>(chunkSize);
+
+        private long processed;
+
+        private long created;
+
+        private long failed;
+
+        private Chunk(Listener listener) {
+            this.listener = listener;
+        }
+
+        private void add(long line, PersonDTO personDTO) {
+            normalizeBirthDate(personDTO);
+            persons.add(personDTO);
+            lines.add(line);
+            if (persons.size() == chunkSize) {
+                flush();
+            }
+        }
+
+        private void reject(long line, String message) {
+            processed++;
+            failed++;
+            listener.onLineFailed(ImportLineResultDTO.builder()
+                    .line(line)
+                    .status(BatchItemStatus.INVALID)
+                    .message(message)
+                    .build());
+        }
+
+        private boolean flush() {
+            if (persons.isEmpty()) {
+                return false;
+            }
+            BatchCreateResultDTO result;
+            try {
+                result = createAll(persons);
+            } catch (DataIntegrityViolationException e) {
+                result = createOneByOne();
+            }
+            for (BatchItemResultDTO item : result.getItems()) {
+                if (item.getStatus() != BatchItemStatus.CREATED) {
+                    listener.onLineFailed(ImportLineResultDTO.builder()
+                            .line(lines.get(item.getIndex()))
+                            .status(item.getStatus())
+                            .message(item.getMessage())
+                            .build());
+                }
+            }
+            processed += persons.size();
+            created += result.getCreated();
+            failed += result.getFailed();
+            persons.clear();
+            lines.clear();
+            listener.onProgress(progress());
+            return true;
+        }
+
+        /**
+         * Fallback when a constraint still rejects the chunk after {@link PersonService#createAll} retried it:
+         * each person is created on its own, so only the offending lines fail.
+         */
+        private BatchCreateResultDTO createOneByOne() {
+            List<BatchItemResultDTO> items = new ArrayList<>(persons.size());
+            int createdCount = 0;
+            for (int i = 0; i < persons.size(); i++) {
+                BatchItemResultDTO item;
+                try {
+                    item = createAll(Collections.singletonList(persons.get(i))).getItems().get(0);
+                } catch (DataIntegrityViolationException e) {
+                    boolean duplicate = PersonService.isCpfUniqueViolation(e);
+                    item = BatchItemResultDTO.builder()
+                            .status(duplicate ? BatchItemStatus.DUPLICATE : BatchItemStatus.INVALID)
+                            .message(duplicate ? "CPF is already registered" : "Rejected by a database constraint")
+                            .build();
+                }
+                item.setIndex(i);
+                if (item.getStatus() == BatchItemStatus.CREATED) {
+                    createdCount++;
+                }
+                items.add(item);
+            }
+            return BatchCreateResultDTO.builder()
+                    .created(createdCount)
+                    .failed(persons.size() - createdCount)
+                    .items(items)
+                    .build();
+        }
+
+        private BatchCreateResultDTO createAll(List<PersonDTO> personDTOs) {
+            try {
+                return personService.createAll(personDTOs);
+            } catch (BatchSizeExceededException e) {
+                // Cannot happen, the chunk size is checked against the batch limit on construction.
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private ImportProgressDTO finish() {
+            if (!flush()) {
+                listener.onProgress(progress());
+            }
+            return progress();
+        }
+
+        private ImportProgressDTO progress() {
+            return ImportProgressDTO.builder()
+                    .processed(processed)
+                    .created(created)
+                    .failed(failed)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package one.digitalinnovation.personnelapi.service;
+
+import one.digitalinnovation.personnelapi.dto.PersonNameMatchDTO;
+import one.digitalinnovation.personnelapi.repository.PersonRepository;
+import one.digitalinnovation.personnelapi.repository.projection.PersonName;
+import one.digitalinnovation.personnelapi.repository.sharding.PersonShards;
+import one.digitalinnovation.personnelapi.utils.TransactionUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory trigram index over "firstName lastName" for fuzzy name search. Names are lower-cased and
+ * stripped of accents, and every word is padded the way PostgreSQL's pg_trgm does, so typos and
+ * fragments still share most trigrams with the stored name.
+ * <p>
+ * Postings point at distinct normalized names rather than at persons, so a name shared by thousands of
+ * people is scored once per search. Every distinct name gets an increasing slot number, which keeps the
+ * posting lists sorted by slot. Removing the last person of a name only retires its slot; the postings
+ * are rebuilt once retired slots outnumber live ones. Writes are applied after the surrounding
+ * transaction commits, so rolled back changes never become searchable.
+ */
+@Component
+public class PersonNameIndex {
+
+    public static final double MIN_SCORE = 0.5;
+
+    private static final Comparator<Candidate> RANKING = Comparator
+            .comparingDouble((Candidate candidate) -> candidate.score).reversed()
+            .thenComparing(Comparator.comparingDouble((Candidate candidate) -> candidate.similarity).reversed())
+            .thenComparingLong(candidate -> candidate.name.id);
+
+    private final PersonRepository personRepository;
+
+    private final PersonShards personShards;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, IntList> postings = new HashMap<>();
+
+    private final Map<String, Integer> slotsByKey = new HashMap<>();
+
+    private final List<NameGroup> slots = new ArrayList<>();
+
+    private final Map<Long, IndexedName> namesById = new HashMap<>();
+
+    private int retiredSlots;
+
+    /**
+     * Shared-trigram counts by slot, reused by the searches of each thread and left all zero after each one.
+     */
+    private final ThreadLocal<short[]> scratchCounts = ThreadLocal.withInitial(() -> new short[0]);
+
+    @Autowired
+    public PersonNameIndex(PersonRepository personRepository, PersonShards personShards) {
+        this.personRepository = personRepository;
+        this.personShards = personShards;
+    }
+
+    /**
+     * Indexes every stored name, one shard after the other. Names written while the load runs are already
+     * indexed and are kept.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        personShards.readEach(() -> {
+            try (Stream<PersonName> names = personRepository.streamAllNames()) {
+                names.forEach(name -> {
+                    lock.writeLock().lock();
+                    try {
+                        if (!namesById.containsKey(name.getId())) {
+                            add(name.getId(), name.getFirstName(), name.getLastName());
+                        }
+                    } finally {
+                        lock.writeLock().unlock();
+                    }
+                });
+            }
+        });
+    }
+
+    public void put(Long id, String firstName, String lastName) {
+        lock.writeLock().lock();
+        try {
+            retire(id);
+            add(id, firstName, lastName);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Collection<Long> ids) {
+        lock.writeLock().lock();
+        try {
+            ids.forEach(this::retire);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void putAfterCommit(Long id, String firstName, String lastName) {
+        TransactionUtils.afterCommit(() -> put(id, firstName, lastName));
+    }
+
+    public void removeAfterCommit(Collection<Long> ids) {
+        List<Long> copy = new ArrayList<>(ids);
+        TransactionUtils.afterCommit(() -> remove(copy));
+    }
+
+    /**
+     * Best matches first: by share of query trigrams found in the name, then by overall similarity
+     * (shared trigrams over the union of both sets), then by id.
+     */
+    public List<PersonNameMatchDTO> search(String query, int limit) {
+        Set<String> queryTrigrams = trigrams(normalize(query));
+        if (queryTrigrams.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        lock.readLock().lock();
+        try {
+            List<IntList> lists = new ArrayList<>(queryTrigrams.size());
+            for (String trigram : queryTrigrams) {
+                IntList posting = postings.get(trigram);
+                if (posting != null) {
+                    lists.add(posting);
+                }
+            }
+            int minShared = (int) Math.ceil(queryTrigrams.size() * MIN_SCORE);
+            if (lists.size() < minShared) {
+                return Collections.emptyList();
+            }
+            lists.sort(Comparator.comparingInt((IntList list) -> list.size));
+            PriorityQueue<Candidate> best = new PriorityQueue<>(limit + 1, RANKING.reversed());
+
+            // Count the shared trigrams of every name in one pass per posting list; a name sharing minShared
+            // of them is in at least one of the (k - minShared + 1) rarest lists, so only those are revisited.
+            short[] counts = scratchCounts.get();
+            if (counts.length < slots.size()) {
+                counts = new short[Math.max(slots.size(), counts.length * 2)];
+                scratchCounts.set(counts);
+            }
+            for (IntList list : lists) {
+                for (int i = 0; i < list.size; i++) {
+                    counts[list.values[i]]++;
+                }
+            }
+            for (int l = 0; l < lists.size() - minShared + 1; l++) {
+                IntList list = lists.get(l);
+                for (int i = 0; i < list.size; i++) {
+                    int slot = list.values[i];
+                    int shared = counts[slot];
+                    counts[slot] = 0;
+                    if (shared < minShared || slots.get(slot) == null) {
+                        continue;
+                    }
+                    NameGroup group = slots.get(slot);
+                    double score = (double) shared / queryTrigrams.size();
+                    double similarity = (double) shared / (queryTrigrams.size() + group.trigramCount - shared);
+                    // Ids are visited in ascending order, so once one does not make the cut neither will the rest.
+                    for (IndexedName name : group.names.values()) {
+                        Candidate candidate = new Candidate(name, score, similarity);
+                        if (best.size() == limit && RANKING.compare(candidate, best.peek()) >= 0) {
+                            break;
+                        }
+                        best.add(candidate);
+                        if (best.size() > limit) {
+                            best.poll();
+                        }
+                    }
+                }
+            }
+            for (int l = lists.size() - minShared + 1; l < lists.size(); l++) {
+                IntList list = lists.get(l);
+                for (int i = 0; i < list.size; i++) {
+                    counts[list.values[i]] = 0;
+                }
+            }
+
+            List<Candidate> ranked = new ArrayList<>(best);
+            ranked.sort(RANKING);
+            List<PersonNameMatchDTO> matches = new ArrayList<>(ranked.size());
+            for (Candidate candidate : ranked) {
+                matches.add(PersonNameMatchDTO.builder()
+                        .id(candidate.name.id)
+                        .firstName(candidate.name.firstName)
+                        .lastName(candidate.name.lastName)
+                        .score(candidate.score)
+                        .build());
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return namesById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(Long id, String firstName, String lastName) {
+        String key = normalize(firstName + " " + lastName);
+        Integer slot = slotsByKey.get(key);
+        if (slot == null) {
+            Set<String> nameTrigrams = trigrams(key);
+            slot = slots.size();
+            slots.add(new NameGroup(key, nameTrigrams.size()));
+            slotsByKey.put(key, slot);
+            for (String trigram : nameTrigrams) {
+                postings.computeIfAbsent(trigram, k -> new IntList()).add(slot);
+            }
+        }
+        IndexedName name = new IndexedName(id, firstName, lastName, slot);
+        slots.get(slot).names.put(id, name);
+        namesById.put(id, name);
+    }
+
+    private void retire(Long id) {
+        IndexedName name = namesById.remove(id);
+        if (name == null) {
+            return;
+        }
+        NameGroup group = slots.get(name.slot);
+        group.names.remove(id);
+        if (group.names.isEmpty()) {
+            slots.set(name.slot, null);
+            slotsByKey.remove(group.key);
+            retiredSlots++;
+        }
+    }
+
+    private void compactIfNeeded() {
+        if (retiredSlots <= slotsByKey.size()) {
+            return;
+        }
+        List<IndexedName> live = new ArrayList<>(namesById.values());
+        postings.clear();
+        slotsByKey.clear();
+        slots.clear();
+        namesById.clear();
+        retiredSlots = 0;
+        live.forEach(name -> add(name.id, name.firstName, name.lastName));
+    }
+
+    /**
+     * Lower-cased, accent-free words joined by single spaces, so differently written forms of a name share a key.
+     */
+    static String normalize(String text) {
+        String folded = Normalizer.normalize(text == null ? "" : text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT);
+        StringJoiner words = new StringJoiner(" ");
+        for (String word : folded.split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words.toString();
+    }
+
+    static Set<String> trigrams(String normalized) {
+        Set<String> trigrams = new LinkedHashSet<>();
+        if (normalized.isEmpty()) {
+            return trigrams;
+        }
+        for (String word : normalized.split(" ")) {
+            String padded = "  " + word + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                trigrams.add(padded.substring(i, i + 3));
+            }
+        }
+        return trigrams;
+    }
+
+    private static final class NameGroup {
+
+        private final String key;
+
+        private final int trigramCount;
+
+        private final SortedMap<Long, IndexedName> names = new TreeMap<>();
+
+        private NameGroup(String key, int trigramCount) {
+            this.key = key;
+            this.trigramCount = trigramCount;
+        }
+    }
+
+    private static final class IndexedName {
+
+        private final Long id;
+
+        private final String firstName;
+
+        private final String lastName;
+
+        private final int slot;
+
+        private IndexedName(Long id, String firstName, String lastName, int slot) {
+            this.id = id;
+            this.firstName = firstName;
+            this.lastName = lastName;
+            this.slot = slot;
+        }
+    }
+
+    private static final class Candidate {
+
+        private final IndexedName name;
+
+        private final double score;
+
+        private final double similarity;
+
+        private Candidate(IndexedName name, double score, double similarity) {
+            this.name = name;
+            this.score = score;
+            this.similarity = similarity;
+        }
+    }
+
+    private static final class IntList {
+
+        private int[] values = new int[4];
+
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+    }
+}
@@ -0,0 +1,32 @@
+package one.digitalinnovation.personnelapi.service;
+
+import lombok.AllArgsConstructor;
+import one.digitalinnovation.personnelapi.entity.Person;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+import java.util.Collections;
+
+/**
+ * Keeps the {@link PersonNameIndex} in sync with entity writes. Bulk deletes bypass entity callbacks,
+ * so {@link PersonService} removes those ids from the index itself.
+ */
+@AllArgsConstructor(onConstructor = @__(@Autowired))
+public class PersonNameIndexListener {
+
+    private final ObjectProvider<PersonNameIndex> personNameIndex;
+
+    @PostPersist
+    @PostUpdate
+    void indexName(Person person) {
+        personNameIndex.ifAvailable(index -> index.putAfterCommit(person.getId(), person.getFirstName(), person.getLastName()));
+    }
+
+    @PostRemove
+    void removeName(Person person) {
+        personNameIndex.ifAvailable(index -> index.removeAfterCommit(Collections.singletonList(person.getId())));
+    }
+}
@@ -0,0 +1,199 @@
+package one.digitalinnovation.personnelapi.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import one.digitalinnovation.personnelapi.dto.PersonDTO;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Single-flight loading of persons by id: concurrent lookups of the same id share one database load and
+ * mapping instead of each running their own. With {@code personnel.read-coalescing.batch-window} set, loads of
+ * different ids starting within that window are also gathered into queries of up to {@code max-batch-size}
+ * ids, at the cost of delaying each load by up to the window. A lookup that joins a load already running may
+ * miss a write committed meanwhile, as it would had it arrived a moment earlier.
+ * <p>
+ * With the {@value PersonService#PERSON_CACHE} cache on, {@link PersonService#findById} loads inside the
+ * cache's own computation of the entry, which already lets one lookup per id through at a time. Single-flight
+ * would then never find a load to join, so it is skipped, unless batching is on, and
+ * {@value #COALESCED_COUNTER} only counts when caching is off.
+ */
+@Component
+public class PersonReadCoalescer implements DisposableBean {
+
+    public static final String COALESCED_COUNTER = "person.read.coalesced";
+
+    public static final String BATCH_SIZE_SUMMARY = "person.read.batch.size";
+
+    private final boolean enabled;
+
+    private final boolean singleFlight;
+
+    private final Duration batchWindow;
+
+    private final int maxBatchSize;
+
+    private final Counter coalescedCounter;
+
+    private final DistributionSummary batchSizes;
+
+    private final Map<Long, CompletableFuture<Optional<PersonDTO>>> inFlight = new ConcurrentHashMap<>();
+
+    private final Map<Long, CompletableFuture<Optional<PersonDTO>>> pending = new LinkedHashMap<>();
+
+    private Function<List<Long>, List<PersonDTO>> pendingLoader;
+
+    private final ScheduledExecutorService batcher;
+
+    @Autowired
+    public PersonReadCoalescer(MeterRegistry meterRegistry, ObjectProvider<CacheManager> cacheManager,
+                               @Value("${personnel.read-coalescing.enabled:true}") boolean enabled,
+                               @Value("${personnel.read-coalescing.batch-window:0ms}") Duration batchWindow,
+                               @Value("${personnel.read-coalescing.max-batch-size:100}") int maxBatchSize) {
+        this(meterRegistry, enabled, !isCaching(cacheManager.getIfAvailable()), batchWindow, maxBatchSize);
+    }
+
+    PersonReadCoalescer(MeterRegistry meterRegistry, boolean enabled, boolean singleFlight, Duration batchWindow,
+                        int maxBatchSize) {
+        this.enabled = enabled;
+        this.singleFlight = singleFlight;
+        this.batchWindow = batchWindow;
+        this.maxBatchSize = maxBatchSize;
+        this.coalescedCounter = meterRegistry.counter(COALESCED_COUNTER);
+        this.batchSizes = meterRegistry.summary(BATCH_SIZE_SUMMARY);
+        if (!enabled || batchWindow.isZero()) {
+            this.batcher = null;
+            return;
+        }
+        this.batcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "person-read-batcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Loads the person with {@code loader}, or shares the result of a load of the same id already running.
+     * When batching, the {@code batchLoader} of the lookup that opens a window loads every id gathered in it
+     * and returns the persons found, in any order.
+     */
+    public Optional<PersonDTO> load(Long id, Function<Long, Optional<PersonDTO>> loader,
+                                    Function<List<Long>, List<PersonDTO>> batchLoader) {
+        if (!enabled || !singleFlight && batcher == null) {
+            return loader.apply(id);
+        }
+        CompletableFuture<Optional<PersonDTO>> load = new CompletableFuture<>();
+        CompletableFuture<Optional<PersonDTO>> running = inFlight.putIfAbsent(id, load);
+        if (running != null) {
+            coalescedCounter.increment();
+            return await(running);
+        }
+
+        if (batcher == null) {
+            try {
+                load.complete(loader.apply(id));
+            } catch (RuntimeException e) {
+                load.completeExceptionally(e);
+            } finally {
+                inFlight.remove(id, load);
+            }
+        } else {
+            enqueue(id, load, batchLoader);
+        }
+        return await(load);
+    }
+
+    @Override
+    public void destroy() {
+        if (batcher != null) {
+            batcher.shutdownNow();
+            flush();
+        }
+    }
+
+    private static boolean isCaching(CacheManager cacheManager) {
+        return cacheManager != null && cacheManager.getCache(PersonService.PERSON_CACHE) != null;
+    }
+
+    private void enqueue(Long id, CompletableFuture<Optional<PersonDTO>> load,
+                         Function<List<Long>, List<PersonDTO>> batchLoader) {
+        boolean full;
+        synchronized (pending) {
+            if (pending.isEmpty()) {
+                pendingLoader = batchLoader;
+                batcher.schedule(this::flush, batchWindow.toNanos(), TimeUnit.NANOSECONDS);
+            }
+            pending.put(id, load);
+            full = pending.size() >= maxBatchSize;
+        }
+        if (full) {
+            batcher.execute(this::flush);
+        }
+    }
+
+    private void flush() {
+        while (true) {
+            Map<Long, CompletableFuture<Optional<PersonDTO>>> batch = new LinkedHashMap<>();
+            Function<List<Long>, List<PersonDTO>> batchLoader;
+            synchronized (pending) {
+                Iterator<Map.Entry<Long, CompletableFuture<Optional<PersonDTO>>>> entries = pending.entrySet().iterator();
+                while (entries.hasNext() && batch.size() < maxBatchSize) {
+                    Map.Entry<Long, CompletableFuture<Optional<PersonDTO>>> entry = entries.next();
+                    batch.put(entry.getKey(), entry.getValue());
+                    entries.remove();
+                }
+                batchLoader = pendingLoader;
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            batchSizes.record(batch.size());
+            load(batch, batchLoader);
+        }
+    }
+
+    private void load(Map<Long, CompletableFuture<Optional<PersonDTO>>> batch,
+                      Function<List<Long>, List<PersonDTO>> batchLoader) {
+        try {
+            Map<Long, PersonDTO> found = batchLoader.apply(new ArrayList<>(batch.keySet())).stream()
+                    .collect(Collectors.toMap(PersonDTO::getId, Function.identity()));
+            batch.forEach((id, load) -> load.complete(Optional.ofNullable(found.get(id))));
+        } catch (RuntimeException e) {
+            batch.values().forEach(load -> load.completeExceptionally(e));
+        } finally {
+            batch.forEach(inFlight::remove);
+        }
+    }
+
+    private static Optional<PersonDTO> await(CompletableFuture<Optional<PersonDTO>> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
@@ -1,62 +1,918 @@
 package one.digitalinnovation.personnelapi.service;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.annotation.Timed;
 import lombok.AllArgsConstructor;
+import one.digitalinnovation.personnelapi.dto.BatchCreateResultDTO;
+import one.digitalinnovation.personnelapi.dto.BatchItemResultDTO;
+import one.digitalinnovation.personnelapi.dto.MessageResponseDTO;
 import one.digitalinnovation.personnelapi.dto.PersonDTO;
+import one.digitalinnovation.personnelapi.dto.PersonFieldsPageDTO;
+import one.digitalinnovation.personnelapi.dto.PersonNameMatchDTO;
+import one.digitalinnovation.personnelapi.dto.PersonPageDTO;
+import one.digitalinnovation.personnelapi.dto.PersonSearchDTO;
+import one.digitalinnovation.personnelapi.dto.PersonSyncPageDTO;
+import one.digitalinnovation.personnelapi.dto.PersonTombstoneDTO;
+import one.digitalinnovation.personnelapi.dto.PhoneDTO;
 import one.digitalinnovation.personnelapi.dto.mapper.PersonMapper;
 import one.digitalinnovation.personnelapi.entity.Person;
+import one.digitalinnovation.personnelapi.entity.PersonChange;
+import one.digitalinnovation.personnelapi.entity.Phone;
+import one.digitalinnovation.personnelapi.enums.BatchItemStatus;
+import one.digitalinnovation.personnelapi.enums.PersonChangeType;
+import one.digitalinnovation.personnelapi.exception.BatchSizeExceededException;
+import one.digitalinnovation.personnelapi.exception.CpfChangeNotSupportedException;
+import one.digitalinnovation.personnelapi.exception.InvalidFieldSelectionException;
+import one.digitalinnovation.personnelapi.exception.InvalidPersonPatchException;
 import one.digitalinnovation.personnelapi.exception.PersonAlreadyRegisteredException;
 import one.digitalinnovation.personnelapi.exception.PersonNotFoundException;
+import one.digitalinnovation.personnelapi.exception.PersonVersionMismatchException;
+import one.digitalinnovation.personnelapi.repository.PersonChangeRepository;
 import one.digitalinnovation.personnelapi.repository.PersonRepository;
+import one.digitalinnovation.personnelapi.repository.PersonSpecifications;
+import one.digitalinnovation.personnelapi.repository.PhoneRepository;
+import one.digitalinnovation.personnelapi.repository.projection.PersonPhoneId;
+import one.digitalinnovation.personnelapi.repository.projection.PersonUpdate;
+import one.digitalinnovation.personnelapi.repository.projection.PersonVersion;
+import one.digitalinnovation.personnelapi.repository.sharding.PersonShards;
+import one.digitalinnovation.personnelapi.utils.CpfUtils;
+import one.digitalinnovation.personnelapi.utils.ETagUtils;
+import one.digitalinnovation.personnelapi.utils.PhoneNumberUtils;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
 
-import java.util.List;
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 
 @Service
 @AllArgsConstructor(onConstructor = @__(@Autowired))
 public class PersonService {
 
+    public static final String PERSON_CACHE = "persons";
+
+    public static final String SERVICE_TIMER = "person.service";
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int MAX_BATCH_SIZE = 10000;
+
+    /**
+     * Fields accepted by {@link #findAll(Long, Integer, Set)}, in the order they are documented.
+     */
+    public static final Set<String> SELECTABLE_FIELDS = Collections.unmodifiableSet(new LinkedHashSet<>(
+            Arrays.asList("id", "firstName", "lastName", "cpf", "birthDate", "phones")));
+
+    private static final TypeReference<Map<String, Object>> FIELD_MAP_TYPE = new TypeReference<Map<String, Object>>() {
+    };
+
+    private static final int JDBC_BATCH_SIZE = 50;
+
+    private static final int MAX_CREATE_ATTEMPTS = 3;
+
+    private static final int STREAM_CHUNK_SIZE = 500;
+
+    private static final DateTimeFormatter BIRTH_DATE_FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+
     private final PersonRepository personRepository;
 
+    private final PhoneRepository phoneRepository;
+
+    private final EntityManager entityManager;
+
+    private final Validator validator;
+
+    private final CpfMembershipFilter cpfMembershipFilter;
+
+    private final PersonNameIndex personNameIndex;
+
+    private final PhoneNumberIndex phoneNumberIndex;
+
+    private final PersonChangeLog personChangeLog;
+
+    private final PersonChangeRepository personChangeRepository;
+
+    private final ObjectMapper objectMapper;
+
+    private final PersonShards personShards;
+
+    private final PersonReadCoalescer personReadCoalescer;
+
+    private final PersonCacheEvictor personCacheEvictor;
+
+    private final PlatformTransactionManager transactionManager;
+
     private final PersonMapper personMapper = PersonMapper.INSTANCE;
 
+    /**
+     * Inserts the person in a single round trip, relying on the CPF unique constraint to detect duplicates.
+     * A duplicate CPF is added to the {@link CpfMembershipFilter}, which may have missed it.
+     */
+    @Timed(SERVICE_TIMER)
+    @Transactional(rollbackFor = Exception.class)
     public Person create(PersonDTO personDTO) throws PersonAlreadyRegisteredException {
-        if (verifyIfPersonExistsByCPF(personDTO.getCpf())) {
-            throw new PersonAlreadyRegisteredException("CPF is already registered");
+        Person personToSave = personMapper.toModel(personDTO);
+
+        Person savedPerson;
+        try {
+            savedPerson = personRepository.saveAndFlush(personToSave);
+        } catch (DataIntegrityViolationException e) {
+            if (isCpfUniqueViolation(e)) {
+                cpfMembershipFilter.put(CpfUtils.toKey(personToSave.getCpf()));
+                throw new PersonAlreadyRegisteredException("CPF is already registered");
+            }
+            throw e;
         }
+        personChangeLog.record(PersonChangeType.CREATED, savedPerson.getId(), savedPerson.getVersion());
+        return savedPerson;
+    }
 
-        Person personToSave = personMapper.toModel(personDTO);
+    /**
+     * Creates every valid, not yet registered person of the batch. CPFs the membership filter cannot rule
+     * out are checked against the database in a single query and persons are inserted in JDBC batches, flushing and clearing the persistence
+     * context after each batch. Invalid and duplicated items, including null ones, are reported instead of failing the request.
+     * Ids sent with the persons or their phones are ignored; every item is inserted as new.
+     * <p>
+     * The batch is written in one transaction. When the CPF unique constraint still rejects an insert, because the
+     * filter missed a CPF registered by another instance or a concurrent request registered it meanwhile, the
+     * transaction is rolled back and the batch is tried again with every CPF checked against the database, up to
+     * {@value #MAX_CREATE_ATTEMPTS} times in all.
+     */
+    @Timed(SERVICE_TIMER)
+    public BatchCreateResultDTO createAll(List<PersonDTO> personDTOs) throws BatchSizeExceededException {
+        if (personDTOs.size() > MAX_BATCH_SIZE) {
+            throw new BatchSizeExceededException("A batch may contain at most " + MAX_BATCH_SIZE + " persons");
+        }
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        for (int attempt = 1; ; attempt++) {
+            boolean trustFilter = attempt == 1;
+            try {
+                return transaction.execute(status -> insertAll(personDTOs, trustFilter));
+            } catch (DataIntegrityViolationException e) {
+                if (attempt == MAX_CREATE_ATTEMPTS || !isCpfUniqueViolation(e)) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private BatchCreateResultDTO insertAll(List<PersonDTO> personDTOs, boolean trustFilter) {
+        BatchItemResultDTO[] results = new BatchItemResultDTO[personDTOs.size()];
+        Map<Long, Integer> indexesByCpfKey = new LinkedHashMap<>();
+        Map<Integer, Person> personsByIndex = new HashMap<>();
+        for (int i = 0; i < personDTOs.size(); i++) {
+            PersonDTO personDTO = personDTOs.get(i);
+            String violations = personDTO == null ? "item must not be null" : validate(personDTO);
+            if (violations != null) {
+                results[i] = batchItemResult(i, BatchItemStatus.INVALID, violations);
+            } else if (indexesByCpfKey.containsKey(CpfUtils.toKey(personDTO.getCpf()))) {
+                results[i] = batchItemResult(i, BatchItemStatus.DUPLICATE, "CPF is repeated in the batch");
+            } else {
+                try {
+                    Person person = personMapper.toModel(personDTO);
+                    person.setId(null);
+                    if (person.getPhones() != null) {
+                        person.getPhones().forEach(phone -> phone.setId(null));
+                    }
+                    personsByIndex.put(i, person);
+                    indexesByCpfKey.put(CpfUtils.toKey(personDTO.getCpf()), i);
+                } catch (DateTimeParseException e) {
+                    results[i] = batchItemResult(i, BatchItemStatus.INVALID, "birthDate must be in dd-MM-yyyy format");
+                }
+            }
+        }
+
+        List<Long> possiblyRegisteredCpfKeys = indexesByCpfKey.keySet().stream()
+                .filter(cpfKey -> !trustFilter || cpfMembershipFilter.mightContain(cpfKey))
+                .collect(Collectors.toList());
+        Set<Long> registeredCpfKeys = possiblyRegisteredCpfKeys.isEmpty()
+                ? Collections.emptySet()
+                : personRepository.findRegisteredCpfKeys(possiblyRegisteredCpfKeys);
+
+        List<Integer> pendingIndexes = new ArrayList<>(JDBC_BATCH_SIZE);
+        for (Map.Entry<Long, Integer> entry : indexesByCpfKey.entrySet()) {
+            int index = entry.getValue();
+            if (registeredCpfKeys.contains(entry.getKey())) {
+                results[index] = batchItemResult(index, BatchItemStatus.DUPLICATE, "CPF is already registered");
+                continue;
+            }
+            pendingIndexes.add(index);
+            if (pendingIndexes.size() == JDBC_BATCH_SIZE) {
+                insertBatch(pendingIndexes, personsByIndex, results);
+            }
+        }
+        insertBatch(pendingIndexes, personsByIndex, results);
+
+        int created = (int) Arrays.stream(results)
+                .filter(result -> result.getStatus() == BatchItemStatus.CREATED)
+                .count();
+
+        return BatchCreateResultDTO.builder()
+                .created(created)
+                .failed(results.length - created)
+                .items(Arrays.asList(results))
+                .build();
+    }
+
+    private void insertBatch(List<Integer> indexes, Map<Integer, Person> personsByIndex,
+                             BatchItemResultDTO[] results) {
+        if (indexes.isEmpty()) {
+            return;
+        }
+        List<Person> persons = indexes.stream()
+                .map(personsByIndex::get)
+                .collect(Collectors.toList());
+        personRepository.saveAll(persons);
+        persons.forEach(person -> personChangeLog.record(PersonChangeType.CREATED, person.getId(), person.getVersion()));
+        personRepository.flush();
+        entityManager.clear();
+
+        for (int i = 0; i < indexes.size(); i++) {
+            int index = indexes.get(i);
+            results[index] = BatchItemResultDTO.builder()
+                    .index(index)
+                    .id(persons.get(i).getId())
+                    .status(BatchItemStatus.CREATED)
+                    .build();
+            personsByIndex.remove(index);
+        }
+        indexes.clear();
+    }
+
+    private String validate(PersonDTO personDTO) {
+        return violations(validator.validate(personDTO));
+    }
+
+    private <T> String violations(Set<ConstraintViolation<T>> violations) {
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
 
-        return personRepository.save(personToSave);
+    private BatchItemResultDTO batchItemResult(int index, BatchItemStatus status, String message) {
+        return BatchItemResultDTO.builder()
+                .index(index)
+                .status(status)
+                .message(message)
+                .build();
     }
 
+    /**
+     * Cache misses of the same id wait for the one load the cache runs; with caching off, {@link PersonReadCoalescer}
+     * makes them share one load instead.
+     * The load runs while the cache computes the entry, so the eviction that follows a committed write waits
+     * for it and a person read just before the commit is not left in the cache, see {@link PersonCacheEvictor}.
+     */
+    @Timed(SERVICE_TIMER)
+    @Cacheable(cacheNames = PERSON_CACHE, key = "#id", sync = true)
     public PersonDTO findById(Long id) throws PersonNotFoundException {
-        Person person = verifyIfExistsByIdAndReturnPerson(id);
-        return personMapper.toDto(person);
+        return personReadCoalescer.load(id, this::loadById, this::loadAllById)
+                .orElseThrow(() -> new PersonNotFoundException("Person not found with id: " + id));
     }
 
-    public List<PersonDTO> findAll() {
-        List<Person> persons = this.personRepository.findAll();
+    private Optional<PersonDTO> loadById(Long id) {
+        return this.personRepository.findById(id).map(personMapper::toDto);
+    }
+
+    /**
+     * Runs on the coalescer's thread, outside any shard the caller was bound to, so every shard is asked.
+     */
+    private List<PersonDTO> loadAllById(List<Long> ids) {
+        return personShards.readEach(() -> findAllWithPhones(ids)).stream()
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+    }
 
-        return persons.stream()
+    /**
+     * Looks a person up by CPF, formatted or not. CPFs the membership filter proves absent are reported
+     * as not found without querying the database.
+     */
+    @Timed(SERVICE_TIMER)
+    @Transactional(readOnly = true)
+    public PersonDTO findByCpf(String cpf) throws PersonNotFoundException {
+        long cpfKey;
+        try {
+            cpfKey = CpfUtils.toKey(cpf);
+        } catch (IllegalArgumentException e) {
+            throw new PersonNotFoundException("Person not found with CPF: " + cpf);
+        }
+        if (cpfMembershipFilter.provesAbsent(cpfKey)) {
+            throw new PersonNotFoundException("Person not found with CPF: " + cpf);
+        }
+
+        return this.personRepository.findByCpfKey(cpfKey)
                 .map(personMapper::toDto)
+                .orElseThrow(() -> new PersonNotFoundException("Person not found with CPF: " + cpf));
+    }
+
+    /**
+     * Ids of the persons owning the phone number, in any format. Answered by the {@link PhoneNumberIndex}
+     * when it can, otherwise by one indexed query.
+     */
+    @Timed(SERVICE_TIMER)
+    @Transactional(readOnly = true)
+    public List<Long> findIdsByPhone(String number) throws PersonNotFoundException {
+        long numberKey;
+        try {
+            numberKey = PhoneNumberUtils.toKey(number);
+        } catch (IllegalArgumentException e) {
+            throw new PersonNotFoundException("Person not found with phone: " + number);
+        }
+
+        long owner = phoneNumberIndex.ownerOf(numberKey);
+        List<Long> ids = owner == PhoneNumberIndex.UNKNOWN
+                ? personRepository.findIdsByPhoneNumberKey(numberKey)
+                : owner == PhoneNumberIndex.NOT_FOUND ? Collections.emptyList() : Collections.singletonList(owner);
+        if (ids.isEmpty()) {
+            throw new PersonNotFoundException("Person not found with phone: " + number);
+        }
+        return ids;
+    }
+
+    @Timed(SERVICE_TIMER)
+    public Long findVersionById(Long id) throws PersonNotFoundException {
+        return this.personRepository.findVersionById(id)
+                .orElseThrow(() -> new PersonNotFoundException("Person not found with id: " + id));
+    }
+
+    /**
+     * Computes the ETag {@link #findAll(Long, Integer)} would produce for the same page from ids and
+     * versions only, without loading or mapping the persons.
+     */
+    @Timed(SERVICE_TIMER)
+    @Transactional(readOnly = true)
+    public String findPageETag(Long after, Integer limit) {
+        int pageSize = resolvePageSize(limit);
+        List<PersonVersion> versions = this.personRepository.findVersionsAfter(
+                after == null ? 0L : after, PageRequest.of(0, pageSize + 1));
+        List<PersonVersion> page = versions.subList(0, Math.min(versions.size(), pageSize));
+        Long nextCursor = versions.size() > pageSize ? page.get(pageSize - 1).getId() : null;
+
+        return ETagUtils.ofPage(
+                page.stream().map(PersonVersion::getId).collect(Collectors.toList()),
+                page.stream().map(PersonVersion::getVersion).collect(Collectors.toList()),
+                nextCursor);
+    }
+
+    @Timed(SERVICE_TIMER)
+    @Transactional(readOnly = true)
+    public PersonPageDTO findAll(Long after, Integer limit) {
+        int pageSize = resolvePageSize(limit);
+        List<Long> ids = this.personRepository.findIdsAfter(
+                after == null ? 0L : after, PageRequest.of(0, pageSize + 1));
+        Long nextCursor = ids.size() > pageSize ? ids.get(pageSize - 1) : null;
+
+        List<PersonDTO> content = findAllWithPhones(ids.subList(0, Math.min(ids.size(), pageSize)));
+
+        return PersonPageDTO.builder()
+                .content(content)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    /**
+     * Persons created, updated or deleted since {@code updatedSince}, for clients that sync incrementally.
+     * Changed persons and tombstones are merged into one keyset page ordered by {@code (updatedAt, id)};
+     * {@code after} is the id paired with {@code updatedSince} when resuming from a previous page. Timestamps
+     * are taken before commit, so a client should resume slightly before the last instant it has seen.
+     */
+    @Timed(SERVICE_TIMER)
+    @Transactional(readOnly = true)
+    public PersonSyncPageDTO findUpdatedSince(Instant updatedSince, Long after, Integer limit) {
+        int pageSize = resolvePageSize(limit);
+        long afterId = after == null ? 0L : after;
+        List<PersonUpdate> updates = this.personRepository.findUpdatedAfter(
+                updatedSince, afterId, PageRequest.of(0, pageSize + 1));
+        List<PersonChange> deletions = this.personChangeRepository.findDeletedAfter(
+                updatedSince, afterId, PageRequest.of(0, pageSize + 1));
+
+        List<Long> updatedIds = new ArrayList<>();
+        List<PersonTombstoneDTO> deleted = new ArrayList<>();
+        Instant lastInstant = null;
+        Long lastId = null;
+        int u = 0;
+        int d = 0;
+        while (u + d < pageSize && (u < updates.size() || d < deletions.size())) {
+            PersonUpdate update = u < updates.size() ? updates.get(u) : null;
+            PersonChange deletion = d < deletions.size() ? deletions.get(d) : null;
+            if (deletion == null || update != null && isBefore(update.getUpdatedAt(), update.getId(),
+                    deletion.getOccurredAt(), deletion.getPersonId())) {
+                updatedIds.add(update.getId());
+                lastInstant = update.getUpdatedAt();
+                lastId = update.getId();
+                u++;
+            } else {
+                deleted.add(PersonTombstoneDTO.builder()
+                        .id(deletion.getPersonId())
+                        .deletedAt(deletion.getOccurredAt())
+                        .build());
+                lastInstant = deletion.getOccurredAt();
+                lastId = deletion.getPersonId();
+                d++;
+            }
+        }
+        boolean hasMore = u < updates.size() || d < deletions.size();
+
+        Map<Long, Integer> positions = new HashMap<>();
+        for (int i = 0; i < updatedIds.size(); i++) {
+            positions.put(updatedIds.get(i), i);
+        }
+        List<PersonDTO> content = new ArrayList<>(findAllWithPhones(updatedIds));
+        content.sort(Comparator.comparing(personDTO -> positions.get(personDTO.getId())));
+
+        return PersonSyncPageDTO.builder()
+                .content(content)
+                .deleted(deleted)
+                .nextUpdatedSince(hasMore ? lastInstant : null)
+                .nextAfter(hasMore ? lastId : null)
+                .build();
+    }
+
+    private boolean isBefore(Instant instant, Long id, Instant otherInstant, Long otherId) {
+        int comparison = instant.compareTo(otherInstant);
+        return comparison < 0 || comparison == 0 && id < otherId;
+    }
+
+    /**
+     * Keyset page of the persons matching every given filter. The database filters and pages the ids in
+     * one query; the page is then loaded with its phones in a second one.
+     */
+    @Timed(SERVICE_TIMER)
+    @Transactional(readOnly = true)
+    public PersonPageDTO search(PersonSearchDTO search, Long after, Integer limit) {
+        Specification<Person> specification = Specification.where(null);
+        if (StringUtils.hasText(search.getFirstName())) {
+            specification = specification.and(PersonSpecifications.firstNameStartsWith(search.getFirstName()));
+        }
+        if (StringUtils.hasText(search.getLastName())) {
+            specification = specification.and(PersonSpecifications.lastNameStartsWith(search.getLastName()));
+        }
+        if (search.getBornFrom() != null) {
+            specification = specification.and(PersonSpecifications.bornOnOrAfter(search.getBornFrom()));
+        }
+        if (search.getBornTo() != null) {
+            specification = specification.and(PersonSpecifications.bornOnOrBefore(search.getBornTo()));
+        }
+        if (search.getPhoneType() != null) {
+            specification = specification.and(PersonSpecifications.hasPhoneType(search.getPhoneType()));
+        }
+
+        int pageSize = resolvePageSize(limit);
+        List<Long> ids = this.personRepository.findIdsAfter(specification, after == null ? 0L : after, pageSize + 1);
+        Long nextCursor = ids.size() > pageSize ? ids.get(pageSize - 1) : null;
+
+        return PersonPageDTO.builder()
+                .content(findAllWithPhones(ids.subList(0, Math.min(ids.size(), pageSize))))
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    /**
+     * Ranked fuzzy search on "firstName lastName", answered from the in-memory {@link PersonNameIndex}
+     * without touching the database.
+     */
+    @Timed(SERVICE_TIMER)
+    public List<PersonNameMatchDTO> searchByName(String query, Integer limit) {
+        return personNameIndex.search(query, resolvePageSize(limit));
+    }
+
+    /**
+     * Same keyset page as {@link #findAll(Long, Integer)}, but each person carries only the selected
+     * fields. Without {@code phones} only the selected columns are read, in a single query; selecting
+     * {@code phones} falls back to loading the full persons.
+     */
+    @Timed(SERVICE_TIMER)
+    @Transactional(readOnly = true)
+    public PersonFieldsPageDTO findAll(Long after, Integer limit, Set<String> fields) throws InvalidFieldSelectionException {
+        verifyFieldSelection(fields);
+
+        if (fields.contains("phones")) {
+            PersonPageDTO page = findAll(after, limit);
+            List<Map<String, Object>> content = page.getContent().stream()
+                    .map(personDTO -> selectFields(objectMapper.convertValue(personDTO, FIELD_MAP_TYPE), fields))
+                    .collect(Collectors.toList());
+            return PersonFieldsPageDTO.builder()
+                    .content(content)
+                    .nextCursor(page.getNextCursor())
+                    .build();
+        }
+
+        int pageSize = resolvePageSize(limit);
+        List<String> attributes = new ArrayList<>(fields);
+        if (!fields.contains("id")) {
+            attributes.add("id");
+        }
+        List<Tuple> rows = this.personRepository.findAttributesAfter(attributes, after == null ? 0L : after, pageSize + 1);
+        List<Tuple> page = rows.subList(0, Math.min(rows.size(), pageSize));
+        Long nextCursor = rows.size() > pageSize ? page.get(pageSize - 1).get("id", Long.class) : null;
+
+        List<Map<String, Object>> content = page.stream()
+                .map(row -> {
+                    Map<String, Object> person = new LinkedHashMap<>();
+                    fields.forEach(field -> {
+                        Object value = row.get(field);
+                        person.put(field, value instanceof LocalDate ? value.toString() : value);
+                    });
+                    return person;
+                })
                 .collect(Collectors.toList());
+
+        return PersonFieldsPageDTO.builder()
+                .content(content)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    /**
+     * Hands every person, in id order, to the consumer while reading ids off a forward-only cursor.
+     * Persons and their phones are fetched in chunks, and the persistence context is cleared after
+     * each chunk so memory use does not grow with the table size.
+     */
+    @Timed(SERVICE_TIMER)
+    @Transactional(readOnly = true)
+    public void streamAll(Consumer<PersonDTO> consumer) {
+        try (Stream<Long> ids = this.personRepository.streamAllIds()) {
+            List<Long> chunk = new ArrayList<>(STREAM_CHUNK_SIZE);
+            ids.forEach(id -> {
+                chunk.add(id);
+                if (chunk.size() == STREAM_CHUNK_SIZE) {
+                    flushChunk(chunk, consumer);
+                }
+            });
+            flushChunk(chunk, consumer);
+        }
     }
 
+    private void flushChunk(List<Long> chunk, Consumer<PersonDTO> consumer) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        findAllWithPhones(chunk).forEach(consumer);
+        chunk.clear();
+        entityManager.clear();
+    }
+
+    private List<PersonDTO> findAllWithPhones(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return this.personRepository.findAllWithPhonesByIdIn(ids).stream()
+                .map(personMapper::toDto)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Deletes the person with three bulk statements (join rows, person, phones) after one select of its
+     * version and phone ids, and records the deletion in the change log. Nothing is loaded into the
+     * persistence context; a missing id is detected by the select and rolls the transaction back.
+     */
+    @Timed(SERVICE_TIMER)
+    @Transactional(rollbackFor = Exception.class)
     public void deleteById(Long id) throws PersonNotFoundException {
-        PersonDTO person = findById(id);
-        this.personRepository.deleteById(id);
+        if (deleteChunk(Collections.singletonList(id)) == 0) {
+            throw new PersonNotFoundException("Person not found with id: " + id);
+        }
+        personCacheEvictor.evictAfterCommit(id);
     }
 
-    public void updateById(Long id, PersonDTO personDTO) throws PersonNotFoundException {
-        verifyIfExistsByIdAndReturnPerson(id);
+    /**
+     * Deletes every listed person that exists, in chunks of {@value #STREAM_CHUNK_SIZE} ids so each
+     * chunk costs the same four statements as a single delete, plus the batched change log inserts.
+     * Unknown ids are skipped.
+     */
+    @Timed(SERVICE_TIMER)
+    @Transactional
+    public MessageResponseDTO deleteAllById(Collection<Long> ids) throws BatchSizeExceededException {
+        List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        if (distinctIds.size() > MAX_BATCH_SIZE) {
+            throw new BatchSizeExceededException("A batch may contain at most " + MAX_BATCH_SIZE + " ids");
+        }
+
+        return deletedMessage(deleteExisting(distinctIds), distinctIds.size());
+    }
 
-        Person personToUpdate = personMapper.toModel(personDTO);
-        personToUpdate.setId(id);
+    /**
+     * Deletes those of the distinct ids that exist, without the batch size check of
+     * {@link #deleteAllById}, and returns how many there were.
+     */
+    @Timed(SERVICE_TIMER)
+    @Transactional
+    public int deleteExisting(List<Long> distinctIds) {
+        int deleted = 0;
+        for (int from = 0; from < distinctIds.size(); from += STREAM_CHUNK_SIZE) {
+            deleted += deleteChunk(distinctIds.subList(from, Math.min(from + STREAM_CHUNK_SIZE, distinctIds.size())));
+        }
+        personCacheEvictor.evictAfterCommit(distinctIds);
+        return deleted;
+    }
 
-        this.personRepository.save(personToUpdate);
+    public static MessageResponseDTO deletedMessage(int deleted, int requested) {
+        return MessageResponseDTO.builder()
+                .message("Deleted " + deleted + " of " + requested + " requested persons")
+                .build();
+    }
+
+    private int deleteChunk(List<Long> ids) {
+        Map<Long, Long> versionsById = new LinkedHashMap<>();
+        Map<Long, List<Long>> numberKeysById = new HashMap<>();
+        List<Long> phoneIds = new ArrayList<>();
+        for (PersonPhoneId row : personRepository.findPhoneIdsByPersonIdIn(ids)) {
+            versionsById.put(row.getPersonId(), row.getVersion());
+            if (row.getPhoneId() != null) {
+                phoneIds.add(row.getPhoneId());
+                numberKeysById.computeIfAbsent(row.getPersonId(), id -> new ArrayList<>()).add(row.getNumberKey());
+            }
+        }
+        if (versionsById.isEmpty()) {
+            return 0;
+        }
+
+        int deleted = personRepository.deleteByIdIn(new ArrayList<>(versionsById.keySet()));
+        if (!phoneIds.isEmpty()) {
+            phoneRepository.deleteByIdIn(phoneIds);
+        }
+        versionsById.forEach((id, version) -> personChangeLog.record(PersonChangeType.DELETED, id, version));
+        personNameIndex.removeAfterCommit(new ArrayList<>(versionsById.keySet()));
+        if (!numberKeysById.isEmpty()) {
+            phoneNumberIndex.removeAfterCommit(numberKeysById);
+        }
+        return deleted;
+    }
+
+    /**
+     * Replaces the person. The loaded entity is modified in place, so only changed columns and changed
+     * phones produce SQL. When {@code expectedVersion} is given the update only happens if it still
+     * matches the stored version; concurrent modifications are rejected the same way. When persons are
+     * sharded, a new CPF that belongs on another shard is rejected.
+     */
+    @Timed(SERVICE_TIMER)
+    @Transactional(rollbackFor = Exception.class)
+    public void updateById(Long id, PersonDTO personDTO, Long expectedVersion)
+            throws PersonNotFoundException, PersonVersionMismatchException, PersonAlreadyRegisteredException,
+            CpfChangeNotSupportedException {
+        Person person = verifyIfExistsByIdAndReturnPerson(id);
+        verifyVersion(person, expectedVersion);
+
+        replace(person, personDTO);
+        verifyShard(person);
+
+        flushUpdate(person);
+        personChangeLog.record(PersonChangeType.UPDATED, person.getId(), person.getVersion());
+        personCacheEvictor.evictAfterCommit(id);
+    }
+
+    /**
+     * Replaces every listed person that exists in one transaction: one select loads them with their phones
+     * and a single flush writes all changes. Unknown ids are skipped and the ids actually updated are
+     * returned. Any failure, such as a CPF taken by another person or a concurrent modification, rolls the
+     * whole batch back; callers can then retry the items one by one with
+     * {@link #updateById(Long, PersonDTO, Long)} to find the offending one.
+     */
+    @Timed(SERVICE_TIMER)
+    @Transactional(rollbackFor = Exception.class)
+    public List<Long> updateAllById(Map<Long, PersonDTO> personDTOs) throws CpfChangeNotSupportedException {
+        if (personDTOs.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Person> persons = personRepository.findAllWithPhonesByIdIn(personDTOs.keySet());
+        for (Person person : persons) {
+            replace(person, personDTOs.get(person.getId()));
+            verifyShard(person);
+        }
+
+        personRepository.flush();
+        persons.forEach(person -> personChangeLog.record(PersonChangeType.UPDATED, person.getId(), person.getVersion()));
+        List<Long> updatedIds = persons.stream().map(Person::getId).collect(Collectors.toList());
+        personCacheEvictor.evictAfterCommit(updatedIds);
+        return updatedIds;
+    }
+
+    private void replace(Person person, PersonDTO personDTO) {
+        Person source = personMapper.toModel(personDTO);
+        person.setFirstName(source.getFirstName());
+        person.setLastName(source.getLastName());
+        person.setCpf(CpfUtils.normalize(source.getCpf()));
+        person.setBirthDate(source.getBirthDate());
+        if (applyPhones(person, source.getPhones())) {
+            touch(person);
+        }
+    }
+
+    /**
+     * Applies a JSON Merge Patch (RFC 7386) to the person. Only the fields present in the patch are
+     * validated and changed; a {@code phones} array replaces the phone list, matching existing phones by id.
+     */
+    @Timed(SERVICE_TIMER)
+    @Transactional(rollbackFor = Exception.class)
+    public void patchById(Long id, JsonNode patch, Long expectedVersion) throws PersonNotFoundException,
+            PersonVersionMismatchException, PersonAlreadyRegisteredException, InvalidPersonPatchException,
+            CpfChangeNotSupportedException {
+        if (patch == null || !patch.isObject()) {
+            throw new InvalidPersonPatchException("A merge patch must be a JSON object");
+        }
+
+        Person person = verifyIfExistsByIdAndReturnPerson(id);
+        verifyVersion(person, expectedVersion);
+
+        Iterator<Map.Entry<String, JsonNode>> fields = patch.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            JsonNode value = field.getValue();
+            switch (field.getKey()) {
+                case "firstName":
+                    person.setFirstName(validatedText("firstName", value));
+                    break;
+                case "lastName":
+                    person.setLastName(validatedText("lastName", value));
+                    break;
+                case "cpf":
+                    person.setCpf(CpfUtils.normalize(validatedText("cpf", value)));
+                    break;
+                case "birthDate":
+                    person.setBirthDate(parseBirthDate(value));
+                    break;
+                case "phones":
+                    if (applyPhones(person, validatedPhones(value))) {
+                        touch(person);
+                    }
+                    break;
+                case "id":
+                case "version":
+                    break;
+                default:
+                    throw new InvalidPersonPatchException("Unknown field: " + field.getKey());
+            }
+        }
+        verifyShard(person);
+
+        flushUpdate(person);
+        personChangeLog.record(PersonChangeType.UPDATED, person.getId(), person.getVersion());
+        personCacheEvictor.evictAfterCommit(id);
+    }
+
+    private void verifyVersion(Person person, Long expectedVersion) throws PersonVersionMismatchException {
+        if (expectedVersion != null && !expectedVersion.equals(person.getVersion())) {
+            throw new PersonVersionMismatchException("Person " + person.getId() + " is at version " + person.getVersion());
+        }
+    }
+
+    /**
+     * A person never moves between shards, so its CPF must keep hashing to the shard its id names.
+     */
+    private void verifyShard(Person person) throws CpfChangeNotSupportedException {
+        if (!personShards.isSharded()) {
+            return;
+        }
+        if (personShards.shardOfCpfKey(CpfUtils.toKey(person.getCpf())) != personShards.shardOfId(person.getId())) {
+            throw new CpfChangeNotSupportedException("The CPF of person " + person.getId()
+                    + " cannot be changed to one stored on another shard");
+        }
+    }
+
+    private void flushUpdate(Person person) throws PersonVersionMismatchException, PersonAlreadyRegisteredException {
+        try {
+            this.personRepository.flush();
+        } catch (ObjectOptimisticLockingFailureException e) {
+            throw new PersonVersionMismatchException("Person " + person.getId() + " was modified concurrently");
+        } catch (DataIntegrityViolationException e) {
+            if (isCpfUniqueViolation(e)) {
+                cpfMembershipFilter.put(CpfUtils.toKey(person.getCpf()));
+                throw new PersonAlreadyRegisteredException("CPF is already registered");
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Makes the person's phones match {@code phones}: phones with a known id are updated in place,
+     * phones without one are added and phones no longer listed are removed. Returns whether anything changed.
+     */
+    private boolean applyPhones(Person person, List<Phone> phones) {
+        if (person.getPhones() == null) {
+            person.setPhones(new ArrayList<>());
+        }
+        Map<Long, Phone> currentPhones = new HashMap<>();
+        for (Phone phone : person.getPhones()) {
+            currentPhones.put(phone.getId(), phone);
+        }
+
+        boolean changed = false;
+        List<Long> replacedNumberKeys = new ArrayList<>();
+        List<Phone> addedPhones = new ArrayList<>();
+        for (Phone phone : phones == null ? Collections.<Phone>emptyList() : phones) {
+            Phone currentPhone = phone.getId() == null ? null : currentPhones.remove(phone.getId());
+            if (currentPhone != null) {
+                if (!Objects.equals(currentPhone.getNumber(), phone.getNumber())) {
+                    replacedNumberKeys.add(PhoneNumberUtils.toKey(currentPhone.getNumber()));
+                    changed = true;
+                }
+                changed |= currentPhone.getType() != phone.getType();
+                currentPhone.setType(phone.getType());
+                currentPhone.setNumber(phone.getNumber());
+            } else {
+                addedPhones.add(Phone.builder()
+                        .type(phone.getType())
+                        .number(phone.getNumber())
+                        .build());
+            }
+        }
+
+        if (!currentPhones.isEmpty()) {
+            person.getPhones().removeIf(phone -> currentPhones.get(phone.getId()) == phone);
+            currentPhones.values().forEach(phone -> replacedNumberKeys.add(PhoneNumberUtils.toKey(phone.getNumber())));
+        }
+        person.getPhones().addAll(addedPhones);
+        if (!replacedNumberKeys.isEmpty()) {
+            // Numbers the person keeps are indexed again by PhoneNumberIndexListener after this removal.
+            phoneNumberIndex.removeAfterCommit(Collections.singletonMap(person.getId(), replacedNumberKeys));
+        }
+        return changed || !currentPhones.isEmpty() || !addedPhones.isEmpty();
+    }
+
+    /**
+     * Phones are entities of their own, so editing one leaves the person row clean. Marking the person
+     * modified makes the flush bump its version and {@code updatedAt} as well.
+     */
+    private void touch(Person person) {
+        person.setUpdatedAt(Instant.now());
+    }
+
+    private String validatedText(String property, JsonNode value) throws InvalidPersonPatchException {
+        if (!value.isNull() && !value.isTextual()) {
+            throw new InvalidPersonPatchException(property + " must be a string");
+        }
+        String text = value.isNull() ? null : value.asText();
+        String violations = violations(validator.validateValue(PersonDTO.class, property, text));
+        if (violations != null) {
+            throw new InvalidPersonPatchException(violations);
+        }
+        return text;
+    }
+
+    private LocalDate parseBirthDate(JsonNode value) throws InvalidPersonPatchException {
+        if (value.isNull()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(value.asText(), BIRTH_DATE_FORMAT);
+        } catch (DateTimeParseException e) {
+            throw new InvalidPersonPatchException("birthDate must be in dd-MM-yyyy format");
+        }
+    }
+
+    private List<Phone> validatedPhones(JsonNode value) throws InvalidPersonPatchException {
+        List<PhoneDTO> phoneDTOs;
+        try {
+            phoneDTOs = objectMapper.convertValue(value, new TypeReference<List<PhoneDTO>>() {
+            });
+        } catch (IllegalArgumentException e) {
+            throw new InvalidPersonPatchException("phones must be an array of phones");
+        }
+        if (phoneDTOs == null || phoneDTOs.isEmpty()) {
+            throw new InvalidPersonPatchException("phones must not be empty");
+        }
+
+        List<Phone> phones = new ArrayList<>(phoneDTOs.size());
+        for (PhoneDTO phoneDTO : phoneDTOs) {
+            String violations = violations(validator.validate(phoneDTO));
+            if (violations != null) {
+                throw new InvalidPersonPatchException(violations);
+            }
+            phones.add(Phone.builder()
+                    .id(phoneDTO.getId())
+                    .type(phoneDTO.getType())
+                    .number(phoneDTO.getNumber())
+                    .build());
+        }
+        return phones;
     }
 
     private Person verifyIfExistsByIdAndReturnPerson(Long id) throws PersonNotFoundException {
@@ -64,8 +920,45 @@ public class PersonService {
                 .orElseThrow(() -> new PersonNotFoundException("Person not found with id: " + id));
     }
 
+    public static int resolvePageSize(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
+    /**
+     * Decided from the constraint name alone: after a failed flush the transaction can only roll back, so the
+     * CPF cannot be looked up in it.
+     */
+    static boolean isCpfUniqueViolation(DataIntegrityViolationException e) {
+        if (e.getCause() instanceof ConstraintViolationException) {
+            String constraintName = ((ConstraintViolationException) e.getCause()).getConstraintName();
+            return constraintName != null && constraintName.toLowerCase().contains(Person.CPF_UNIQUE_CONSTRAINT);
+        }
+        return false;
+    }
+
+    private void verifyFieldSelection(Set<String> fields) throws InvalidFieldSelectionException {
+        if (fields == null || fields.isEmpty()) {
+            throw new InvalidFieldSelectionException("At least one field must be selected, choose from " + SELECTABLE_FIELDS);
+        }
+        for (String field : fields) {
+            if (!SELECTABLE_FIELDS.contains(field)) {
+                throw new InvalidFieldSelectionException("Unknown field " + field + ", choose from " + SELECTABLE_FIELDS);
+            }
+        }
+    }
+
+    private Map<String, Object> selectFields(Map<String, Object> person, Set<String> fields) {
+        Map<String, Object> selected = new LinkedHashMap<>();
+        fields.forEach(field -> selected.put(field, person.get(field)));
+        return selected;
+    }
+
     public boolean verifyIfPersonExistsByCPF(String cpf) {
-        return (personRepository.findByCpf(cpf).isPresent());
+        long cpfKey = CpfUtils.toKey(cpf);
+        return !cpfMembershipFilter.provesAbsent(cpfKey) && personRepository.existsByCpfKey(cpfKey);
     }
 
 }
@@ -0,0 +1,278 @@
+package one.digitalinnovation.personnelapi.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import one.digitalinnovation.personnelapi.dto.PersonDTO;
+import one.digitalinnovation.personnelapi.dto.QueuedUpdateDTO;
+import one.digitalinnovation.personnelapi.enums.QueuedUpdateStatus;
+import one.digitalinnovation.personnelapi.exception.CpfChangeNotSupportedException;
+import one.digitalinnovation.personnelapi.exception.PersonNotFoundException;
+import one.digitalinnovation.personnelapi.exception.UpdateQueueFullException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Write-behind queue for full person updates, enabled with {@code personnel.write-behind.enabled=true}.
+ * Pending updates are kept per id, so a newer update of a person replaces the one still waiting
+ * (last write wins) without taking another slot. A single worker thread writes them every flush interval,
+ * or as soon as a batch is full, in transactions of up to {@code batch-size} persons; a batch that fails
+ * is retried one person at a time and updates that still fail are dropped, counted and reported by
+ * {@link #status} until the person is queued again. Only the last {@code capacity} drops are remembered.
+ * <p>
+ * Updates of unknown persons are rejected with 404 before being queued. When {@code capacity} distinct
+ * persons are waiting, new ones are rejected with 429. Accepted updates are
+ * only in memory until written: reads may return the previous state for up to one flush interval, and
+ * updates still waiting when the process dies are lost. Pending updates are written on a clean shutdown.
+ * <p>
+ * Synchronous writes of a person call {@link #writePending} or {@link #discardPending} first, so an update
+ * queued before them is never written after them.
+ */
+@Component
+public class PersonUpdateQueue implements DisposableBean {
+
+    public static final String DEPTH_GAUGE = "person.update.queue.depth";
+
+    public static final String FLUSH_TIMER = "person.update.queue.flush";
+
+    public static final String COALESCED_COUNTER = "person.update.queue.coalesced";
+
+    public static final String FAILED_COUNTER = "person.update.queue.failed";
+
+    private final PersonService personService;
+
+    private final MeterRegistry meterRegistry;
+
+    private final boolean enabled;
+
+    private final int capacity;
+
+    private final int batchSize;
+
+    private final Timer flushTimer;
+
+    private final Map<Long, PersonDTO> pending = new LinkedHashMap<>();
+
+    private final Map<Long, String> dropped;
+
+    private final ScheduledExecutorService worker;
+
+    private final AtomicBoolean flushPending = new AtomicBoolean();
+
+    private final Object writeLock = new Object();
+
+    @Autowired
+    public PersonUpdateQueue(PersonService personService, MeterRegistry meterRegistry,
+                             @Value("${personnel.write-behind.enabled:false}") boolean enabled,
+                             @Value("${personnel.write-behind.capacity:10000}") int capacity,
+                             @Value("${personnel.write-behind.batch-size:100}") int batchSize,
+                             @Value("${personnel.write-behind.flush-interval:200ms}") Duration flushInterval) {
+        this.personService = personService;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.dropped = new LinkedHashMap<Long, String>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+                return size() > capacity;
+            }
+        };
+        this.flushTimer = meterRegistry.timer(FLUSH_TIMER);
+        Gauge.builder(DEPTH_GAUGE, this, PersonUpdateQueue::depth)
+                .description("Persons with an update waiting to be written")
+                .register(meterRegistry);
+        if (!enabled) {
+            this.worker = null;
+            return;
+        }
+        this.worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "person-update-queue");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.worker.scheduleWithFixedDelay(this::flush, flushInterval.toMillis(), flushInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues the update, replacing the one still waiting for the same person, once the person is known to exist.
+     */
+    public void enqueue(Long id, PersonDTO personDTO) throws UpdateQueueFullException, PersonNotFoundException {
+        synchronized (pending) {
+            verifyCapacity(id);
+        }
+        // Checked outside the lock; a person deleted before the flush still has its update dropped there.
+        personService.findVersionById(id);
+
+        int depth;
+        synchronized (pending) {
+            verifyCapacity(id);
+            dropped.remove(id);
+            if (pending.put(id, personDTO) != null) {
+                meterRegistry.counter(COALESCED_COUNTER).increment();
+                return;
+            }
+            depth = pending.size();
+        }
+        if (depth >= batchSize && worker != null && flushPending.compareAndSet(false, true)) {
+            worker.execute(this::flush);
+        }
+    }
+
+    private void verifyCapacity(Long id) throws UpdateQueueFullException {
+        if (!pending.containsKey(id) && pending.size() >= capacity) {
+            throw new UpdateQueueFullException("Too many updates waiting to be written, try again later");
+        }
+    }
+
+    /**
+     * Where the last update queued for the person stands. {@code WRITTEN} is also reported for persons
+     * that never had an update queued, or whose drop is no longer remembered.
+     */
+    public QueuedUpdateDTO status(Long id) {
+        synchronized (pending) {
+            if (pending.containsKey(id)) {
+                return queuedUpdate(id, QueuedUpdateStatus.PENDING, null);
+            }
+            String reason = dropped.get(id);
+            if (reason != null) {
+                return queuedUpdate(id, QueuedUpdateStatus.DROPPED, reason);
+            }
+            return queuedUpdate(id, QueuedUpdateStatus.WRITTEN, null);
+        }
+    }
+
+    public int depth() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * Writes every update waiting now, one batch at a time. Updates queued meanwhile wait for the next flush.
+     */
+    public void flush() {
+        flushPending.set(false);
+        for (int remaining = depth(); remaining > 0; remaining -= batchSize) {
+            synchronized (writeLock) {
+                Map<Long, PersonDTO> batch = nextBatch();
+                if (batch.isEmpty()) {
+                    return;
+                }
+                flushTimer.record(() -> write(batch));
+            }
+        }
+    }
+
+    /**
+     * Writes the update waiting for the person now, if any, waiting for a batch being written to finish.
+     * Called before a synchronous update of the person, which is then applied on top of it; if the queued
+     * update fails it is dropped as it would have been by the flush.
+     */
+    public void writePending(Long id) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (writeLock) {
+            PersonDTO personDTO;
+            synchronized (pending) {
+                personDTO = pending.remove(id);
+            }
+            if (personDTO == null) {
+                return;
+            }
+            try {
+                personService.updateById(id, personDTO, null);
+            } catch (Exception e) {
+                drop(id, e);
+            }
+        }
+    }
+
+    /**
+     * Forgets the update waiting for the person, if any, waiting for a batch being written to finish.
+     * Called before the person is deleted, which makes the queued update pointless.
+     */
+    public void discardPending(Long id) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (writeLock) {
+            synchronized (pending) {
+                pending.remove(id);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (worker != null) {
+            worker.shutdownNow();
+            flush();
+        }
+    }
+
+    private Map<Long, PersonDTO> nextBatch() {
+        Map<Long, PersonDTO> batch = new LinkedHashMap<>();
+        synchronized (pending) {
+            Iterator<Map.Entry<Long, PersonDTO>> entries = pending.entrySet().iterator();
+            while (entries.hasNext() && batch.size() < batchSize) {
+                Map.Entry<Long, PersonDTO> entry = entries.next();
+                batch.put(entry.getKey(), entry.getValue());
+                entries.remove();
+            }
+        }
+        return batch;
+    }
+
+    private void write(Map<Long, PersonDTO> batch) {
+        try {
+            Set<Long> missing = new HashSet<>(batch.keySet());
+            personService.updateAllById(batch).forEach(missing::remove);
+            missing.forEach(id -> drop(id, new PersonNotFoundException("Person not found with id: " + id)));
+        } catch (CpfChangeNotSupportedException | RuntimeException e) {
+            batch.forEach((id, personDTO) -> {
+                try {
+                    personService.updateById(id, personDTO, null);
+                } catch (Exception itemException) {
+                    drop(id, itemException);
+                }
+            });
+        }
+    }
+
+    private void drop(Long id, Exception e) {
+        meterRegistry.counter(FAILED_COUNTER, "exception", e.getClass().getSimpleName()).increment();
+        synchronized (pending) {
+            if (!pending.containsKey(id)) {
+                dropped.put(id, e.getMessage());
+            }
+        }
+    }
+
+    private QueuedUpdateDTO queuedUpdate(Long id, QueuedUpdateStatus status, String message) {
+        return QueuedUpdateDTO.builder()
+                .id(id)
+                .status(status)
+                .message(message)
+                .build();
+    }
+}
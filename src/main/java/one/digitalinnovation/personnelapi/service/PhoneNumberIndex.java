@@ -0,0 +1,338 @@
+package one.digitalinnovation.personnelapi.service;
+
+import one.digitalinnovation.personnelapi.repository.PersonRepository;
+import one.digitalinnovation.personnelapi.repository.projection.PersonPhoneNumber;
+import one.digitalinnovation.personnelapi.repository.sharding.PersonShards;
+import one.digitalinnovation.personnelapi.utils.TransactionUtils;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory map from normalized phone number key to the id of the person owning it, so reverse lookups
+ * skip the database. Keys and ids live in two parallel {@code long} arrays with open addressing and
+ * linear probing, about 32 bytes per number at the maximum load factor and no boxing.
+ * <p>
+ * A number owned by several persons is only marked as shared, and those lookups go to the database.
+ * Once shared, a number stays marked until the next rebuild, even after all but one owner have dropped
+ * it. Writes are applied after the surrounding transaction commits: {@link PhoneNumberIndexListener}
+ * follows entity inserts, updates and removals, and {@link PersonService} removes the numbers it bulk
+ * deletes or replaces. Until the index has been loaded at startup, or when it is disabled, every lookup
+ * is reported as {@link #UNKNOWN}.
+ * <p>
+ * Only the writes of this instance are followed. With several instances, or with phones written by other
+ * applications, the index can answer with a former owner or miss a number, so every
+ * {@code personnel.phone-index.rebuild-interval} it is rebuilt from the database; a zero interval disables
+ * the rebuild for a single instance that owns all writes.
+ */
+@Component
+public class PhoneNumberIndex implements DisposableBean {
+
+    /**
+     * No person owns the number.
+     */
+    public static final long NOT_FOUND = 0;
+
+    /**
+     * The index cannot answer; the caller must query the database.
+     */
+    public static final long UNKNOWN = -1;
+
+    private static final long EMPTY = 0;
+
+    private static final long SHARED = -1;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final double MAX_LOAD_FACTOR = 0.5;
+
+    private final PersonRepository personRepository;
+
+    private final PersonShards personShards;
+
+    private final TransactionTemplate readTransaction;
+
+    private final boolean enabled;
+
+    private final ScheduledExecutorService rebuilder;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Table table = new Table(INITIAL_CAPACITY);
+
+    /**
+     * Writes applied while a rebuild reads the database, replayed onto the rebuilt table; null otherwise.
+     */
+    private List<Runnable> writesDuringRebuild;
+
+    private volatile boolean loaded;
+
+    @Autowired
+    public PhoneNumberIndex(PersonRepository personRepository, PersonShards personShards,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${personnel.phone-index.enabled:true}") boolean enabled,
+                            @Value("${personnel.phone-index.rebuild-interval:5m}") Duration rebuildInterval) {
+        this.personRepository = personRepository;
+        this.personShards = personShards;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.enabled = enabled;
+
+        if (!enabled || rebuildInterval.isZero()) {
+            this.rebuilder = null;
+            return;
+        }
+        this.rebuilder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "phone-index-rebuilder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.rebuilder.scheduleWithFixedDelay(this::tryRebuild, rebuildInterval.toMillis(), rebuildInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        rebuild();
+        loaded = true;
+    }
+
+    /**
+     * Reads all numbers into a new table without blocking lookups, then swaps it in after replaying the
+     * writes committed meanwhile, which the read may or may not have seen.
+     */
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            writesDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Table rebuilt = null;
+        try {
+            rebuilt = readAll();
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (rebuilt != null) {
+                    table = rebuilt;
+                    writesDuringRebuild.forEach(Runnable::run);
+                }
+                writesDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Returns the id of the only person owning the number, {@link #NOT_FOUND} or {@link #UNKNOWN}.
+     */
+    public long ownerOf(long numberKey) {
+        if (!enabled || !loaded) {
+            return UNKNOWN;
+        }
+        lock.readLock().lock();
+        try {
+            return table.ownerOf(numberKey);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void put(long numberKey, long personId) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            table.put(numberKey, personId);
+            if (writesDuringRebuild != null) {
+                writesDuringRebuild.add(() -> table.put(numberKey, personId));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drops the number if the person is its only owner; shared numbers keep their mark.
+     */
+    public void remove(long numberKey, long personId) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            table.remove(numberKey, personId);
+            if (writesDuringRebuild != null) {
+                writesDuringRebuild.add(() -> table.remove(numberKey, personId));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void putAfterCommit(long personId, Collection<Long> numberKeys) {
+        List<Long> copy = new ArrayList<>(numberKeys);
+        TransactionUtils.afterCommit(() -> copy.forEach(numberKey -> put(numberKey, personId)));
+    }
+
+    public void removeAfterCommit(Map<Long, List<Long>> numberKeysByPersonId) {
+        Map<Long, List<Long>> copy = new HashMap<>(numberKeysByPersonId);
+        TransactionUtils.afterCommit(() -> copy.forEach((personId, numberKeys) -> numberKeys.forEach(numberKey -> remove(numberKey, personId))));
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return table.size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (rebuilder != null) {
+            rebuilder.shutdownNow();
+        }
+    }
+
+    private Table readAll() {
+        Table rebuilt = new Table(INITIAL_CAPACITY);
+        readTransaction.executeWithoutResult(status -> personShards.readEach(() -> {
+            try (Stream<PersonPhoneNumber> numbers = personRepository.streamAllPhoneNumbers()) {
+                numbers.forEach(number -> rebuilt.put(number.getNumberKey(), number.getPersonId()));
+            }
+        }));
+        return rebuilt;
+    }
+
+    private void tryRebuild() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            // The current table keeps answering; the next rebuild tries again.
+        }
+    }
+
+    private static final class Table {
+
+        private long[] keys;
+
+        private long[] owners;
+
+        private int size;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            owners = new long[capacity];
+        }
+
+        long ownerOf(long numberKey) {
+            int slot = slotOf(numberKey);
+            if (keys[slot] == EMPTY) {
+                return NOT_FOUND;
+            }
+            return owners[slot] == SHARED ? UNKNOWN : owners[slot];
+        }
+
+        void put(long numberKey, long personId) {
+            int slot = slotOf(numberKey);
+            if (keys[slot] == EMPTY) {
+                keys[slot] = numberKey;
+                owners[slot] = personId;
+                if (++size > keys.length * MAX_LOAD_FACTOR) {
+                    resize();
+                }
+            } else if (owners[slot] != personId) {
+                owners[slot] = SHARED;
+            }
+        }
+
+        void remove(long numberKey, long personId) {
+            int slot = slotOf(numberKey);
+            if (keys[slot] != EMPTY && owners[slot] == personId) {
+                delete(slot);
+            }
+        }
+
+        /**
+         * Slot holding the key, or the empty slot where it would be inserted.
+         */
+        private int slotOf(long numberKey) {
+            int mask = keys.length - 1;
+            int slot = hash(numberKey) & mask;
+            while (keys[slot] != EMPTY && keys[slot] != numberKey) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        /**
+         * Backward shift deletion: later keys of the same probe run move up, so lookups never need tombstones.
+         */
+        private void delete(int slot) {
+            int mask = keys.length - 1;
+            int hole = slot;
+            int next = (hole + 1) & mask;
+            while (keys[next] != EMPTY) {
+                int home = hash(keys[next]) & mask;
+                // Move the key into the hole unless its home slot lies cyclically in (hole, next].
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    keys[hole] = keys[next];
+                    owners[hole] = owners[next];
+                    hole = next;
+                }
+                next = (next + 1) & mask;
+            }
+            keys[hole] = EMPTY;
+            owners[hole] = 0;
+            size--;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            long[] oldOwners = owners;
+            keys = new long[oldKeys.length * 2];
+            owners = new long[oldOwners.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int slot = slotOf(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    owners[slot] = oldOwners[i];
+                }
+            }
+        }
+
+        private static int hash(long numberKey) {
+            long hash = numberKey * 0x9e3779b97f4a7c15L;
+            return (int) (hash ^ (hash >>> 32));
+        }
+    }
+}
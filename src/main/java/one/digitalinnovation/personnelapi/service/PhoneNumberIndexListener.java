@@ -0,0 +1,52 @@
+package one.digitalinnovation.personnelapi.service;
+
+import lombok.AllArgsConstructor;
+import one.digitalinnovation.personnelapi.entity.Person;
+import one.digitalinnovation.personnelapi.utils.PhoneNumberUtils;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the {@link PhoneNumberIndex} in sync with entity writes. Phones that were never loaded cannot have
+ * changed, so they are skipped. Numbers replaced in an update and bulk deletes bypass these callbacks, so
+ * {@link PersonService} removes those numbers itself.
+ */
+@AllArgsConstructor(onConstructor = @__(@Autowired))
+public class PhoneNumberIndexListener {
+
+    private final ObjectProvider<PhoneNumberIndex> phoneNumberIndex;
+
+    @PostPersist
+    @PostUpdate
+    void indexPhoneNumbers(Person person) {
+        List<Long> numberKeys = loadedNumberKeys(person);
+        if (!numberKeys.isEmpty()) {
+            phoneNumberIndex.ifAvailable(index -> index.putAfterCommit(person.getId(), numberKeys));
+        }
+    }
+
+    @PostRemove
+    void removePhoneNumbers(Person person) {
+        List<Long> numberKeys = loadedNumberKeys(person);
+        if (!numberKeys.isEmpty()) {
+            phoneNumberIndex.ifAvailable(index -> index.removeAfterCommit(Collections.singletonMap(person.getId(), numberKeys)));
+        }
+    }
+
+    private List<Long> loadedNumberKeys(Person person) {
+        if (person.getPhones() == null || !Hibernate.isInitialized(person.getPhones())) {
+            return Collections.emptyList();
+        }
+        return person.getPhones().stream()
+                .map(phone -> PhoneNumberUtils.toKey(phone.getNumber()))
+                .collect(Collectors.toList());
+    }
+}
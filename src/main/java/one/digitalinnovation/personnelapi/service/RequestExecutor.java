@@ -0,0 +1,73 @@
+package one.digitalinnovation.personnelapi.service;
+
+import one.digitalinnovation.personnelapi.exception.ServiceOverloadedException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Runs the blocking part of the requests served by {@code PersonAsyncController}. By default the task runs on
+ * the calling thread. With {@code personnel.async.enabled=true} it is handed to a bounded pool, sized like the JDBC connection pool
+ * unless configured otherwise, so Tomcat threads are released during the database round trip and waiting
+ * requests sit in the queue instead of holding a thread. When the queue is full the request fails with 503.
+ */
+@Component
+public class RequestExecutor implements DisposableBean {
+
+    private final ThreadPoolTaskExecutor pool;
+
+    @Autowired
+    public RequestExecutor(@Value("${personnel.async.enabled:false}") boolean enabled,
+                           @Value("${personnel.async.pool-size:${spring.datasource.hikari.maximum-pool-size:10}}") int poolSize,
+                           @Value("${personnel.async.queue-capacity:1000}") int queueCapacity) {
+        if (!enabled) {
+            this.pool = null;
+            return;
+        }
+        this.pool = new ThreadPoolTaskExecutor();
+        this.pool.setCorePoolSize(poolSize);
+        this.pool.setMaxPoolSize(poolSize);
+        this.pool.setQueueCapacity(queueCapacity);
+        this.pool.setThreadNamePrefix("person-request-");
+        this.pool.initialize();
+    }
+
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Runnable run = () -> {
+            try {
+                future.complete(task.call());
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        };
+
+        if (pool == null) {
+            run.run();
+            return future;
+        }
+        try {
+            pool.execute(run);
+        } catch (TaskRejectedException e) {
+            future.completeExceptionally(new ServiceOverloadedException("Too many requests in progress, try again later"));
+        }
+        return future;
+    }
+
+    public boolean isAsync() {
+        return pool != null;
+    }
+
+    @Override
+    public void destroy() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package one.digitalinnovation.personnelapi.utils;
+
+public class CpfUtils {
+
+    private static final int CPF_LENGTH = 11;
+
+    private CpfUtils() {
+    }
+
+    /**
+     * Returns the numeric key of a CPF, ignoring any formatting characters.
+     *
+     * @throws IllegalArgumentException if the CPF does not have exactly 11 digits
+     */
+    public static long toKey(String cpf) {
+        if (cpf == null) {
+            throw new IllegalArgumentException("CPF must not be null");
+        }
+
+        long key = 0;
+        int digits = 0;
+        for (int i = 0; i < cpf.length(); i++) {
+            char c = cpf.charAt(i);
+            if (c >= '0' && c <= '9') {
+                key = key * 10 + (c - '0');
+                digits++;
+            } else if (c != '.' && c != '-' && c != ' ') {
+                throw new IllegalArgumentException("Invalid CPF: " + cpf);
+            }
+        }
+        if (digits != CPF_LENGTH) {
+            throw new IllegalArgumentException("CPF must have " + CPF_LENGTH + " digits: " + cpf);
+        }
+        return key;
+    }
+
+    /**
+     * Returns the CPF with only its 11 digits.
+     */
+    public static String normalize(String cpf) {
+        return fromKey(toKey(cpf));
+    }
+
+    public static String fromKey(long key) {
+        return String.format("%011d", key);
+    }
+}
@@ -0,0 +1,160 @@
+package one.digitalinnovation.personnelapi.utils;
+
+import one.digitalinnovation.personnelapi.dto.PersonDTO;
+import one.digitalinnovation.personnelapi.dto.PhoneDTO;
+import one.digitalinnovation.personnelapi.enums.PhoneType;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class CsvUtils {
+
+    public static final String PERSON_HEADER = "id,firstName,lastName,cpf,birthDate,phones";
+
+    /**
+     * Longest record {@link #readRecord} buffers, so a quote that is never closed cannot make it read the
+     * rest of the input into memory.
+     */
+    public static final int MAX_RECORD_LENGTH = 64 * 1024;
+
+    private static final String LINE_SEPARATOR = "\r\n";
+
+    private CsvUtils() {
+    }
+
+    public static void writePersonHeader(Writer writer) throws IOException {
+        writer.write(PERSON_HEADER);
+        writer.write(LINE_SEPARATOR);
+    }
+
+    /**
+     * Writes one RFC 4180 row; the phones share a single column as {@code TYPE:number} pairs separated by {@code ;}.
+     */
+    public static void writePerson(Writer writer, PersonDTO personDTO) throws IOException {
+        StringBuilder phones = new StringBuilder();
+        if (personDTO.getPhones() != null) {
+            for (PhoneDTO phone : personDTO.getPhones()) {
+                if (phones.length() > 0) {
+                    phones.append(';');
+                }
+                phones.append(phone.getType()).append(':').append(phone.getNumber());
+            }
+        }
+
+        writer.write(personDTO.getId() == null ? "" : personDTO.getId().toString());
+        writer.write(',');
+        writer.write(escape(personDTO.getFirstName()));
+        writer.write(',');
+        writer.write(escape(personDTO.getLastName()));
+        writer.write(',');
+        writer.write(escape(personDTO.getCpf()));
+        writer.write(',');
+        writer.write(escape(personDTO.getBirthDate()));
+        writer.write(',');
+        writer.write(escape(phones.toString()));
+        writer.write(LINE_SEPARATOR);
+    }
+
+    /**
+     * Reads the next RFC 4180 record, which spans several lines when a quoted field contains line breaks,
+     * or returns {@code null} at the end of the input. The reader must hand line breaks over as {@code '\n'},
+     * as {@link java.io.LineNumberReader} does. Records longer than {@value #MAX_RECORD_LENGTH} characters
+     * are rejected.
+     */
+    public static List<String> readRecord(Reader reader) throws IOException {
+        int c = reader.read();
+        if (c == -1) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int length = 0;
+        while (true) {
+            if (++length > MAX_RECORD_LENGTH) {
+                throw new IllegalArgumentException("Record is longer than " + MAX_RECORD_LENGTH + " characters");
+            }
+            if (quoted) {
+                if (c == -1) {
+                    throw new IllegalArgumentException("Quoted field is not closed before the end of the input");
+                }
+                if (c == '"') {
+                    c = reader.read();
+                    if (c != '"') {
+                        quoted = false;
+                        continue;
+                    }
+                }
+                field.append((char) c);
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n' || c == -1) {
+                fields.add(field.toString());
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+            c = reader.read();
+        }
+    }
+
+    /**
+     * Builds a person from a record laid out as described by the header; the {@code id} column, if any, is ignored.
+     */
+    public static PersonDTO readPerson(Map<String, Integer> columns, List<String> record) {
+        List<PhoneDTO> phones = new ArrayList<>();
+        String phoneList = field(columns, record, "phones");
+        if (phoneList != null) {
+            for (String phone : phoneList.split(";")) {
+                int separator = phone.indexOf(':');
+                if (separator < 0) {
+                    throw new IllegalArgumentException("phones must be TYPE:number pairs separated by ;");
+                }
+                try {
+                    phones.add(PhoneDTO.builder()
+                            .type(PhoneType.valueOf(phone.substring(0, separator).trim()))
+                            .number(phone.substring(separator + 1).trim())
+                            .build());
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("phones has an unknown type in " + phone);
+                }
+            }
+        }
+
+        return PersonDTO.builder()
+                .firstName(field(columns, record, "firstName"))
+                .lastName(field(columns, record, "lastName"))
+                .cpf(field(columns, record, "cpf"))
+                .birthDate(field(columns, record, "birthDate"))
+                .phones(phones)
+                .build();
+    }
+
+    private static String field(Map<String, Integer> columns, List<String> record, String name) {
+        Integer column = columns.get(name);
+        if (column == null || column >= record.size() || record.get(column).isEmpty()) {
+            return null;
+        }
+        return record.get(column);
+    }
+
+    static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\r' || c == '\n') {
+                return '"' + value.replace("\"", "\"\"") + '"';
+            }
+        }
+        return value;
+    }
+}
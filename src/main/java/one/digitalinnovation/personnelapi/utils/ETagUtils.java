@@ -0,0 +1,68 @@
+package one.digitalinnovation.personnelapi.utils;
+
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+public class ETagUtils {
+
+    private static final String WEAK_PREFIX = "W/";
+
+    private ETagUtils() {
+    }
+
+    /**
+     * Strong ETag of a single person, derived from its version.
+     */
+    public static String ofVersion(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Strong ETag of a page of persons, derived from the ids and versions of its content and its next cursor.
+     */
+    public static String ofPage(List<Long> ids, List<Long> versions, Long nextCursor) {
+        StringBuilder builder = new StringBuilder(ids.size() * 16);
+        for (int i = 0; i < ids.size(); i++) {
+            builder.append(ids.get(i)).append(':').append(versions.get(i)).append(',');
+        }
+        builder.append(nextCursor);
+        return "\"" + DigestUtils.md5DigestAsHex(builder.toString().getBytes(StandardCharsets.US_ASCII)) + "\"";
+    }
+
+    /**
+     * Weak comparison of an {@code If-None-Match} header against the current ETag.
+     */
+    public static boolean matchesAny(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith(WEAK_PREFIX)) {
+                tag = tag.substring(WEAK_PREFIX.length());
+            }
+            if (tag.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Extracts the version from a strong person ETag such as {@code "3"}.
+     *
+     * @throws IllegalArgumentException if the value is weak or not a person ETag
+     */
+    public static long parseVersion(String eTag) {
+        String tag = eTag.trim();
+        if (tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+            throw new IllegalArgumentException("Not a strong ETag: " + eTag);
+        }
+        return Long.parseLong(tag.substring(1, tag.length() - 1));
+    }
+}
@@ -0,0 +1,44 @@
+package one.digitalinnovation.personnelapi.utils;
+
+public class PhoneNumberUtils {
+
+    /**
+     * Digits with the usual formatting characters, and at least one non-zero digit.
+     */
+    public static final String PATTERN = "[0-9()+. -]*[1-9][0-9()+. -]*";
+
+    private static final int MAX_DIGITS = 18;
+
+    private PhoneNumberUtils() {
+    }
+
+    /**
+     * Returns the numeric key of a phone number, ignoring formatting characters. Leading zeros, such as
+     * the trunk prefix, do not change the key, so {@code (011) 99999-9999} and {@code 1199999-9999} match.
+     *
+     * @throws IllegalArgumentException if the number has other characters, no non-zero digit or too many digits
+     */
+    public static long toKey(String number) {
+        if (number == null) {
+            throw new IllegalArgumentException("Phone number must not be null");
+        }
+
+        long key = 0;
+        int digits = 0;
+        for (int i = 0; i < number.length(); i++) {
+            char c = number.charAt(i);
+            if (c >= '0' && c <= '9') {
+                key = key * 10 + (c - '0');
+                if (key > 0) {
+                    digits++;
+                }
+            } else if (c != '(' && c != ')' && c != '+' && c != '.' && c != '-' && c != ' ') {
+                throw new IllegalArgumentException("Invalid phone number: " + number);
+            }
+        }
+        if (key == 0 || digits > MAX_DIGITS) {
+            throw new IllegalArgumentException("Phone number must have between 1 and " + MAX_DIGITS + " significant digits: " + number);
+        }
+        return key;
+    }
+}
@@ -0,0 +1,27 @@
+package one.digitalinnovation.personnelapi.utils;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class TransactionUtils {
+
+    private TransactionUtils() {
+    }
+
+    /**
+     * Runs the action once the surrounding transaction commits, never if it rolls back, or right away when
+     * no transaction is active.
+     */
+    public static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
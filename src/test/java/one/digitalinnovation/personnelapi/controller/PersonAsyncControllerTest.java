@@ -0,0 +1,60 @@
+package one.digitalinnovation.personnelapi.controller;
+
+import one.digitalinnovation.personnelapi.dto.PersonDTO;
+import one.digitalinnovation.personnelapi.exception.ServiceOverloadedException;
+import one.digitalinnovation.personnelapi.service.PersonService;
+import one.digitalinnovation.personnelapi.service.RequestExecutor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+public class PersonAsyncControllerTest {
+
+    private static final long VALID_ID = 1L;
+
+    @Mock
+    private PersonController personController;
+
+    @Mock
+    private PersonService personService;
+
+    @Mock
+    private RequestExecutor requestExecutor;
+
+    @Mock
+    private RequestMappingHandlerMapping handlerMapping;
+
+    @InjectMocks
+    private PersonAsyncController personAsyncController;
+
+    @Test
+    void whenTheRequestExecutorIsSaturatedThenFindByIdFailsWithServiceOverloaded() {
+        // Given
+        doReturn(CompletableFuture.failedFuture(new ServiceOverloadedException("Too many requests in progress")))
+                .when(requestExecutor).submit(any());
+
+        // When
+        CompletableFuture<ResponseEntity<PersonDTO>> response = personAsyncController.findById(VALID_ID, null);
+
+        // Then
+        ExecutionException exception = assertThrows(ExecutionException.class, response::get);
+        assertThat(exception.getCause(), is(instanceOf(ServiceOverloadedException.class)));
+        verifyNoInteractions(personController);
+    }
+}
@@ -0,0 +1,125 @@
+package one.digitalinnovation.personnelapi.controller;
+
+import one.digitalinnovation.personnelapi.dto.PersonDTO;
+import one.digitalinnovation.personnelapi.dto.PhoneDTO;
+import one.digitalinnovation.personnelapi.enums.PhoneType;
+import one.digitalinnovation.personnelapi.repository.PersonRepository;
+import one.digitalinnovation.personnelapi.service.RequestExecutor;
+import one.digitalinnovation.personnelapi.utils.PersonUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "personnel.async.enabled=true",
+        "personnel.async.pool-size=2",
+        "server.tomcat.threads.max=2"
+})
+public class PersonAsyncModeTest {
+
+    private static final String PERSON_API_URL_PATH = "/api/v1/person";
+    private static final int CONCURRENT_REQUESTS = 32;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private PersonRepository personRepository;
+
+    @Autowired
+    private RequestExecutor requestExecutor;
+
+    @Autowired
+    @Qualifier("requestMappingHandlerMapping")
+    private RequestMappingHandlerMapping handlerMapping;
+
+    @AfterEach
+    void tearDown() {
+        personRepository.deleteAll();
+    }
+
+    @Test
+    void whenMoreConcurrentRequestsThanTomcatThreadsArriveThenAllAreServed() throws Exception {
+        // Given
+        ExecutorService clients = Executors.newFixedThreadPool(CONCURRENT_REQUESTS);
+        List<Future<ResponseEntity<Void>>> creates = new ArrayList<>();
+
+        try {
+            // When
+            for (int i = 1; i <= CONCURRENT_REQUESTS; i++) {
+                PersonDTO personDTO = createPersonDTO(i);
+                creates.add(clients.submit(() -> restTemplate.postForEntity(PERSON_API_URL_PATH, personDTO, Void.class)));
+            }
+            List<URI> locations = new ArrayList<>();
+            for (Future<ResponseEntity<Void>> create : creates) {
+                ResponseEntity<Void> response = create.get();
+                assertThat(response.getStatusCode(), is(equalTo(HttpStatus.CREATED)));
+                locations.add(response.getHeaders().getLocation());
+            }
+
+            List<Future<ResponseEntity<PersonDTO>>> finds = new ArrayList<>();
+            for (URI location : locations) {
+                finds.add(clients.submit(() -> restTemplate.getForEntity(location, PersonDTO.class)));
+            }
+
+            // Then
+            assertThat(requestExecutor.isAsync(), is(true));
+            for (Future<ResponseEntity<PersonDTO>> find : finds) {
+                ResponseEntity<PersonDTO> response = find.get();
+                assertThat(response.getStatusCode(), is(equalTo(HttpStatus.OK)));
+                assertThat(response.getHeaders().getETag(), is(notNullValue()));
+            }
+            assertThat(personRepository.count(), is(equalTo((long) CONCURRENT_REQUESTS)));
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    @Test
+    void whenAsyncModeIsEnabledThenCreateAndFindByIdAreServedByTheAsyncController() {
+        // When
+        List<String> asyncHandlers = new ArrayList<>();
+        for (HandlerMethod handlerMethod : handlerMapping.getHandlerMethods().values()) {
+            if (handlerMethod.getBeanType() == PersonAsyncController.class) {
+                asyncHandlers.add(handlerMethod.getMethod().getName());
+            }
+        }
+
+        // Then
+        assertThat(asyncHandlers, containsInAnyOrder("create", "findById"));
+    }
+
+    @Test
+    void whenAnUnknownIdIsRequestedThenTheErrorStatusIsPropagated() {
+        // When
+        ResponseEntity<String> response = restTemplate.getForEntity(PERSON_API_URL_PATH + "/" + Long.MAX_VALUE, String.class);
+
+        // Then
+        assertThat(response.getStatusCode(), is(equalTo(HttpStatus.NOT_FOUND)));
+    }
+
+    private PersonDTO createPersonDTO(int sequence) {
+        PersonDTO personDTO = PersonUtils.createPersonDTO();
+        personDTO.setCpf(PersonUtils.createCpf(sequence));
+        personDTO.setPhones(Collections.singletonList(PhoneDTO.builder().type(PhoneType.MOBILE).number("1199999-9999").build()));
+        return personDTO;
+    }
+}
@@ -1,24 +1,57 @@
 package one.digitalinnovation.personnelapi.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import one.digitalinnovation.personnelapi.config.AsyncTimeoutInterceptor;
+import one.digitalinnovation.personnelapi.dto.BatchCreateResultDTO;
+import one.digitalinnovation.personnelapi.dto.BatchItemResultDTO;
+import one.digitalinnovation.personnelapi.dto.ImportLineResultDTO;
+import one.digitalinnovation.personnelapi.dto.ImportProgressDTO;
+import one.digitalinnovation.personnelapi.dto.MessageResponseDTO;
+import one.digitalinnovation.personnelapi.dto.PersonChangeDTO;
 import one.digitalinnovation.personnelapi.dto.PersonDTO;
+import one.digitalinnovation.personnelapi.dto.PersonFieldsPageDTO;
+import one.digitalinnovation.personnelapi.dto.PersonNameMatchDTO;
+import one.digitalinnovation.personnelapi.dto.PersonPageDTO;
+import one.digitalinnovation.personnelapi.dto.PersonSearchDTO;
+import one.digitalinnovation.personnelapi.dto.PersonSyncPageDTO;
+import one.digitalinnovation.personnelapi.dto.PersonTombstoneDTO;
+import one.digitalinnovation.personnelapi.dto.QueuedUpdateDTO;
 import one.digitalinnovation.personnelapi.entity.Person;
+import one.digitalinnovation.personnelapi.enums.BatchItemStatus;
+import one.digitalinnovation.personnelapi.enums.PersonChangeType;
+import one.digitalinnovation.personnelapi.enums.PhoneType;
+import one.digitalinnovation.personnelapi.enums.QueuedUpdateStatus;
+import one.digitalinnovation.personnelapi.exception.BatchSizeExceededException;
+import one.digitalinnovation.personnelapi.exception.InvalidFieldSelectionException;
+import one.digitalinnovation.personnelapi.exception.InvalidPersonPatchException;
 import one.digitalinnovation.personnelapi.exception.PersonAlreadyRegisteredException;
 import one.digitalinnovation.personnelapi.exception.PersonNotFoundException;
+import one.digitalinnovation.personnelapi.exception.PersonVersionMismatchException;
+import one.digitalinnovation.personnelapi.exception.UpdateQueueFullException;
+import one.digitalinnovation.personnelapi.service.PersonChangeFeed;
+import one.digitalinnovation.personnelapi.service.PersonImportService;
 import one.digitalinnovation.personnelapi.service.PersonService;
+import one.digitalinnovation.personnelapi.service.PersonUpdateQueue;
 import one.digitalinnovation.personnelapi.utils.JsonConversionUtils;
 import one.digitalinnovation.personnelapi.utils.PersonUtils;
 import org.hamcrest.core.Is;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.mock.env.MockEnvironment;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.ResultHandler;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultHandlers;
@@ -26,11 +59,34 @@ import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.servlet.view.json.MappingJackson2JsonView;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.core.Is.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -40,12 +96,25 @@ public class PersonControllerTest {
     private static final String PERSON_API_URL_PATH = "/api/v1/person";
     private static final long VALID_ID = 1;
     private static final long INVALID_ID = 50L;
+    private static final long VERSION = 3L;
 
     private MockMvc mockMvc;
 
     @Mock
     private PersonService personService;
 
+    @Mock
+    private PersonImportService personImportService;
+
+    @Mock
+    private PersonChangeFeed personChangeFeed;
+
+    @Mock
+    private PersonUpdateQueue personUpdateQueue;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
     @InjectMocks
     private PersonController personController;
 
@@ -54,6 +123,7 @@ public class PersonControllerTest {
         mockMvc = MockMvcBuilders.standaloneSetup(personController)
                 .setCustomArgumentResolvers(new PageableHandlerMethodArgumentResolver())
                 .setViewResolvers((s, locale) -> new MappingJackson2JsonView())
+                .addInterceptors(new AsyncTimeoutInterceptor(new MockEnvironment().withProperty("personnel.export.timeout", "45m")))
                 .build();
     }
 
@@ -91,6 +161,45 @@ public class PersonControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void whenPOSTBatchIsCalledThenTheResultReportIsReturned() throws Exception {
+        // Given
+        PersonDTO personDTO = PersonUtils.createPersonDTO();
+        List<PersonDTO> batch = Collections.singletonList(personDTO);
+        BatchCreateResultDTO report = BatchCreateResultDTO.builder()
+                .created(1)
+                .items(Collections.singletonList(BatchItemResultDTO.builder()
+                        .index(0)
+                        .id(VALID_ID)
+                        .status(BatchItemStatus.CREATED)
+                        .build()))
+                .build();
+
+        // When
+        when(personService.createAll(batch)).thenReturn(report);
+
+        // Then
+        this.mockMvc.perform(MockMvcRequestBuilders.post(PERSON_API_URL_PATH + "/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(JsonConversionUtils.asJsonString(batch)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created", is(1)))
+                .andExpect(jsonPath("$.items[0].id", is((int) VALID_ID)))
+                .andExpect(jsonPath("$.items[0].status", is(BatchItemStatus.CREATED.name())));
+    }
+
+    @Test
+    void whenPOSTBatchIsCalledWithTooManyPersonsThenStatusBadRequestIsReturned() throws Exception {
+        // When
+        when(personService.createAll(any())).thenThrow(BatchSizeExceededException.class);
+
+        // Then
+        this.mockMvc.perform(MockMvcRequestBuilders.post(PERSON_API_URL_PATH + "/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void whenPOSTIsCalledWithInvalidFieldThenStatusBadRequestIsReturned() throws Exception {
         // Given
@@ -121,6 +230,77 @@ public class PersonControllerTest {
                 .andExpect(jsonPath("$.lastName", is(personDTO.getLastName())));
     }
 
+    @Test
+    void whenGETByCpfIsCalledWithRegisteredCpfThenPersonDTOAndStatusOkAreReturned() throws Exception {
+        // Given
+        PersonDTO personDTO = PersonUtils.createPersonDTO();
+        personDTO.setId(VALID_ID);
+
+        // When
+        when(personService.findByCpf(personDTO.getCpf())).thenReturn(personDTO);
+
+        // Then
+        this.mockMvc.perform(MockMvcRequestBuilders.get(PERSON_API_URL_PATH + "/by-cpf/" + personDTO.getCpf()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id", is((int) VALID_ID)))
+                .andExpect(jsonPath("$.cpf", is(personDTO.getCpf())));
+    }
+
+    @Test
+    void whenGETByCpfIsCalledWithUnknownCpfThenStatusNotFoundIsReturned() throws Exception {
+        // When
+        when(personService.findByCpf("52998224725")).thenThrow(PersonNotFoundException.class);
+
+        // Then
+        this.mockMvc.perform(MockMvcRequestBuilders.get(PERSON_API_URL_PATH + "/by-cpf/52998224725"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void whenGETIsCalledWithValidIdThenETagFromVersionIsReturned() throws Exception {
+        // Given
+        PersonDTO personDTO = PersonUtils.createPersonDTO();
+        personDTO.setId(VALID_ID);
+        personDTO.setVersion(VERSION);
+
+        // When
+        when(personService.findById(VALID_ID)).thenReturn(personDTO);
+
+        // Then
+        this.mockMvc.perform(MockMvcRequestBuilders.get(PERSON_API_URL_PATH + "/" + VALID_ID))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + VERSION + "\""))
+                .andExpect(jsonPath("$.version").doesNotExist());
+    }
+
+    @Test
+    void whenGETIsCalledWithMatchingIfNoneMatchThenStatusNotModifiedIsReturned() throws Exception {
+        // When
+        when(personService.findVersionById(VALID_ID)).thenReturn(VERSION);
+
+        // Then
+        this.mockMvc.perform(MockMvcRequestBuilders.get(PERSON_API_URL_PATH + "/" + VALID_ID)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"" + VERSION + "\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + VERSION + "\""));
+        verify(personService, never()).findById(VALID_ID);
+    }
+
+    @Test
+    void whenGETListIsCalledWithMatchingIfNoneMatchThenStatusNotModifiedIsReturned() throws Exception {
+        // Given
+        String eTag = "\"0123456789abcdef\"";
+
+        // When
+        when(personService.findPageETag(null, null)).thenReturn(eTag);
+
+        // Then
+        this.mockMvc.perform(MockMvcRequestBuilders.get(PERSON_API_URL_PATH)
+                .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+        verify(personService, never()).findAll(null, null);
+    }
+
     @Test
     void whenGETIsCalledWithInvalidIdThenStatusNotFoundIsReturned() throws Exception {
         // When
@@ -132,20 +312,340 @@ public class PersonControllerTest {
     }
 
     @Test
-    void whenGETIsCalledWithNoIdThenReturnAListAndStatusOk() throws Exception {
+    void whenGETIsCalledWithNoIdThenReturnAPageAndStatusOk() throws Exception {
         // Given
         PersonDTO personDTO = PersonUtils.createPersonDTO();
-        List<PersonDTO> personDTOS = Collections.singletonList(personDTO);
+        PersonPageDTO personPage = PersonPageDTO.builder()
+                .content(Collections.singletonList(personDTO))
+                .nextCursor(VALID_ID)
+                .build();
 
         // When
-        when(personService.findAll()).thenReturn(personDTOS);
+        when(personService.findAll(null, null)).thenReturn(personPage);
 
         // Then
         mockMvc.perform(MockMvcRequestBuilders.get(PERSON_API_URL_PATH))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$[0].cpf", is(personDTO.getCpf())))
-                .andExpect(jsonPath("$[0].firstName", is(personDTO.getFirstName())))
-                .andExpect(jsonPath("$[0].lastName", is(personDTO.getLastName())));
+                .andExpect(jsonPath("$.content[0].cpf", is(personDTO.getCpf())))
+                .andExpect(jsonPath("$.content[0].firstName", is(personDTO.getFirstName())))
+                .andExpect(jsonPath("$.content[0].lastName", is(personDTO.getLastName())))
+                .andExpect(jsonPath("$.nextCursor", is((int) VALID_ID)));
+    }
+
+    @Test
+    void whenGETIsCalledWithAfterAndLimitThenTheyArePassedToTheService() throws Exception {
+        // When
+        when(personService.findAll(VALID_ID, 10)).thenReturn(new PersonPageDTO(Collections.emptyList(), null));
+
+        // Then
+        mockMvc.perform(MockMvcRequestBuilders.get(PERSON_API_URL_PATH)
+                .param("after", String.valueOf(VALID_ID))
+                .param("limit", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(0)));
+    }
+
+    @Test
+    void whenGETIsCalledWithUpdatedSinceThenChangedPersonsAndTombstonesAreReturned() throws Exception {
+        // Given
+        Instant updatedSince = Instant.parse("2021-05-01T10:00:00Z");
+        PersonSyncPageDTO page = PersonSyncPageDTO.builder()
+                .content(Collections.singletonList(PersonUtils.createPersonDTO()))
+                .deleted(Collections.singletonList(new PersonTombstoneDTO(INVALID_ID, updatedSince.plusSeconds(1))))
+                .build();
+
+        // When
+        when(personService.findUpdatedSince(updatedSince, VALID_ID, 10)).thenReturn(page);
+
+        // Then
+        mockMvc.perform(MockMvcRequestBuilders.get(PERSON_API_URL_PATH)
+                .param("updatedSince", "2021-05-01T10:00:00Z")
+                .param("after", String.valueOf(VALID_ID))
+                .param("limit", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.deleted[0].id", is((int) INVALID_ID)))
+                .andExpect(jsonPath("$.nextUpdatedSince").doesNotExist());
+    }
+
+    @Test
+    void whenGETIsCalledWithFieldsThenOnlyTheSelectedFieldsAreReturned() throws Exception {
+        // Given
+        Map<String, Object> person = new LinkedHashMap<>();
+        person.put("id", VALID_ID);
+        person.put("firstName", "Teste");
+        PersonFieldsPageDTO page = PersonFieldsPageDTO.builder()
+                .content(Collections.singletonList(person))
+                .build();
+
+        // When
+        when(personService.findAll(null, null, new LinkedHashSet<>(Arrays.asList("id", "firstName")))).thenReturn(page);
+
+        // Then
+        mockMvc.perform(MockMvcRequestBuilders.get(PERSON_API_URL_PATH).param("fields", "id,firstName"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id", is((int) VALID_ID)))
+                .andExpect(jsonPath("$.content[0].firstName", is("Teste")))
+                .andExpect(jsonPath("$.content[0].lastName").doesNotExist());
+    }
+
+    @Test
+    void whenGETIsCalledWithUnknownFieldThenStatusBadRequestIsReturned() throws Exception {
+        // When
+        when(personService.findAll(null, null, Collections.singleton("salary")))
+                .thenThrow(InvalidFieldSelectionException.class);
+
+        // Then
+        mockMvc.perform(MockMvcRequestBuilders.get(PERSON_API_URL_PATH).param("fields", "salary"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void whenGETSearchIsCalledThenFiltersArePassedToTheService() throws Exception {
+        // Given
+        PersonDTO personDTO = PersonUtils.createPersonDTO();
+        PersonSearchDTO search = PersonSearchDTO.builder()
+                .lastName("da S")
+                .bornFrom(LocalDate.of(1960, 1, 1))
+                .bornTo(LocalDate.of(1980, 12, 31))
+                .phoneType(PhoneType.HOME)
+                .build();
+        PersonPageDTO personPage = PersonPageDTO.builder()
+                .content(Collections.singletonList(personDTO))
+                .build();
+
+        // When
+        when(personService.search(search, 10L, 20)).thenReturn(personPage);
+
+        // Then
+        mockMvc.perform(MockMvcRequestBuilders.get(PERSON_API_URL_PATH + "/search")
+                .param("lastName", "da S")
+                .param("bornFrom", "1960-01-01")
+                .param("bornTo", "1980-12-31")
+                .param("phoneType", "HOME")
+                .param("after", "10")
+                .param("limit", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.content[0].lastName", is(personDTO.getLastName())));
+    }
+
+    @Test
+    void whenGETNameSearchIsCalledThenRankedMatchesAreReturned() throws Exception {
+        // Given
+        PersonNameMatchDTO match = PersonNameMatchDTO.builder()
+                .id(VALID_ID)
+                .firstName("Teste")
+                .lastName("da Silva")
+                .score(0.8)
+                .build();
+
+        // When
+        when(personService.searchByName("silvs", null)).thenReturn(Collections.singletonList(match));
+
+        // Then
+        mockMvc.perform(MockMvcRequestBuilders.get(PERSON_API_URL_PATH + "/search/name").param("q", "silvs"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id", is((int) VALID_ID)))
+                .andExpect(jsonPath("$[0].score", is(0.8)));
+    }
+
+    @Test
+    void whenGETIsCalledAcceptingNdjsonThenPersonsAreStreamedOnePerLine() throws Exception {
+        // Given
+        PersonDTO personDTO = PersonUtils.createPersonDTO();
+
+        // When
+        doAnswer(invocation -> {
+            Consumer<PersonDTO> consumer = invocation.getArgument(0);
+            consumer.accept(personDTO);
+            consumer.accept(personDTO);
+            return null;
+        }).when(personService).streamAll(any());
+
+        // Then
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get(PERSON_API_URL_PATH)
+                .accept(PersonController.APPLICATION_NDJSON_VALUE))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String line = JsonConversionUtils.asJsonString(personDTO);
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(PersonController.APPLICATION_NDJSON_VALUE))
+                .andExpect(content().string(line + "\n" + line + "\n"));
+    }
+
+    @Test
+    void whenExportIsCalledWithCsvFormatThenAHeaderAndOneEscapedRowPerPersonAreStreamed() throws Exception {
+        // Given
+        PersonDTO personDTO = PersonUtils.createPersonDTO();
+        personDTO.setId(VALID_ID);
+        personDTO.setLastName("da Silva, \"Jr\"");
+
+        // When
+        doAnswer(invocation -> {
+            Consumer<PersonDTO> consumer = invocation.getArgument(0);
+            consumer.accept(personDTO);
+            return null;
+        }).when(personService).streamAll(any());
+
+        // Then
+        performAsync(MockMvcRequestBuilders.get(PERSON_API_URL_PATH + "/export").param("format", "csv"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(PersonController.TEXT_CSV_VALUE))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"persons.csv\""))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(content().string("id,firstName,lastName,cpf,birthDate,phones\r\n"
+                        + "1,Teste,\"da Silva, \"\"Jr\"\"\",35109652058,01-01-1970,HOME:1199999-9999\r\n"));
+    }
+
+    @Test
+    void whenAStreamingHandlerGoesAsyncThenOnlyItGetsItsOwnTimeout() throws Exception {
+        // Given
+        PersonDTO personDTO = PersonUtils.createPersonDTO();
+
+        // When
+        when(personService.findById(VALID_ID)).thenReturn(personDTO);
+        MvcResult export = mockMvc.perform(MockMvcRequestBuilders.get(PERSON_API_URL_PATH + "/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult find = mockMvc.perform(MockMvcRequestBuilders.get(PERSON_API_URL_PATH + "/" + VALID_ID))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isOk())
+                .andReturn();
+
+        // Then
+        assertThat(export.getRequest().getAsyncContext().getTimeout(), is(TimeUnit.MINUTES.toMillis(45)));
+        assertThat(find.getRequest().getAsyncContext(), is(nullValue()));
+    }
+
+    @Test
+    void whenExportIsCalledAcceptingGzipThenNdjsonIsStreamedCompressed() throws Exception {
+        // Given
+        PersonDTO personDTO = PersonUtils.createPersonDTO();
+
+        // When
+        doAnswer(invocation -> {
+            Consumer<PersonDTO> consumer = invocation.getArgument(0);
+            consumer.accept(personDTO);
+            consumer.accept(personDTO);
+            return null;
+        }).when(personService).streamAll(any());
+
+        // Then
+        MvcResult result = performAsync(MockMvcRequestBuilders.get(PERSON_API_URL_PATH + "/export")
+                .header(HttpHeaders.ACCEPT_ENCODING, "deflate, gzip;q=0.8"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(PersonController.APPLICATION_NDJSON_VALUE))
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn();
+
+        String line = JsonConversionUtils.asJsonString(personDTO);
+        try (InputStream body = new GZIPInputStream(new ByteArrayInputStream(result.getResponse().getContentAsByteArray()))) {
+            assertThat(new String(body.readAllBytes(), StandardCharsets.UTF_8), is(line + "\n" + line + "\n"));
+        }
+    }
+
+    @Test
+    void whenExportIsCalledWithAnUnknownFormatThenBadRequestStatusIsReturned() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get(PERSON_API_URL_PATH + "/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+
+        verify(personService, never()).streamAll(any());
+    }
+
+    @Test
+    void whenImportIsCalledWithGzippedCsvThenRejectedLinesAndProgressAreStreamedBack() throws Exception {
+        // Given
+        String csv = "firstName,lastName,cpf,phones\nMaria,Silva,35109652058,HOME:1199999-9999\n";
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(csv.getBytes(StandardCharsets.UTF_8));
+        }
+        ImportLineResultDTO failedLine = new ImportLineResultDTO(2, BatchItemStatus.DUPLICATE, "CPF is already registered");
+        ImportProgressDTO progress = new ImportProgressDTO(1, 0, 1);
+
+        // When
+        when(personImportService.importCsv(any(), any())).thenAnswer(invocation -> {
+            Reader reader = invocation.getArgument(0);
+            PersonImportService.Listener listener = invocation.getArgument(1);
+            char[] content = new char[csv.length()];
+            assertThat(reader.read(content), is(csv.length()));
+            assertThat(new String(content), is(csv));
+            listener.onLineFailed(failedLine);
+            listener.onProgress(progress);
+            return progress;
+        });
+
+        // Then
+        performAsync(MockMvcRequestBuilders.post(PERSON_API_URL_PATH + "/import")
+                .contentType(PersonController.TEXT_CSV_VALUE)
+                .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                .content(compressed.toByteArray()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(PersonController.APPLICATION_NDJSON_VALUE))
+                .andExpect(content().string(JsonConversionUtils.asJsonString(failedLine) + "\n"
+                        + JsonConversionUtils.asJsonString(progress) + "\n"));
+        verify(personImportService, never()).importNdjson(any(), any());
+    }
+
+    @Test
+    void whenImportIsCalledWithAnUnsupportedContentTypeThenUnsupportedMediaTypeStatusIsReturned() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.post(PERSON_API_URL_PATH + "/import")
+                .contentType(MediaType.APPLICATION_XML)
+                .content("<persons/>"))
+                .andExpect(status().isUnsupportedMediaType());
+
+        verifyNoInteractions(personImportService);
+    }
+
+    @Test
+    void whenGETChangesIsCalledThenChangesAreSentAsServerSentEventsFromTheLastEventId() throws Exception {
+        // Given
+        PersonChangeDTO change = PersonChangeDTO.builder()
+                .seq(7L)
+                .type(PersonChangeType.UPDATED)
+                .personId(VALID_ID)
+                .version(VERSION)
+                .occurredAt(Instant.parse("2021-05-01T10:00:00Z"))
+                .build();
+        ArgumentCaptor<PersonChangeFeed.Subscriber> subscriber = ArgumentCaptor.forClass(PersonChangeFeed.Subscriber.class);
+        Runnable unsubscribe = mock(Runnable.class);
+
+        // When
+        when(personChangeFeed.subscribe(eq(6L), subscriber.capture())).thenReturn(unsubscribe);
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get(PERSON_API_URL_PATH + "/changes")
+                .param("since", "2")
+                .header("Last-Event-ID", "6"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        subscriber.getValue().onChanges(Collections.singletonList(change));
+        subscriber.getValue().onHeartbeat();
+
+        // Then
+        String body = result.getResponse().getContentAsString();
+        assertThat(result.getResponse().getContentType(), containsString(MediaType.TEXT_EVENT_STREAM_VALUE));
+        assertThat(body, containsString("id:7\nevent:person-change\ndata:"));
+        assertThat(body, containsString("\"type\":\"UPDATED\""));
+        assertThat(body, containsString(":heartbeat\n"));
+    }
+
+    @Test
+    void whenGETByPhoneIsCalledThenEveryOwnerIsReturned() throws Exception {
+        // Given
+        PersonDTO personDTO = PersonUtils.createPersonDTO();
+        personDTO.setId(VALID_ID);
+
+        // When
+        when(personService.findIdsByPhone("1199999-9999")).thenReturn(Collections.singletonList(VALID_ID));
+        when(personService.findById(VALID_ID)).thenReturn(personDTO);
+
+        // Then
+        mockMvc.perform(MockMvcRequestBuilders.get(PERSON_API_URL_PATH + "/by-phone/1199999-9999"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id", is((int) VALID_ID)));
     }
 
     @Test
@@ -174,7 +674,7 @@ public class PersonControllerTest {
         PersonDTO personToUpdateDTO = PersonUtils.createPersonDTO();
 
         // When
-        doNothing().when(personService).updateById(VALID_ID, personToUpdateDTO);
+        doNothing().when(personService).updateById(VALID_ID, personToUpdateDTO, null);
 
         // Then
         mockMvc.perform(MockMvcRequestBuilders.put(PERSON_API_URL_PATH + "/" + VALID_ID)
@@ -183,6 +683,170 @@ public class PersonControllerTest {
                 .andExpect(status().isNoContent());
     }
 
+    @Test
+    void whenPUTIsCalledWithWriteBehindEnabledThenTheUpdateIsQueuedAndStatusAcceptedIsReturned() throws Exception {
+        // Given
+        PersonDTO personToUpdateDTO = PersonUtils.createPersonDTO();
+
+        // When
+        when(personUpdateQueue.isEnabled()).thenReturn(true);
+
+        // Then
+        mockMvc.perform(MockMvcRequestBuilders.put(PERSON_API_URL_PATH + "/" + VALID_ID)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(JsonConversionUtils.asJsonString(personToUpdateDTO)))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string(HttpHeaders.LOCATION, SERVER_PATH + PERSON_API_URL_PATH + "/" + VALID_ID + "/queued-update"));
+        verify(personUpdateQueue).enqueue(VALID_ID, personToUpdateDTO);
+        verify(personService, never()).updateById(any(), any(), any());
+    }
+
+    @Test
+    void whenPUTIsCalledWithWriteBehindEnabledForAnUnknownIdThenStatusNotFoundIsReturned() throws Exception {
+        // Given
+        PersonDTO personToUpdateDTO = PersonUtils.createPersonDTO();
+
+        // When
+        when(personUpdateQueue.isEnabled()).thenReturn(true);
+        doThrow(PersonNotFoundException.class).when(personUpdateQueue).enqueue(INVALID_ID, personToUpdateDTO);
+
+        // Then
+        mockMvc.perform(MockMvcRequestBuilders.put(PERSON_API_URL_PATH + "/" + INVALID_ID)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(JsonConversionUtils.asJsonString(personToUpdateDTO)))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void whenAQueuedUpdateWasDroppedThenItsStatusCarriesTheReason() throws Exception {
+        // When
+        when(personUpdateQueue.status(VALID_ID)).thenReturn(QueuedUpdateDTO.builder()
+                .id(VALID_ID)
+                .status(QueuedUpdateStatus.DROPPED)
+                .message("CPF is already registered")
+                .build());
+
+        // Then
+        mockMvc.perform(MockMvcRequestBuilders.get(PERSON_API_URL_PATH + "/" + VALID_ID + "/queued-update"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status", is("DROPPED")))
+                .andExpect(jsonPath("$.message", is("CPF is already registered")));
+    }
+
+    @Test
+    void whenPUTIsCalledAndTheUpdateQueueIsFullThenStatusTooManyRequestsIsReturned() throws Exception {
+        // Given
+        PersonDTO personToUpdateDTO = PersonUtils.createPersonDTO();
+
+        // When
+        when(personUpdateQueue.isEnabled()).thenReturn(true);
+        doThrow(UpdateQueueFullException.class).when(personUpdateQueue).enqueue(VALID_ID, personToUpdateDTO);
+
+        // Then
+        mockMvc.perform(MockMvcRequestBuilders.put(PERSON_API_URL_PATH + "/" + VALID_ID)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(JsonConversionUtils.asJsonString(personToUpdateDTO)))
+                .andExpect(status().isTooManyRequests());
+    }
+
+    @Test
+    void whenPUTIsCalledWithIfMatchAndWriteBehindEnabledThenTheUpdateIsAppliedBeforeResponding() throws Exception {
+        // Given
+        PersonDTO personToUpdateDTO = PersonUtils.createPersonDTO();
+
+        // When
+        doNothing().when(personService).updateById(VALID_ID, personToUpdateDTO, VERSION);
+
+        // Then
+        mockMvc.perform(MockMvcRequestBuilders.put(PERSON_API_URL_PATH + "/" + VALID_ID)
+                .header(HttpHeaders.IF_MATCH, "\"" + VERSION + "\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(JsonConversionUtils.asJsonString(personToUpdateDTO)))
+                .andExpect(status().isNoContent());
+        verify(personUpdateQueue, never()).enqueue(any(), any());
+    }
+
+    @Test
+    void whenPUTIsCalledWithIfMatchThenExpectedVersionIsPassedToTheService() throws Exception {
+        // Given
+        PersonDTO personToUpdateDTO = PersonUtils.createPersonDTO();
+
+        // When
+        doNothing().when(personService).updateById(VALID_ID, personToUpdateDTO, VERSION);
+
+        // Then
+        mockMvc.perform(MockMvcRequestBuilders.put(PERSON_API_URL_PATH + "/" + VALID_ID)
+                .header(HttpHeaders.IF_MATCH, "\"" + VERSION + "\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(JsonConversionUtils.asJsonString(personToUpdateDTO)))
+                .andExpect(status().isNoContent());
+    }
+
+    @Test
+    void whenPUTIsCalledWithStaleIfMatchThenStatusPreconditionFailedIsReturned() throws Exception {
+        // Given
+        PersonDTO personToUpdateDTO = PersonUtils.createPersonDTO();
+
+        // When
+        doThrow(PersonVersionMismatchException.class).when(personService).updateById(VALID_ID, personToUpdateDTO, VERSION);
+
+        // Then
+        mockMvc.perform(MockMvcRequestBuilders.put(PERSON_API_URL_PATH + "/" + VALID_ID)
+                .header(HttpHeaders.IF_MATCH, "\"" + VERSION + "\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(JsonConversionUtils.asJsonString(personToUpdateDTO)))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void whenDELETEIsCalledWithIdsThenDeletedCountIsReturned() throws Exception {
+        // Given
+        MessageResponseDTO response = MessageResponseDTO.builder().message("Deleted 2 of 3 requested persons").build();
+
+        // When
+        when(personService.deleteAllById(Arrays.asList(1L, 2L, 3L))).thenReturn(response);
+
+        // Then
+        mockMvc.perform(MockMvcRequestBuilders.delete(PERSON_API_URL_PATH).param("ids", "1,2,3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message", is("Deleted 2 of 3 requested persons")));
+    }
+
+    @Test
+    void whenDELETEIsCalledWithTooManyIdsThenStatusBadRequestIsReturned() throws Exception {
+        // When
+        doThrow(BatchSizeExceededException.class).when(personService).deleteAllById(any());
+
+        // Then
+        mockMvc.perform(MockMvcRequestBuilders.delete(PERSON_API_URL_PATH).param("ids", "1,2"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void whenPATCHIsCalledWithMergePatchThenStatusNoContentIsReturned() throws Exception {
+        // Given
+        String patch = "{\"firstName\": \"Changed\"}";
+
+        // Then
+        mockMvc.perform(MockMvcRequestBuilders.patch(PERSON_API_URL_PATH + "/" + VALID_ID)
+                .contentType(PersonController.APPLICATION_MERGE_PATCH_JSON_VALUE)
+                .content(patch))
+                .andExpect(status().isNoContent());
+        verify(personService, times(1)).patchById(VALID_ID, new ObjectMapper().readTree(patch), null);
+    }
+
+    @Test
+    void whenPATCHIsCalledWithInvalidPatchThenStatusBadRequestIsReturned() throws Exception {
+        // When
+        doThrow(InvalidPersonPatchException.class).when(personService).patchById(eq(VALID_ID), any(), isNull());
+
+        // Then
+        mockMvc.perform(MockMvcRequestBuilders.patch(PERSON_API_URL_PATH + "/" + VALID_ID)
+                .contentType(PersonController.APPLICATION_MERGE_PATCH_JSON_VALUE)
+                .content("{\"firstName\": null}"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void whenPUTIsCalledWithValidIDAndInvalidDTOThenStatusBadRequestIsReturned() throws Exception {
         // Given
@@ -202,7 +866,7 @@ public class PersonControllerTest {
         PersonDTO personToUpdateDTO = PersonUtils.createPersonDTO();
 
         // When
-        doThrow(PersonNotFoundException.class).when(personService).updateById(INVALID_ID, personToUpdateDTO);
+        doThrow(PersonNotFoundException.class).when(personService).updateById(INVALID_ID, personToUpdateDTO, null);
 
         // Then
         mockMvc.perform(MockMvcRequestBuilders.put(PERSON_API_URL_PATH + "/" + INVALID_ID)
@@ -210,4 +874,11 @@ public class PersonControllerTest {
                 .content(JsonConversionUtils.asJsonString(personToUpdateDTO)))
                 .andExpect(status().isNotFound());
     }
+
+    private ResultActions performAsync(RequestBuilder requestBuilder) throws Exception {
+        MvcResult result = mockMvc.perform(requestBuilder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(result));
+    }
 }
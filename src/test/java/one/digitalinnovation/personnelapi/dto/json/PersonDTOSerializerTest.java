@@ -0,0 +1,61 @@
+package one.digitalinnovation.personnelapi.dto.json;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import one.digitalinnovation.personnelapi.dto.PersonDTO;
+import one.digitalinnovation.personnelapi.dto.PhoneDTO;
+import one.digitalinnovation.personnelapi.enums.PhoneType;
+import one.digitalinnovation.personnelapi.utils.PersonUtils;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class PersonDTOSerializerTest {
+
+    private final ObjectMapper reflectiveMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private final ObjectMapper handWrittenMapper = Jackson2ObjectMapperBuilder.json()
+            .modulesToInstall(new PersonJsonModule())
+            .build();
+
+    @Test
+    void whenAPersonIsSerializedThenTheJsonMatchesTheReflectiveSerializer() throws Exception {
+        // Given
+        PersonDTO personDTO = PersonUtils.createPersonDTO();
+        personDTO.setId(7L);
+        personDTO.setVersion(3L);
+        personDTO.setLastName("d'Ávila \"Jr\"\n");
+        personDTO.setCreatedAt(Instant.parse("2021-05-01T10:00:00Z"));
+        personDTO.setUpdatedAt(Instant.parse("2021-05-02T10:00:00.123456Z"));
+        personDTO.setPhones(Arrays.asList(
+                PhoneDTO.builder().id(1L).type(PhoneType.HOME).number("1199999-9999").build(),
+                PhoneDTO.builder().type(PhoneType.MOBILE).number("1188888-8888").build()));
+
+        // When
+        String json = handWrittenMapper.writeValueAsString(Collections.singletonList(personDTO));
+
+        // Then
+        assertThat(handWrittenMapper.getSerializerProviderInstance().findValueSerializer(PersonDTO.class),
+                is(instanceOf(PersonDTOSerializer.class)));
+        assertThat(json, is(equalTo(reflectiveMapper.writeValueAsString(Collections.singletonList(personDTO)))));
+        assertThat(json, not(containsString("version")));
+    }
+
+    @Test
+    void whenAPersonHasNullFieldsThenTheyAreWrittenAsNullsLikeTheReflectiveSerializer() throws Exception {
+        // Given
+        PersonDTO personDTO = new PersonDTO();
+
+        // When
+        String json = handWrittenMapper.writeValueAsString(personDTO);
+
+        // Then
+        assertThat(json, is(equalTo(reflectiveMapper.writeValueAsString(personDTO))));
+        assertThat(handWrittenMapper.readValue(json, PersonDTO.class), is(equalTo(personDTO)));
+    }
+}
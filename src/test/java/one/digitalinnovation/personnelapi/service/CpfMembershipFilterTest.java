@@ -0,0 +1,58 @@
+package one.digitalinnovation.personnelapi.service;
+
+import one.digitalinnovation.personnelapi.repository.PersonRepository;
+import one.digitalinnovation.personnelapi.repository.sharding.PersonShards;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class CpfMembershipFilterTest {
+
+    private static final long REGISTERED_CPF_KEY = 35109652058L;
+    private static final long UNKNOWN_CPF_KEY = 52998224725L;
+
+    @Mock
+    private PersonRepository personRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void whenASingleInstanceOwnsAllWritesThenUnknownCpfsAreProvenAbsent() {
+        // Given
+        CpfMembershipFilter filter = loadedFilter(true);
+
+        // Then
+        assertThat(filter.provesAbsent(UNKNOWN_CPF_KEY), is(true));
+        assertThat(filter.provesAbsent(REGISTERED_CPF_KEY), is(false));
+    }
+
+    @Test
+    void whenSeveralInstancesWriteThenNoCpfIsProvenAbsent() {
+        // Given
+        CpfMembershipFilter filter = loadedFilter(false);
+
+        // Then
+        assertThat(filter.mightContain(UNKNOWN_CPF_KEY), is(false));
+        assertThat(filter.provesAbsent(UNKNOWN_CPF_KEY), is(false));
+        assertThat(filter.provesAbsent(REGISTERED_CPF_KEY), is(false));
+    }
+
+    private CpfMembershipFilter loadedFilter(boolean singleInstance) {
+        CpfMembershipFilter filter = new CpfMembershipFilter(personRepository, PersonShards.single(), transactionManager,
+                true, 1000, 0.01, Duration.ZERO, singleInstance);
+        when(personRepository.streamAllCpfKeys()).thenReturn(Stream.of(REGISTERED_CPF_KEY));
+        filter.load();
+        return filter;
+    }
+}
@@ -0,0 +1,169 @@
+package one.digitalinnovation.personnelapi.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import one.digitalinnovation.personnelapi.dto.PersonChangeDTO;
+import one.digitalinnovation.personnelapi.dto.PersonDTO;
+import one.digitalinnovation.personnelapi.entity.Person;
+import one.digitalinnovation.personnelapi.enums.PersonChangeType;
+import one.digitalinnovation.personnelapi.exception.PersonAlreadyRegisteredException;
+import one.digitalinnovation.personnelapi.repository.PersonRepository;
+import one.digitalinnovation.personnelapi.utils.PersonUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+public class PersonChangeFeedTest {
+
+    @Autowired
+    private PersonService personService;
+
+    @Autowired
+    private PersonRepository personRepository;
+
+    @Autowired
+    private PersonChangeFeed personChangeFeed;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @AfterEach
+    void tearDown() {
+        personRepository.deleteAll();
+    }
+
+    @Test
+    void whenPersonsAreWrittenThenSubscribersReceiveOnlyCommittedChangesInOrder() throws Exception {
+        // Given
+        BlockingQueue<PersonChangeDTO> received = new LinkedBlockingQueue<>();
+        Runnable unsubscribe = subscribe(received);
+        PersonDTO personDTO = PersonUtils.createPersonDTO();
+        personDTO.setPhones(Collections.emptyList());
+
+        // When
+        Person person = personService.create(personDTO);
+        assertThrows(PersonAlreadyRegisteredException.class, () -> {
+            PersonDTO duplicate = PersonUtils.createPersonDTO();
+            duplicate.setPhones(Collections.emptyList());
+            personService.create(duplicate);
+        });
+        personService.patchById(person.getId(), objectMapper.readTree("{\"lastName\": \"Albuquerque\"}"), null);
+        personService.deleteById(person.getId());
+
+        // Then
+        List<PersonChangeDTO> changes = new ArrayList<>();
+        while (changes.size() < 3) {
+            PersonChangeDTO change = received.poll(5, TimeUnit.SECONDS);
+            assertThat(change, is(notNullValue()));
+            changes.add(change);
+        }
+        unsubscribe.run();
+        assertThat(changes.stream().map(PersonChangeDTO::getType).collect(Collectors.toList()),
+                contains(PersonChangeType.CREATED, PersonChangeType.UPDATED, PersonChangeType.DELETED));
+        assertThat(changes.stream().map(PersonChangeDTO::getPersonId).collect(Collectors.toSet()), contains(person.getId()));
+        assertThat(changes.get(1).getSeq(), is(greaterThan(changes.get(0).getSeq())));
+        assertThat(changes.get(2).getSeq(), is(greaterThan(changes.get(1).getSeq())));
+        assertThat(received.poll(200, TimeUnit.MILLISECONDS), is(nullValue()));
+    }
+
+    @Test
+    void whenATransactionIsSlowToCommitThenLaterChangesAreNumberedAfterItsCommit() throws Exception {
+        // Given
+        BlockingQueue<PersonChangeDTO> received = new LinkedBlockingQueue<>();
+        Runnable unsubscribe = subscribe(received);
+        PersonDTO slowDTO = PersonUtils.createPersonDTO();
+        slowDTO.setCpf(PersonUtils.createCpf(701));
+        slowDTO.setPhones(Collections.emptyList());
+        PersonDTO fastDTO = PersonUtils.createPersonDTO();
+        fastDTO.setCpf(PersonUtils.createCpf(702));
+        fastDTO.setPhones(Collections.emptyList());
+        CountDownLatch numbered = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+
+        // When
+        CompletableFuture<Person> slow = CompletableFuture.supplyAsync(() -> new TransactionTemplate(transactionManager).execute(status -> {
+            try {
+                Person person = personService.create(slowDTO);
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void beforeCommit(boolean readOnly) {
+                        numbered.countDown();
+                        awaitQuietly(commit);
+                    }
+                });
+                return person;
+            } catch (PersonAlreadyRegisteredException e) {
+                throw new IllegalStateException(e);
+            }
+        }));
+        assertThat(numbered.await(5, TimeUnit.SECONDS), is(true));
+        CompletableFuture<Person> fast = CompletableFuture.supplyAsync(() -> {
+            try {
+                return personService.create(fastDTO);
+            } catch (PersonAlreadyRegisteredException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(200);
+        boolean fastCommittedFirst = fast.isDone();
+        commit.countDown();
+        Person slowPerson = slow.get(5, TimeUnit.SECONDS);
+        Person fastPerson = fast.get(5, TimeUnit.SECONDS);
+
+        // Then
+        PersonChangeDTO first = received.poll(5, TimeUnit.SECONDS);
+        PersonChangeDTO second = received.poll(5, TimeUnit.SECONDS);
+        unsubscribe.run();
+        assertThat(fastCommittedFirst, is(false));
+        assertThat(first.getPersonId(), is(equalTo(slowPerson.getId())));
+        assertThat(second.getPersonId(), is(equalTo(fastPerson.getId())));
+        assertThat(second.getSeq(), is(equalTo(first.getSeq() + 1)));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Runnable subscribe(BlockingQueue<PersonChangeDTO> received) {
+        return personChangeFeed.subscribe(null, new PersonChangeFeed.Subscriber() {
+            @Override
+            public void onChanges(List<PersonChangeDTO> changes) {
+                received.addAll(changes);
+            }
+
+            @Override
+            public void onHeartbeat() {
+            }
+
+            @Override
+            public void onError(Exception e) {
+            }
+        });
+    }
+}
@@ -0,0 +1,96 @@
+package one.digitalinnovation.personnelapi.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import one.digitalinnovation.personnelapi.dto.ImportLineResultDTO;
+import one.digitalinnovation.personnelapi.dto.ImportProgressDTO;
+import one.digitalinnovation.personnelapi.dto.PersonDTO;
+import one.digitalinnovation.personnelapi.dto.PhoneDTO;
+import one.digitalinnovation.personnelapi.enums.PhoneType;
+import one.digitalinnovation.personnelapi.repository.PersonRepository;
+import one.digitalinnovation.personnelapi.utils.PersonUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+@SpringBootTest
+public class PersonImportRoundTripTest {
+
+    @Autowired
+    private PersonService personService;
+
+    @Autowired
+    private PersonImportService personImportService;
+
+    @Autowired
+    private PersonRepository personRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @AfterEach
+    void tearDown() {
+        personRepository.deleteAll();
+    }
+
+    @Test
+    void whenAnNdjsonExportIsImportedBackThenEveryPersonIsRecreatedWithItsPhones() throws Exception {
+        // Given
+        List<PersonDTO> persons = IntStream.rangeClosed(1, 10)
+                .mapToObj(i -> PersonDTO.builder()
+                        .firstName("First" + i)
+                        .lastName("Last" + i)
+                        .cpf(PersonUtils.createCpf(i))
+                        .birthDate("01-01-1970")
+                        .phones(Arrays.asList(
+                                PhoneDTO.builder().type(PhoneType.HOME).number("1199999-00" + (10 + i)).build(),
+                                PhoneDTO.builder().type(PhoneType.MOBILE).number("1188888-00" + (10 + i)).build()))
+                        .build())
+                .collect(Collectors.toList());
+        personService.createAll(persons);
+        StringBuilder ndjson = new StringBuilder();
+        personService.streamAll(personDTO -> {
+            try {
+                ndjson.append(objectMapper.writeValueAsString(personDTO)).append('\n');
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        List<PersonDTO> exported = personService.findAll(null, 10).getContent();
+        personRepository.deleteAll();
+        List<ImportLineResultDTO> failedLines = new ArrayList<>();
+
+        // When
+        ImportProgressDTO result = personImportService.importNdjson(new StringReader(ndjson.toString()), new PersonImportService.Listener() {
+            @Override
+            public void onLineFailed(ImportLineResultDTO failedLine) {
+                failedLines.add(failedLine);
+            }
+
+            @Override
+            public void onProgress(ImportProgressDTO progress) {
+            }
+        });
+
+        // Then
+        assertThat(failedLines, is(empty()));
+        assertThat(result, is(equalTo(new ImportProgressDTO(10, 10, 0))));
+        for (PersonDTO person : exported) {
+            PersonDTO imported = personService.findByCpf(person.getCpf());
+            assertThat(imported.getBirthDate(), is(equalTo(person.getBirthDate())));
+            assertThat(imported.getPhones().stream().map(PhoneDTO::getNumber).collect(Collectors.toList()),
+                    containsInAnyOrder(person.getPhones().stream().map(PhoneDTO::getNumber).toArray()));
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package one.digitalinnovation.personnelapi.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import one.digitalinnovation.personnelapi.dto.BatchCreateResultDTO;
+import one.digitalinnovation.personnelapi.dto.BatchItemResultDTO;
+import one.digitalinnovation.personnelapi.dto.ImportLineResultDTO;
+import one.digitalinnovation.personnelapi.dto.ImportProgressDTO;
+import one.digitalinnovation.personnelapi.dto.PersonDTO;
+import one.digitalinnovation.personnelapi.enums.BatchItemStatus;
+import one.digitalinnovation.personnelapi.enums.PhoneType;
+import one.digitalinnovation.personnelapi.utils.CsvUtils;
+import one.digitalinnovation.personnelapi.utils.JsonConversionUtils;
+import one.digitalinnovation.personnelapi.utils.PersonUtils;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PersonImportServiceTest {
+
+    private static final int CHUNK_SIZE = 2;
+
+    @Mock
+    private PersonService personService;
+
+    private PersonImportService personImportService;
+
+    private final List<ImportLineResultDTO> failedLines = new ArrayList<>();
+
+    private final List<ImportProgressDTO> progress = new ArrayList<>();
+
+    private final List<List<PersonDTO>> chunks = new ArrayList<>();
+
+    private final PersonImportService.Listener listener = new PersonImportService.Listener() {
+        @Override
+        public void onLineFailed(ImportLineResultDTO result) {
+            failedLines.add(result);
+        }
+
+        @Override
+        public void onProgress(ImportProgressDTO progressUpdate) {
+            progress.add(progressUpdate);
+        }
+    };
+
+    @BeforeEach
+    void setUp() {
+        personImportService = new PersonImportService(personService, new ObjectMapper(), CHUNK_SIZE);
+    }
+
+    @Test
+    void whenNdjsonIsImportedThenRecordsAreCreatedInChunksAndFailuresReportTheirLine() throws Exception {
+        // Given
+        String line = JsonConversionUtils.asJsonString(PersonUtils.createPersonDTO());
+        String ndjson = line + "\n\n{not json\n" + line + "\n" + line + "\n";
+
+        // When
+        when(personService.createAll(anyList())).thenAnswer(invocation -> {
+            List<PersonDTO> chunk = invocation.getArgument(0);
+            chunks.add(new ArrayList<>(chunk));
+            return created(chunk.size(), chunk.size() == CHUNK_SIZE ? 1 : -1);
+        });
+        ImportProgressDTO result = personImportService.importNdjson(new StringReader(ndjson), listener);
+
+        // Then
+        assertThat(chunks.stream().map(List::size).collect(Collectors.toList()), contains(2, 1));
+        assertThat(failedLines.stream().map(ImportLineResultDTO::getLine).collect(Collectors.toList()), contains(3L, 4L));
+        assertThat(failedLines.get(0).getStatus(), is(BatchItemStatus.INVALID));
+        assertThat(failedLines.get(1).getStatus(), is(BatchItemStatus.DUPLICATE));
+        assertThat(progress, hasSize(2));
+        assertThat(result, is(equalTo(new ImportProgressDTO(4, 2, 2))));
+    }
+
+    @Test
+    void whenAnNdjsonLineIsNullOrTooLongThenOnlyThatLineIsRejected() throws Exception {
+        // Given
+        StringBuilder ndjson = new StringBuilder("null\n");
+        for (int i = 0; i <= PersonImportService.MAX_LINE_LENGTH; i++) {
+            ndjson.append('x');
+        }
+        ndjson.append('\n').append(JsonConversionUtils.asJsonString(PersonUtils.createPersonDTO())).append('\n');
+
+        // When
+        when(personService.createAll(anyList())).thenAnswer(invocation -> {
+            chunks.add(new ArrayList<>(invocation.getArgument(0)));
+            return created(1, -1);
+        });
+        ImportProgressDTO result = personImportService.importNdjson(new StringReader(ndjson.toString()), listener);
+
+        // Then
+        assertThat(chunks, hasSize(1));
+        assertThat(failedLines.stream().map(ImportLineResultDTO::getLine).collect(Collectors.toList()), contains(1L, 2L));
+        assertThat(failedLines.get(1).getMessage(), containsString("longer than"));
+        assertThat(result, is(equalTo(new ImportProgressDTO(3, 1, 2))));
+    }
+
+    @Test
+    void whenTheCpfConstraintRejectsAChunkThenItsPersonsAreCreatedOneByOne() throws Exception {
+        // Given
+        PersonDTO duplicate = PersonUtils.createPersonDTO();
+        duplicate.setCpf(PersonUtils.createCpf(1));
+        String ndjson = JsonConversionUtils.asJsonString(PersonUtils.createPersonDTO()) + "\n"
+                + JsonConversionUtils.asJsonString(duplicate) + "\n";
+        DataIntegrityViolationException violation = new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("Unique index or primary key violation", null,
+                        "UK_PERSON_CPF_INDEX_8 ON PUBLIC.PERSON(CPF_KEY) VALUES 1"));
+
+        // When
+        when(personService.createAll(anyList())).thenAnswer(invocation -> {
+            List<PersonDTO> chunk = invocation.getArgument(0);
+            if (chunk.size() > 1 || chunk.get(0).getCpf().equals(duplicate.getCpf())) {
+                throw violation;
+            }
+            return created(1, -1);
+        });
+        ImportProgressDTO result = personImportService.importNdjson(new StringReader(ndjson), listener);
+
+        // Then
+        verify(personService, times(3)).createAll(anyList());
+        assertThat(failedLines, hasSize(1));
+        assertThat(failedLines.get(0).getLine(), is(2L));
+        assertThat(failedLines.get(0).getStatus(), is(BatchItemStatus.DUPLICATE));
+        assertThat(result, is(equalTo(new ImportProgressDTO(2, 1, 1))));
+    }
+
+    @Test
+    void whenCsvIsImportedThenQuotedFieldsAndPhonesAreParsed() throws Exception {
+        // Given
+        String csv = "cpf,firstName,lastName,phones\r\n"
+                + "35109652058,Maria,\"da Silva,\r\n\"\"Jr\"\"\",HOME:1199999-9999;MOBILE:1188888-8888\r\n"
+                + "35109652058,João,Souza,FAX:1199999-9999\r\n";
+
+        // When
+        when(personService.createAll(anyList())).thenAnswer(invocation -> {
+            chunks.add(new ArrayList<>(invocation.getArgument(0)));
+            return created(1, -1);
+        });
+        ImportProgressDTO result = personImportService.importCsv(new StringReader(csv), listener);
+
+        // Then
+        assertThat(chunks, hasSize(1));
+        PersonDTO imported = chunks.get(0).get(0);
+        assertThat(imported.getLastName(), is(equalTo("da Silva,\n\"Jr\"")));
+        assertThat(imported.getPhones().stream().map(phone -> phone.getType()).collect(Collectors.toList()),
+                contains(PhoneType.HOME, PhoneType.MOBILE));
+        assertThat(failedLines, hasSize(1));
+        assertThat(failedLines.get(0).getLine(), is(4L));
+        assertThat(result, is(equalTo(new ImportProgressDTO(2, 1, 1))));
+    }
+
+    @Test
+    void whenACsvQuoteIsNeverClosedThenItsLineIsRejectedOnceTheRecordIsTooLong() throws Exception {
+        // Given
+        StringBuilder csv = new StringBuilder("cpf,firstName,lastName,phones\r\n35109652058,\"Maria");
+        for (int i = 0; i < CsvUtils.MAX_RECORD_LENGTH; i++) {
+            csv.append(i % 80 == 0 ? '\n' : 'x');
+        }
+
+        // When
+        ImportProgressDTO result = personImportService.importCsv(new StringReader(csv.toString()), listener);
+
+        // Then
+        verifyNoInteractions(personService);
+        assertThat(failedLines, hasSize(1));
+        assertThat(failedLines.get(0).getLine(), is(2L));
+        assertThat(failedLines.get(0).getMessage(), containsString("longer than"));
+        assertThat(result, is(equalTo(new ImportProgressDTO(1, 0, 1))));
+    }
+
+    @Test
+    void whenTheCsvHeaderLacksRequiredColumnsThenNothingIsImported() throws Exception {
+        // When
+        ImportProgressDTO result = personImportService.importCsv(new StringReader("cpf,firstName\n35109652058,Maria\n"), listener);
+
+        // Then
+        verifyNoInteractions(personService);
+        assertThat(failedLines.get(0).getMessage(), containsString("lastName, phones"));
+        assertThat(progress, contains(result));
+    }
+
+    private BatchCreateResultDTO created(int size, int duplicateIndex) {
+        List<BatchItemResultDTO> items = IntStream.range(0, size)
+                .mapToObj(index -> BatchItemResultDTO.builder()
+                        .index(index)
+                        .status(index == duplicateIndex ? BatchItemStatus.DUPLICATE : BatchItemStatus.CREATED)
+                        .build())
+                .collect(Collectors.toList());
+        int created = duplicateIndex < 0 ? size : size - 1;
+        return new BatchCreateResultDTO(created, size - created, items);
+    }
+}
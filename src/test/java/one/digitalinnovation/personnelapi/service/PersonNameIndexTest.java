@@ -0,0 +1,139 @@
+package one.digitalinnovation.personnelapi.service;
+
+import one.digitalinnovation.personnelapi.dto.PersonNameMatchDTO;
+import one.digitalinnovation.personnelapi.repository.PersonRepository;
+import one.digitalinnovation.personnelapi.repository.sharding.PersonShards;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PersonNameIndexTest {
+
+    @Mock
+    private PersonRepository personRepository;
+
+    private PersonNameIndex personNameIndex;
+
+    @BeforeEach
+    void setUp() {
+        personNameIndex = new PersonNameIndex(personRepository, PersonShards.single());
+        personNameIndex.put(1L, "Maria", "da Silva");
+        personNameIndex.put(2L, "João", "Silveira");
+        personNameIndex.put(3L, "Mário", "Souza");
+    }
+
+    @Test
+    void whenSearchingForAWordThenFullMatchesAreRankedBeforePartialOnes() {
+        // When
+        List<PersonNameMatchDTO> matches = personNameIndex.search("silva", 10);
+
+        // Then
+        assertThat(ids(matches), contains(1L, 2L));
+        assertThat(matches.get(0).getScore(), is(equalTo(1.0)));
+        assertThat(matches.get(1).getScore(), is(both(lessThan(1.0)).and(greaterThanOrEqualTo(PersonNameIndex.MIN_SCORE))));
+    }
+
+    @Test
+    void whenSearchingWithATypoThenTheNameIsStillFound() {
+        // When
+        List<PersonNameMatchDTO> matches = personNameIndex.search("sauza", 10);
+
+        // Then
+        assertThat(ids(matches), contains(3L));
+    }
+
+    @Test
+    void whenSearchingWithoutAccentsThenAccentedNamesAreFound() {
+        // When
+        List<PersonNameMatchDTO> matches = personNameIndex.search("joao", 10);
+
+        // Then
+        assertThat(ids(matches), contains(2L));
+        assertThat(matches.get(0).getFirstName(), is(equalTo("João")));
+    }
+
+    @Test
+    void whenMoreNamesMatchThanTheLimitThenOnlyTheBestAreReturned() {
+        // When
+        List<PersonNameMatchDTO> matches = personNameIndex.search("maria silva", 1);
+
+        // Then
+        assertThat(ids(matches), contains(1L));
+    }
+
+    @Test
+    void whenANameIsUpdatedOrRemovedThenSearchesReflectIt() {
+        // When
+        personNameIndex.put(1L, "Maria", "Pereira");
+        personNameIndex.remove(Collections.singletonList(2L));
+
+        // Then
+        assertThat(personNameIndex.search("silva", 10), is(empty()));
+        assertThat(ids(personNameIndex.search("pereira", 10)), contains(1L));
+        assertThat(personNameIndex.size(), is(equalTo(2)));
+    }
+
+    @Test
+    void whenPersonsShareANameThenEachIsReturnedInIdOrderWithItsOwnSpelling() {
+        // Given
+        personNameIndex.put(5L, "MARIA", "da  silva");
+        personNameIndex.put(4L, "María", "Da Silva");
+
+        // When
+        personNameIndex.remove(Collections.singletonList(5L));
+        List<PersonNameMatchDTO> matches = personNameIndex.search("maria da silva", 2);
+
+        // Then
+        assertThat(ids(matches), contains(1L, 4L));
+        assertThat(matches.get(1).getFirstName(), is(equalTo("María")));
+        assertThat(personNameIndex.size(), is(equalTo(4)));
+    }
+
+    @Test
+    void whenMostSlotsAreRetiredThenTheIndexIsCompactedAndStillAnswers() {
+        // When
+        for (int i = 0; i < 10; i++) {
+            personNameIndex.put(3L, "Mário", "Souza" + i);
+        }
+        personNameIndex.remove(Arrays.asList(1L, 2L));
+
+        // Then
+        assertThat(ids(personNameIndex.search("souza9", 10)), contains(3L));
+        assertThat(personNameIndex.size(), is(equalTo(1)));
+    }
+
+    @Test
+    void whenSearchesFollowEachOtherThenEachScoresLikeTheFirstSearchOfTheIndex() {
+        // Given
+        List<String> queries = Arrays.asList("maria silva", "silveira", "souza", "mario", "da silva", "joao souza");
+
+        // When
+        for (String query : queries) {
+            personNameIndex.search(query, 10);
+        }
+
+        // Then
+        for (String query : queries) {
+            PersonNameIndex fresh = new PersonNameIndex(personRepository, PersonShards.single());
+            fresh.put(1L, "Maria", "da Silva");
+            fresh.put(2L, "João", "Silveira");
+            fresh.put(3L, "Mário", "Souza");
+            assertThat(personNameIndex.search(query, 10), is(equalTo(fresh.search(query, 10))));
+        }
+    }
+
+    private List<Long> ids(List<PersonNameMatchDTO> matches) {
+        return matches.stream().map(PersonNameMatchDTO::getId).collect(Collectors.toList());
+    }
+}
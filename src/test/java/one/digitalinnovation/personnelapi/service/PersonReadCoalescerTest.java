@@ -0,0 +1,158 @@
+package one.digitalinnovation.personnelapi.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import one.digitalinnovation.personnelapi.dto.PersonDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class PersonReadCoalescerTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final ExecutorService callers = Executors.newFixedThreadPool(8);
+
+    private PersonReadCoalescer personReadCoalescer;
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+        personReadCoalescer.destroy();
+    }
+
+    @Test
+    void whenTheSameIdIsLookedUpConcurrentlyThenOneLoadIsShared() throws Exception {
+        // Given
+        personReadCoalescer = new PersonReadCoalescer(meterRegistry, true, true, Duration.ZERO, 100);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+
+        // When
+        List<CompletableFuture<Optional<PersonDTO>>> lookups = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            lookups.add(CompletableFuture.supplyAsync(() -> personReadCoalescer.load(1L, id -> {
+                loads.incrementAndGet();
+                await(release);
+                return Optional.of(person(id));
+            }, ids -> null), callers));
+        }
+        waitUntil(() -> meterRegistry.counter(PersonReadCoalescer.COALESCED_COUNTER).count() == 4);
+        release.countDown();
+
+        // Then
+        for (CompletableFuture<Optional<PersonDTO>> lookup : lookups) {
+            assertThat(lookup.get(5, TimeUnit.SECONDS).map(PersonDTO::getId), is(equalTo(Optional.of(1L))));
+        }
+        assertThat(loads.get(), is(equalTo(1)));
+    }
+
+    @Test
+    void whenTheCacheSerializesLookupsThenSingleFlightIsSkipped() throws Exception {
+        // Given
+        personReadCoalescer = new PersonReadCoalescer(meterRegistry, true, false, Duration.ZERO, 100);
+        CountDownLatch loading = new CountDownLatch(2);
+        AtomicInteger loads = new AtomicInteger();
+
+        // When
+        List<CompletableFuture<Optional<PersonDTO>>> lookups = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            lookups.add(CompletableFuture.supplyAsync(() -> personReadCoalescer.load(1L, id -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                await(loading);
+                return Optional.of(person(id));
+            }, ids -> null), callers));
+        }
+
+        // Then
+        for (CompletableFuture<Optional<PersonDTO>> lookup : lookups) {
+            assertThat(lookup.get(5, TimeUnit.SECONDS).map(PersonDTO::getId), is(equalTo(Optional.of(1L))));
+        }
+        assertThat(loads.get(), is(equalTo(2)));
+        assertThat(meterRegistry.counter(PersonReadCoalescer.COALESCED_COUNTER).count(), is(equalTo(0.0)));
+    }
+
+    @Test
+    void whenALoadFailsThenTheLookupFailsAndTheNextOneLoadsAgain() {
+        // Given
+        personReadCoalescer = new PersonReadCoalescer(meterRegistry, true, true, Duration.ZERO, 100);
+
+        // When
+        RuntimeException failure = null;
+        try {
+            personReadCoalescer.load(1L, id -> {
+                throw new IllegalStateException("database unavailable");
+            }, ids -> null);
+        } catch (IllegalStateException e) {
+            failure = e;
+        }
+        Optional<PersonDTO> retried = personReadCoalescer.load(1L, id -> Optional.of(person(id)), ids -> null);
+
+        // Then
+        assertThat(failure, is(notNullValue()));
+        assertThat(retried.map(PersonDTO::getId), is(equalTo(Optional.of(1L))));
+    }
+
+    @Test
+    void whenDifferentIdsArriveWithinTheWindowThenTheyAreLoadedInOneBatch() throws Exception {
+        // Given
+        personReadCoalescer = new PersonReadCoalescer(meterRegistry, true, true, Duration.ofHours(1), 3);
+        List<List<Long>> batches = new ArrayList<>();
+
+        // When
+        List<CompletableFuture<Optional<PersonDTO>>> lookups = new ArrayList<>();
+        for (long id = 1; id <= 3; id++) {
+            long personId = id;
+            lookups.add(CompletableFuture.supplyAsync(() -> personReadCoalescer.load(personId, single -> {
+                throw new AssertionError("single load while batching");
+            }, ids -> {
+                batches.add(ids);
+                return ids.stream().filter(batchId -> batchId != 2L).map(this::person).collect(Collectors.toList());
+            }), callers));
+        }
+
+        // Then
+        assertThat(lookups.get(0).get(5, TimeUnit.SECONDS).map(PersonDTO::getId), is(equalTo(Optional.of(1L))));
+        assertThat(lookups.get(1).get(5, TimeUnit.SECONDS), is(equalTo(Optional.empty())));
+        assertThat(lookups.get(2).get(5, TimeUnit.SECONDS).map(PersonDTO::getId), is(equalTo(Optional.of(3L))));
+        assertThat(batches, hasSize(1));
+        assertThat(batches.get(0), containsInAnyOrder(1L, 2L, 3L));
+        assertThat(meterRegistry.summary(PersonReadCoalescer.BATCH_SIZE_SUMMARY).max(), is(equalTo(3.0)));
+    }
+
+    private PersonDTO person(Long id) {
+        return PersonDTO.builder().id(id).firstName("Person " + id).phones(Collections.emptyList()).build();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package one.digitalinnovation.personnelapi.service;
+
+import one.digitalinnovation.personnelapi.dto.BatchCreateResultDTO;
+import one.digitalinnovation.personnelapi.dto.BatchItemResultDTO;
+import one.digitalinnovation.personnelapi.dto.PersonDTO;
+import one.digitalinnovation.personnelapi.dto.PhoneDTO;
+import one.digitalinnovation.personnelapi.entity.Person;
+import one.digitalinnovation.personnelapi.enums.BatchItemStatus;
+import one.digitalinnovation.personnelapi.enums.PhoneType;
+import one.digitalinnovation.personnelapi.repository.PersonRepository;
+import one.digitalinnovation.personnelapi.utils.PersonUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+@SpringBootTest
+public class PersonServiceBatchTest {
+
+    @Autowired
+    private PersonService personService;
+
+    @Autowired
+    private PersonRepository personRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        personRepository.deleteAll();
+    }
+
+    @Test
+    void whenTheFilterMissesARegisteredCpfThenTheBatchIsRetriedAndTheItemReportedAsDuplicate() throws Exception {
+        // Given
+        Person registered = personService.create(createPersonDTO(PersonUtils.createCpf(801)));
+        String missedCpf = PersonUtils.createCpf(802);
+        jdbcTemplate.update("update person set cpf = ?, cpf_key = ? where id = ?",
+                missedCpf, Long.parseLong(missedCpf), registered.getId());
+
+        // When
+        BatchCreateResultDTO result = personService.createAll(Arrays.asList(
+                createPersonDTO(PersonUtils.createCpf(803)), createPersonDTO(missedCpf), null));
+
+        // Then
+        assertThat(result.getItems().stream().map(BatchItemResultDTO::getStatus).collect(Collectors.toList()),
+                contains(BatchItemStatus.CREATED, BatchItemStatus.DUPLICATE, BatchItemStatus.INVALID));
+        assertThat(personRepository.count(), is(equalTo(2L)));
+        assertThat(personService.findByCpf(PersonUtils.createCpf(803)).getPhones(), hasSize(1));
+    }
+
+    @Test
+    void whenABatchItemIsMalformedThenOnlyThatItemIsReportedAndTheOthersAreCreated() throws Exception {
+        // Given
+        PersonDTO withPhoneIds = PersonUtils.createPersonDTO();
+        withPhoneIds.setId(7L);
+        withPhoneIds.setCpf(PersonUtils.createCpf(1));
+        PersonDTO withoutPhoneType = PersonUtils.createPersonDTO();
+        withoutPhoneType.setCpf(PersonUtils.createCpf(2));
+        withoutPhoneType.setPhones(Collections.singletonList(PhoneDTO.builder().number("1199999-0002").build()));
+        PersonDTO valid = PersonUtils.createPersonDTO();
+        valid.setCpf(PersonUtils.createCpf(3));
+        valid.setPhones(Collections.singletonList(PhoneDTO.builder().type(PhoneType.MOBILE).number("1199999-0003").build()));
+
+        // When
+        BatchCreateResultDTO result = personService.createAll(Arrays.asList(withPhoneIds, withoutPhoneType, valid));
+
+        // Then
+        assertThat(result.getItems().stream().map(BatchItemResultDTO::getStatus).collect(Collectors.toList()),
+                contains(BatchItemStatus.CREATED, BatchItemStatus.INVALID, BatchItemStatus.CREATED));
+        assertThat(result.getItems().get(1).getMessage(), containsString("type"));
+        assertThat(personRepository.count(), is(equalTo(2L)));
+        assertThat(personService.findById(result.getItems().get(0).getId()).getPhones(), hasSize(1));
+    }
+
+    private PersonDTO createPersonDTO(String cpf) {
+        PersonDTO personDTO = PersonUtils.createPersonDTO();
+        personDTO.setCpf(cpf);
+        personDTO.getPhones().forEach(phone -> phone.setId(null));
+        return personDTO;
+    }
+}
@@ -0,0 +1,72 @@
+package one.digitalinnovation.personnelapi.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import one.digitalinnovation.personnelapi.entity.Person;
+import one.digitalinnovation.personnelapi.exception.PersonNotFoundException;
+import one.digitalinnovation.personnelapi.repository.PersonRepository;
+import one.digitalinnovation.personnelapi.utils.PersonUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+@SpringBootTest
+public class PersonServiceCacheTest {
+
+    @Autowired
+    private PersonService personService;
+
+    @Autowired
+    private PersonRepository personRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @AfterEach
+    void tearDown() {
+        personRepository.deleteAll();
+    }
+
+    @Test
+    void whenAReadRacesAnUpdateBeforeItCommitsThenTheCommittedPersonIsReadAfterwards() throws Exception {
+        // Given
+        Person person = savePersons(1).get(0);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        // When
+        String racingFirstName = transactionTemplate.execute(status -> {
+            try {
+                personService.patchById(person.getId(), objectMapper.readTree("{\"firstName\": \"Changed\"}"), null);
+                return CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return personService.findById(person.getId()).getFirstName();
+                    } catch (PersonNotFoundException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }).get(5, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        // Then
+        assertThat(racingFirstName, is(equalTo(person.getFirstName())));
+        assertThat(personService.findById(person.getId()).getFirstName(), is(equalTo("Changed")));
+    }
+
+    private List<Person> savePersons(int count) {
+        return personRepository.saveAll(PersonUtils.createPersonEntities(count));
+    }
+}
@@ -0,0 +1,90 @@
+package one.digitalinnovation.personnelapi.service;
+
+import one.digitalinnovation.personnelapi.dto.PersonDTO;
+import one.digitalinnovation.personnelapi.entity.Person;
+import one.digitalinnovation.personnelapi.exception.PersonAlreadyRegisteredException;
+import one.digitalinnovation.personnelapi.exception.PersonNotFoundException;
+import one.digitalinnovation.personnelapi.repository.PersonRepository;
+import one.digitalinnovation.personnelapi.utils.PersonUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+public class PersonServiceCpfLookupTest {
+
+    @Autowired
+    private PersonService personService;
+
+    @Autowired
+    private PersonRepository personRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CpfMembershipFilter cpfMembershipFilter;
+
+    @AfterEach
+    void tearDown() {
+        personRepository.deleteAll();
+    }
+
+    @Test
+    void whenFindByCpfIsCalledThenFormattedAndUnformattedCpfsFindTheSamePerson() throws PersonNotFoundException {
+        // Given
+        Person person = savePersons(1).get(0);
+        String cpf = person.getCpf();
+        String formattedCpf = cpf.substring(0, 3) + "." + cpf.substring(3, 6) + "." + cpf.substring(6, 9) + "-" + cpf.substring(9);
+
+        // Then
+        assertThat(personService.findByCpf(formattedCpf).getId(), is(equalTo(person.getId())));
+        assertThat(personService.findByCpf(cpf).getId(), is(equalTo(person.getId())));
+    }
+
+    @Test
+    void whenACpfIsWrittenOutsideTheApplicationThenItIsFoundAfterTheFilterIsRefreshed() throws Exception {
+        // Given
+        Person person = savePersons(1).get(0);
+        String cpf = PersonUtils.createCpf(901);
+        jdbcTemplate.update("update person set cpf = ?, cpf_key = ? where id = ?", cpf, Long.parseLong(cpf), person.getId());
+        assertThrows(PersonNotFoundException.class, () -> personService.findByCpf(cpf));
+
+        // When
+        cpfMembershipFilter.refresh();
+
+        // Then
+        assertThat(personService.findByCpf(cpf).getId(), is(equalTo(person.getId())));
+    }
+
+    @Test
+    void whenACpfMissedByTheFilterIsRejectedByTheConstraintThenItIsFoundAfterwards() throws Exception {
+        // Given
+        Person person = savePersons(1).get(0);
+        String cpf = PersonUtils.createCpf(902);
+        jdbcTemplate.update("update person set cpf = ?, cpf_key = ? where id = ?", cpf, Long.parseLong(cpf), person.getId());
+        assertThrows(PersonNotFoundException.class, () -> personService.findByCpf(cpf));
+        PersonDTO duplicate = PersonUtils.createPersonDTO();
+        duplicate.setCpf(cpf);
+        duplicate.setPhones(Collections.emptyList());
+
+        // When
+        assertThrows(PersonAlreadyRegisteredException.class, () -> personService.create(duplicate));
+
+        // Then
+        assertThat(personService.findByCpf(cpf).getId(), is(equalTo(person.getId())));
+    }
+
+    private List<Person> savePersons(int count) {
+        return personRepository.saveAll(PersonUtils.createPersonEntities(count));
+    }
+}
@@ -0,0 +1,118 @@
+package one.digitalinnovation.personnelapi.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import one.digitalinnovation.personnelapi.dto.PersonDTO;
+import one.digitalinnovation.personnelapi.entity.Person;
+import one.digitalinnovation.personnelapi.entity.Phone;
+import one.digitalinnovation.personnelapi.exception.PersonAlreadyRegisteredException;
+import one.digitalinnovation.personnelapi.exception.PersonNotFoundException;
+import one.digitalinnovation.personnelapi.repository.PersonRepository;
+import one.digitalinnovation.personnelapi.utils.PersonUtils;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The in-memory name and phone indexes answer from memory and only change once a write commits.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+public class PersonServiceIndexTest {
+
+    @Autowired
+    private PersonService personService;
+
+    @Autowired
+    private PersonRepository personRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        personRepository.deleteAll();
+    }
+
+    @Test
+    void whenPersonsAreWrittenThenTheNameIndexFollowsCommittedChanges() throws Exception {
+        // Given
+        PersonDTO personDTO = PersonUtils.createPersonDTO();
+        personDTO.setLastName("Vasconcelos");
+        personDTO.setPhones(Collections.emptyList());
+        Person person = personService.create(personDTO);
+
+        // When
+        assertThrows(PersonAlreadyRegisteredException.class, () -> {
+            PersonDTO duplicate = PersonUtils.createPersonDTO();
+            duplicate.setLastName("Albuquerque");
+            duplicate.setPhones(Collections.emptyList());
+            personService.create(duplicate);
+        });
+        statistics.clear();
+
+        // Then
+        assertThat(personService.searchByName("vasconcel", 10).get(0).getId(), is(equalTo(person.getId())));
+        assertThat(personService.searchByName("albuquerque", 10), is(empty()));
+        assertThat(statistics.getPrepareStatementCount(), is(equalTo(0L)));
+
+        personService.patchById(person.getId(), objectMapper.readTree("{\"lastName\": \"Albuquerque\"}"), null);
+        assertThat(personService.searchByName("albuquerque", 10).get(0).getId(), is(equalTo(person.getId())));
+
+        personService.deleteById(person.getId());
+        assertThat(personService.searchByName("albuquerque", 10), is(empty()));
+    }
+
+    @Test
+    void whenPhoneNumbersAreWrittenThenReverseLookupsFollowCommittedChangesWithoutQueries() throws Exception {
+        // Given
+        List<Person> persons = savePersons(2);
+        Person person = persons.get(0);
+        Phone firstPhone = person.getPhones().get(0);
+        Phone secondPhone = person.getPhones().get(1);
+        statistics.clear();
+
+        // Then
+        assertThat(personService.findIdsByPhone("(11) 99999-0000"), contains(person.getId()));
+        assertThat(statistics.getPrepareStatementCount(), is(equalTo(0L)));
+
+        personService.patchById(person.getId(), objectMapper.readTree("{\"phones\": ["
+                + "{\"id\": " + firstPhone.getId() + ", \"type\": \"HOME\", \"number\": \"1177777-7777\"},"
+                + "{\"id\": " + secondPhone.getId() + ", \"type\": \"MOBILE\", \"number\": \"" + secondPhone.getNumber() + "\"}]}"), null);
+        statistics.clear();
+        assertThrows(PersonNotFoundException.class, () -> personService.findIdsByPhone("1199999-0000"));
+        assertThat(personService.findIdsByPhone("1177777-7777"), contains(person.getId()));
+        assertThat(personService.findIdsByPhone(secondPhone.getNumber()), contains(person.getId()));
+        assertThat(statistics.getPrepareStatementCount(), is(equalTo(0L)));
+
+        personService.deleteById(person.getId());
+        assertThrows(PersonNotFoundException.class, () -> personService.findIdsByPhone("1177777-7777"));
+        assertThat(personService.findIdsByPhone("1199999-0001"), contains(persons.get(1).getId()));
+    }
+
+    private List<Person> savePersons(int count) {
+        return personRepository.saveAll(PersonUtils.createPersonEntities(count));
+    }
+}
@@ -0,0 +1,116 @@
+package one.digitalinnovation.personnelapi.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import one.digitalinnovation.personnelapi.config.ExceptionMetricsAspect;
+import one.digitalinnovation.personnelapi.config.StatementCountingSessionListener;
+import one.digitalinnovation.personnelapi.dto.PersonDTO;
+import one.digitalinnovation.personnelapi.exception.PersonAlreadyRegisteredException;
+import one.digitalinnovation.personnelapi.exception.PersonNotFoundException;
+import one.digitalinnovation.personnelapi.repository.PersonRepository;
+import one.digitalinnovation.personnelapi.utils.PersonUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class PersonServiceMetricsTest {
+
+    @Autowired
+    private PersonService personService;
+
+    @Autowired
+    private PersonRepository personRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterEach
+    void tearDown() {
+        personRepository.deleteAll();
+    }
+
+    @Test
+    void whenAServiceOperationRunsThenItIsTimedPerMethod() throws PersonAlreadyRegisteredException {
+        // Given
+        long before = serviceTimerCount("create");
+
+        // When
+        personService.create(createPersonDTOWithoutPhoneIds());
+
+        // Then
+        assertThat(serviceTimerCount("create"), is(equalTo(before + 1)));
+    }
+
+    @Test
+    void whenPersonIsNotFoundThenTheExceptionIsCounted() {
+        // Given
+        double before = exceptionCount("PersonNotFoundException", "findVersionById");
+
+        // When
+        assertThrows(PersonNotFoundException.class, () -> personService.findVersionById(Long.MAX_VALUE));
+
+        // Then
+        assertThat(exceptionCount("PersonNotFoundException", "findVersionById"), is(equalTo(before + 1)));
+    }
+
+    @Test
+    void whenCpfIsAlreadyRegisteredThenTheExceptionIsCounted() throws PersonAlreadyRegisteredException {
+        // Given
+        personService.create(createPersonDTOWithoutPhoneIds());
+        double before = exceptionCount("PersonAlreadyRegisteredException", "create");
+
+        // When
+        assertThrows(PersonAlreadyRegisteredException.class, () -> personService.create(createPersonDTOWithoutPhoneIds()));
+
+        // Then
+        assertThat(exceptionCount("PersonAlreadyRegisteredException", "create"), is(equalTo(before + 1)));
+    }
+
+    @Test
+    void whenASessionEndsThenItsStatementCountIsRecorded() {
+        // Given
+        DistributionSummary statements = meterRegistry.find(StatementCountingSessionListener.STATEMENTS_SUMMARY).summary();
+        long before = statements == null ? 0 : statements.count();
+
+        // When
+        personService.findAll(null, null);
+
+        // Then
+        statements = meterRegistry.get(StatementCountingSessionListener.STATEMENTS_SUMMARY).summary();
+        assertThat(statements.count(), is(greaterThan(before)));
+        assertThat(meterRegistry.find("hibernate.statements").functionCounter(), is(notNullValue()));
+        assertThat(meterRegistry.find("hibernate.collections.fetches").functionCounter(), is(notNullValue()));
+    }
+
+    private long serviceTimerCount(String method) {
+        Timer timer = meterRegistry.find(PersonService.SERVICE_TIMER)
+                .tag("method", method)
+                .tag("exception", "none")
+                .timer();
+        return timer == null ? 0 : timer.count();
+    }
+
+    private double exceptionCount(String exception, String method) {
+        Counter counter = meterRegistry.find(ExceptionMetricsAspect.EXCEPTION_COUNTER)
+                .tag("exception", exception)
+                .tag("method", method)
+                .counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private PersonDTO createPersonDTOWithoutPhoneIds() {
+        PersonDTO personDTO = PersonUtils.createPersonDTO();
+        personDTO.setPhones(Collections.emptyList());
+        return personDTO;
+    }
+}
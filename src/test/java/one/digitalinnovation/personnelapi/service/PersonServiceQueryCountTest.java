@@ -0,0 +1,472 @@
+package one.digitalinnovation.personnelapi.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import one.digitalinnovation.personnelapi.dto.ImportLineResultDTO;
+import one.digitalinnovation.personnelapi.dto.ImportProgressDTO;
+import one.digitalinnovation.personnelapi.dto.MessageResponseDTO;
+import one.digitalinnovation.personnelapi.dto.PersonDTO;
+import one.digitalinnovation.personnelapi.dto.PersonFieldsPageDTO;
+import one.digitalinnovation.personnelapi.dto.PersonPageDTO;
+import one.digitalinnovation.personnelapi.dto.PersonSearchDTO;
+import one.digitalinnovation.personnelapi.dto.PersonSyncPageDTO;
+import one.digitalinnovation.personnelapi.dto.PersonTombstoneDTO;
+import one.digitalinnovation.personnelapi.dto.PhoneDTO;
+import one.digitalinnovation.personnelapi.dto.mapper.PersonMapper;
+import one.digitalinnovation.personnelapi.entity.Person;
+import one.digitalinnovation.personnelapi.entity.Phone;
+import one.digitalinnovation.personnelapi.enums.PhoneType;
+import one.digitalinnovation.personnelapi.exception.InvalidPersonPatchException;
+import one.digitalinnovation.personnelapi.exception.PersonAlreadyRegisteredException;
+import one.digitalinnovation.personnelapi.exception.PersonNotFoundException;
+import one.digitalinnovation.personnelapi.repository.PersonRepository;
+import one.digitalinnovation.personnelapi.repository.PhoneRepository;
+import one.digitalinnovation.personnelapi.utils.CsvUtils;
+import one.digitalinnovation.personnelapi.utils.ETagUtils;
+import one.digitalinnovation.personnelapi.utils.PersonUtils;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.StringReader;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * How many statements each service operation runs; what the operations do is tested by the class of each feature.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+public class PersonServiceQueryCountTest {
+
+    @Autowired
+    private PersonService personService;
+
+    @Autowired
+    private PersonImportService personImportService;
+
+    @Autowired
+    private PersonRepository personRepository;
+
+    @Autowired
+    private PhoneRepository phoneRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        personRepository.deleteAll();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 50})
+    void whenFindAllIsCalledThenStatementCountDoesNotDependOnPersonCount(int personCount) {
+        // Given
+        savePersons(personCount);
+        statistics.clear();
+
+        // When
+        PersonPageDTO page = personService.findAll(null, personCount);
+
+        // Then
+        assertThat(page.getContent(), hasSize(personCount));
+        assertThat(page.getContent().get(0).getPhones(), hasSize(2));
+        assertThat(statistics.getPrepareStatementCount(), is(equalTo(2L)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 50})
+    void whenStreamAllIsCalledThenStatementCountDoesNotDependOnPersonCount(int personCount) {
+        // Given
+        savePersons(personCount);
+        statistics.clear();
+
+        // When
+        List<PersonDTO> streamed = new ArrayList<>();
+        personService.streamAll(streamed::add);
+
+        // Then
+        assertThat(streamed, hasSize(personCount));
+        assertThat(streamed.get(0).getPhones(), hasSize(2));
+        assertThat(statistics.getPrepareStatementCount(), is(equalTo(2L)));
+    }
+
+    @Test
+    void whenFindByIdIsCalledThenPersonAndPhonesAreFetchedInOneStatement() throws PersonNotFoundException {
+        // Given
+        Long id = savePersons(1).get(0).getId();
+        statistics.clear();
+
+        // When
+        PersonDTO personDTO = personService.findById(id);
+
+        // Then
+        assertThat(personDTO.getPhones(), hasSize(2));
+        assertThat(statistics.getPrepareStatementCount(), is(equalTo(1L)));
+    }
+
+    @Test
+    void whenPageETagIsComputedThenItMatchesTheETagOfTheLoadedPageWithOneStatement() {
+        // Given
+        savePersons(3);
+        PersonPageDTO page = personService.findAll(null, 2);
+        statistics.clear();
+
+        // When
+        String eTag = personService.findPageETag(null, 2);
+
+        // Then
+        assertThat(eTag, is(equalTo(ETagUtils.ofPage(
+                page.getContent().stream().map(PersonDTO::getId).collect(Collectors.toList()),
+                page.getContent().stream().map(PersonDTO::getVersion).collect(Collectors.toList()),
+                page.getNextCursor()))));
+        assertThat(statistics.getPrepareStatementCount(), is(equalTo(1L)));
+    }
+
+    @Test
+    void whenFindByIdIsCalledAgainThenPersonIsServedFromCacheUntilUpdated() throws Exception {
+        // Given
+        Person person = savePersons(1).get(0);
+        personService.findById(person.getId());
+        statistics.clear();
+
+        // When
+        personService.findById(person.getId());
+
+        // Then
+        assertThat(statistics.getPrepareStatementCount(), is(equalTo(0L)));
+
+        // When
+        PersonDTO update = PersonUtils.createPersonDTO();
+        update.setFirstName("Changed");
+        update.setCpf(person.getCpf());
+        update.setPhones(PersonMapper.INSTANCE.toDto(person).getPhones());
+        personService.updateById(person.getId(), update, null);
+        statistics.clear();
+
+        // Then
+        assertThat(personService.findById(person.getId()).getFirstName(), is(equalTo("Changed")));
+        assertThat(statistics.getPrepareStatementCount(), is(equalTo(1L)));
+    }
+
+    @Test
+    void whenFindByCpfIsCalledWithUnknownCpfThenNoStatementIsExecuted() {
+        // Given
+        savePersons(1);
+        statistics.clear();
+
+        // Then
+        assertThrows(PersonNotFoundException.class, () -> personService.findByCpf("52998224725"));
+        assertThat(statistics.getPrepareStatementCount(), is(equalTo(0L)));
+    }
+
+    @Test
+    void whenPatchChangesASingleFieldThenOnlyTheLoadOnePersonUpdateAndTheChangeRowAreExecuted() throws Exception {
+        // Given
+        Person person = savePersons(1).get(0);
+        JsonNode patch = objectMapper.readTree("{\"firstName\": \"Changed\"}");
+        statistics.clear();
+
+        // When
+        personService.patchById(person.getId(), patch, null);
+
+        // Then
+        // Load, person update, change counter increment and read, and change row.
+        assertThat(statistics.getPrepareStatementCount(), is(equalTo(5L)));
+        assertThat(statistics.getEntityUpdateCount(), is(equalTo(1L)));
+        assertThat(statistics.getEntityDeleteCount(), is(equalTo(0L)));
+        assertThat(jdbcTemplate.queryForObject("select count(*) from person_change where type = 'UPDATED' and person_id = ?",
+                Long.class, person.getId()), is(equalTo(1L)));
+        assertThat(personService.findById(person.getId()).getFirstName(), is(equalTo("Changed")));
+    }
+
+    @Test
+    void whenPatchChangesOnePhoneNumberThenOnlyThatPhoneAndThePersonVersionAreUpdated() throws Exception {
+        // Given
+        Person person = savePersons(1).get(0);
+        Phone firstPhone = person.getPhones().get(0);
+        Phone secondPhone = person.getPhones().get(1);
+        JsonNode patch = objectMapper.readTree("{\"phones\": ["
+                + "{\"id\": " + firstPhone.getId() + ", \"type\": \"HOME\", \"number\": \"1177777-7777\"},"
+                + "{\"id\": " + secondPhone.getId() + ", \"type\": \"" + secondPhone.getType() + "\", \"number\": \"" + secondPhone.getNumber() + "\"}]}");
+        statistics.clear();
+
+        // When
+        personService.patchById(person.getId(), patch, null);
+
+        // Then
+        assertThat(statistics.getPrepareStatementCount(), is(equalTo(6L)));
+        assertThat(statistics.getEntityUpdateCount(), is(equalTo(2L)));
+        assertThat(statistics.getCollectionRecreateCount(), is(equalTo(0L)));
+        PersonDTO patched = personService.findById(person.getId());
+        assertThat(patched.getPhones().get(0).getNumber(), is(equalTo("1177777-7777")));
+        assertThat(patched.getVersion(), is(greaterThan(person.getVersion())));
+        assertThat(patched.getUpdatedAt(), is(greaterThan(person.getUpdatedAt())));
+    }
+
+    @Test
+    void whenPatchRemovesOnePhoneThenOnlyItsJoinRowIsDeleted() throws Exception {
+        // Given
+        Person person = savePersons(1).get(0);
+        Phone firstPhone = person.getPhones().get(0);
+        JsonNode patch = objectMapper.readTree("{\"phones\": ["
+                + "{\"id\": " + firstPhone.getId() + ", \"type\": \"" + firstPhone.getType() + "\", \"number\": \"" + firstPhone.getNumber() + "\"}]}");
+        statistics.clear();
+
+        // When
+        personService.patchById(person.getId(), patch, null);
+
+        // Then
+        // Load, delete of the removed join row and of its phone, person version, change counter increment and read, and change row.
+        assertThat(statistics.getPrepareStatementCount(), is(equalTo(7L)));
+        assertThat(statistics.getCollectionRecreateCount(), is(equalTo(0L)));
+        assertThat(statistics.getEntityDeleteCount(), is(equalTo(1L)));
+        PersonDTO patched = personService.findById(person.getId());
+        assertThat(patched.getPhones(), hasSize(1));
+        assertThat(patched.getPhones().get(0).getId(), is(equalTo(firstPhone.getId())));
+    }
+
+    @Test
+    void whenPatchSetsARequiredFieldToNullThenNothingIsWritten() throws Exception {
+        // Given
+        Person person = savePersons(1).get(0);
+        JsonNode patch = objectMapper.readTree("{\"lastName\": \"Changed\", \"firstName\": null}");
+        statistics.clear();
+
+        // Then
+        assertThrows(InvalidPersonPatchException.class, () -> personService.patchById(person.getId(), patch, null));
+        assertThat(statistics.getEntityUpdateCount(), is(equalTo(0L)));
+    }
+
+    @Test
+    void whenDeleteIsCalledThenABoundedNumberOfBulkStatementsIsExecuted() throws PersonNotFoundException {
+        // Given
+        Person person = savePersons(1).get(0);
+        statistics.clear();
+
+        // When
+        personService.deleteById(person.getId());
+
+        // Then
+        assertThat(statistics.getPrepareStatementCount(), is(equalTo(7L)));
+        assertThat(statistics.getEntityLoadCount(), is(equalTo(0L)));
+        assertThat(personRepository.count(), is(equalTo(0L)));
+        assertThat(phoneRepository.count(), is(equalTo(0L)));
+    }
+
+    @Test
+    void whenDeleteIsCalledWithUnknownIdThenNotFoundIsDetectedByTheSelect() {
+        // Given
+        statistics.clear();
+
+        // Then
+        assertThrows(PersonNotFoundException.class, () -> personService.deleteById(Long.MAX_VALUE));
+        assertThat(statistics.getPrepareStatementCount(), is(equalTo(1L)));
+    }
+
+    @Test
+    void whenDeleteAllIsCalledThenOnlyTheListedPersonsAreDeleted() throws Exception {
+        // Given
+        List<Person> persons = savePersons(3);
+        List<Long> ids = Arrays.asList(persons.get(0).getId(), persons.get(2).getId(), Long.MAX_VALUE);
+        statistics.clear();
+
+        // When
+        MessageResponseDTO response = personService.deleteAllById(ids);
+
+        // Then
+        assertThat(response.getMessage(), is(equalTo("Deleted 2 of 3 requested persons")));
+        assertThat(statistics.getPrepareStatementCount(), is(equalTo(7L)));
+        assertThat(personRepository.findAll(), hasSize(1));
+        assertThat(phoneRepository.count(), is(equalTo(2L)));
+    }
+
+    @Test
+    void whenFindAllSelectsFieldsWithoutPhonesThenOnlyThoseColumnsAreRead() throws Exception {
+        // Given
+        List<Person> persons = savePersons(3);
+        statistics.clear();
+
+        // When
+        PersonFieldsPageDTO page = personService.findAll(null, 2,
+                new LinkedHashSet<>(Arrays.asList("firstName", "lastName")));
+
+        // Then
+        assertThat(statistics.getPrepareStatementCount(), is(equalTo(1L)));
+        assertThat(statistics.getEntityLoadCount(), is(equalTo(0L)));
+        assertThat(statistics.getCollectionFetchCount(), is(equalTo(0L)));
+        assertThat(page.getContent(), hasSize(2));
+        assertThat(page.getContent().get(0).keySet(), contains("firstName", "lastName"));
+        assertThat(page.getContent().get(0).get("firstName"), is(equalTo(persons.get(0).getFirstName())));
+        assertThat(page.getNextCursor(), is(equalTo(persons.get(1).getId())));
+    }
+
+    @Test
+    void whenFindAllSelectsPhonesThenPersonsAndPhonesAreReadInTwoStatements() throws Exception {
+        // Given
+        savePersons(3);
+        statistics.clear();
+
+        // When
+        PersonFieldsPageDTO page = personService.findAll(null, 10, new LinkedHashSet<>(Arrays.asList("id", "phones")));
+
+        // Then
+        assertThat(statistics.getPrepareStatementCount(), is(equalTo(2L)));
+        assertThat(page.getContent(), hasSize(3));
+        assertThat(page.getContent().get(0).keySet(), contains("id", "phones"));
+        assertThat((List<?>) page.getContent().get(0).get("phones"), hasSize(2));
+        assertThat(page.getNextCursor(), is(nullValue()));
+    }
+
+    @Test
+    void whenSearchIsCalledThenTheDatabaseFiltersAndPagesInTwoStatements() {
+        // Given
+        List<Person> persons = savePersons(12);
+        Person business = persons.get(10);
+        business.getPhones().get(0).setType(PhoneType.BUSINESS);
+        business.setBirthDate(LocalDate.of(1990, 6, 15));
+        personRepository.save(business);
+        statistics.clear();
+
+        // When
+        PersonPageDTO lastNamePage = personService.search(
+                PersonSearchDTO.builder().lastName("Last1").build(), null, 2);
+        PersonPageDTO filteredPage = personService.search(PersonSearchDTO.builder()
+                .lastName("Last1")
+                .bornFrom(LocalDate.of(1980, 1, 1))
+                .phoneType(PhoneType.BUSINESS)
+                .build(), null, 10);
+
+        // Then
+        assertThat(statistics.getPrepareStatementCount(), is(equalTo(4L)));
+        assertThat(lastNamePage.getContent().stream().map(PersonDTO::getLastName).collect(Collectors.toList()),
+                contains("Last1", "Last10"));
+        assertThat(lastNamePage.getNextCursor(), is(equalTo(persons.get(10).getId())));
+        assertThat(filteredPage.getContent(), hasSize(1));
+        assertThat(filteredPage.getContent().get(0).getId(), is(equalTo(business.getId())));
+        assertThat(filteredPage.getContent().get(0).getPhones(), hasSize(2));
+    }
+
+    @Test
+    void whenUpdatedSinceIsQueriedThenChangedPersonsAndTombstonesArePagedInChangeOrder() throws Exception {
+        // Given
+        List<Person> persons = savePersons(4);
+        Instant since = persons.stream().map(Person::getUpdatedAt).max(Comparator.naturalOrder()).get();
+        Thread.sleep(5);
+        personService.patchById(persons.get(2).getId(), objectMapper.readTree("{\"firstName\": \"Changed\"}"), null);
+        Thread.sleep(5);
+        personService.deleteById(persons.get(0).getId());
+        Thread.sleep(5);
+        personService.patchById(persons.get(1).getId(), objectMapper.readTree("{\"firstName\": \"Changed\"}"), null);
+        statistics.clear();
+
+        // When
+        PersonSyncPageDTO firstPage = personService.findUpdatedSince(since.plusMillis(1), null, 2);
+        PersonSyncPageDTO secondPage = personService.findUpdatedSince(firstPage.getNextUpdatedSince(), firstPage.getNextAfter(), 2);
+
+        // Then
+        assertThat(firstPage.getContent().stream().map(PersonDTO::getId).collect(Collectors.toList()),
+                contains(persons.get(2).getId()));
+        assertThat(firstPage.getDeleted().stream().map(PersonTombstoneDTO::getId).collect(Collectors.toList()),
+                contains(persons.get(0).getId()));
+        assertThat(firstPage.getNextAfter(), is(equalTo(persons.get(0).getId())));
+        assertThat(secondPage.getContent().stream().map(PersonDTO::getId).collect(Collectors.toList()),
+                contains(persons.get(1).getId()));
+        assertThat(secondPage.getContent().get(0).getPhones(), hasSize(2));
+        assertThat(secondPage.getDeleted(), is(empty()));
+        assertThat(secondPage.getNextUpdatedSince(), is(nullValue()));
+        // Per page: one keyset query on persons, one on tombstones and one load of the changed persons.
+        assertThat(statistics.getPrepareStatementCount(), is(equalTo(6L)));
+    }
+
+    @Test
+    void whenCreateIsCalledWithRegisteredCpfThenExceptionIsThrownWithoutAPreCheckQuery() {
+        // Given
+        Person registeredPerson = savePersons(1).get(0);
+        PersonDTO personDTO = PersonUtils.createPersonDTO();
+        personDTO.setCpf(registeredPerson.getCpf());
+        personDTO.setPhones(Collections.singletonList(PhoneDTO.builder().type(PhoneType.HOME).number("1199999-9999").build()));
+        statistics.clear();
+
+        // Then
+        assertThrows(PersonAlreadyRegisteredException.class, () -> personService.create(personDTO));
+        assertThat(statistics.getQueryExecutionCount(), is(equalTo(0L)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {100, 400})
+    void whenACsvIsImportedThenRowsAreInsertedInBatchesAndRejectedLinesAreReported(int personCount) throws Exception {
+        // Given
+        PersonDTO registered = PersonUtils.createPersonDTO();
+        registered.setCpf(PersonUtils.createCpf(1));
+        registered.setPhones(new ArrayList<>(Collections.singletonList(
+                PhoneDTO.builder().type(PhoneType.HOME).number("1199999-0000").build())));
+        personService.create(registered);
+        StringBuilder csv = new StringBuilder(CsvUtils.PERSON_HEADER).append("\r\n");
+        for (int i = 1; i <= personCount; i++) {
+            csv.append(",First").append(i).append(",Last").append(i).append(',').append(PersonUtils.createCpf(i))
+                    .append(",01-01-1970,HOME:1199999-").append(String.format("%04d", i)).append("\r\n");
+        }
+        csv.append(",First,Last,123,01-01-1970,HOME:1199999-9999\r\n");
+        List<ImportLineResultDTO> failedLines = new ArrayList<>();
+        statistics.clear();
+
+        // When
+        ImportProgressDTO result = personImportService.importCsv(new StringReader(csv.toString()), new PersonImportService.Listener() {
+            @Override
+            public void onLineFailed(ImportLineResultDTO failedLine) {
+                failedLines.add(failedLine);
+            }
+
+            @Override
+            public void onProgress(ImportProgressDTO progress) {
+            }
+        });
+
+        // Then
+        assertThat(result, is(equalTo(new ImportProgressDTO(personCount + 1, personCount - 1, 2))));
+        assertThat(failedLines.stream().map(ImportLineResultDTO::getLine).collect(Collectors.toList()),
+                containsInAnyOrder(2L, personCount + 2L));
+        assertThat(personRepository.count(), is(equalTo((long) personCount)));
+        // A handful of statements (sequences, person, phone, join row and change log inserts) per JDBC batch of 50 rows.
+        assertThat(statistics.getPrepareStatementCount(), is(lessThanOrEqualTo(7L * (personCount / 50 + 1))));
+    }
+
+    private List<Person> savePersons(int count) {
+        return personRepository.saveAll(PersonUtils.createPersonEntities(count));
+    }
+}
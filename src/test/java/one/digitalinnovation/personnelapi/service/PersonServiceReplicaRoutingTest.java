@@ -0,0 +1,142 @@
+package one.digitalinnovation.personnelapi.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import one.digitalinnovation.personnelapi.config.ReplicaLagMonitor;
+import one.digitalinnovation.personnelapi.dto.PersonDTO;
+import one.digitalinnovation.personnelapi.entity.Person;
+import one.digitalinnovation.personnelapi.exception.PersonAlreadyRegisteredException;
+import one.digitalinnovation.personnelapi.repository.PersonRepository;
+import one.digitalinnovation.personnelapi.utils.PersonUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Two embedded H2 databases stand in for the primary and the replica. Replication is simulated by copying
+ * the primary's schema and data to the replica with {@link #replicate()}.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1",
+        "personnel.datasource.replica.jdbc-url=jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1",
+        "personnel.datasource.replica.username=sa",
+        "personnel.datasource.replica-lag.query=select lag_seconds from replica_status",
+        "personnel.datasource.replica-lag.max=5s",
+        "personnel.datasource.replica-lag.check-interval=1h"
+})
+public class PersonServiceReplicaRoutingTest {
+
+    @Autowired
+    private PersonService personService;
+
+    @Autowired
+    private PersonRepository personRepository;
+
+    @Autowired
+    private ReplicaLagMonitor replicaLagMonitor;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    @BeforeEach
+    void setUp() {
+        replicate();
+    }
+
+    @AfterEach
+    void tearDown() {
+        personRepository.deleteAll();
+    }
+
+    @Test
+    void whenAReadOnlyServiceMethodRunsThenItReadsTheReplica() throws PersonAlreadyRegisteredException {
+        // Given
+        personService.create(createPersonDTO());
+
+        // When
+        List<PersonDTO> beforeReplication = personService.findAll(null, null).getContent();
+        replicate();
+        List<PersonDTO> afterReplication = personService.findAll(null, null).getContent();
+
+        // Then
+        assertThat(new JdbcTemplate(primaryDataSource).queryForObject("select count(*) from person", Long.class), is(equalTo(1L)));
+        assertThat(beforeReplication, is(empty()));
+        assertThat(afterReplication, hasSize(1));
+    }
+
+    @Test
+    void whenAPersonIsUpdatedThenItIsReadAndWrittenOnThePrimary() throws Exception {
+        // Given
+        Person person = personService.create(createPersonDTO());
+        PersonDTO update = createPersonDTO();
+        update.setFirstName("Primary");
+
+        // When
+        personService.updateById(person.getId(), update, null);
+
+        // Then
+        assertThat(personService.findById(person.getId()).getFirstName(), is(equalTo("Primary")));
+        assertThat(personService.findAll(null, null).getContent(), is(empty()));
+    }
+
+    @Test
+    void whenTheReplicaLagsBeyondTheToleranceThenReadsGoToThePrimary() throws PersonAlreadyRegisteredException {
+        // Given
+        personService.create(createPersonDTO());
+
+        // When
+        setReplicaLag(60);
+        List<PersonDTO> whileLagging = personService.findAll(null, null).getContent();
+        setReplicaLag(1);
+        List<PersonDTO> whileCaughtUp = personService.findAll(null, null).getContent();
+
+        // Then
+        assertThat(whileLagging, hasSize(1));
+        assertThat(whileCaughtUp, is(empty()));
+        assertThat(meterRegistry.get(ReplicaLagMonitor.LAG_GAUGE).gauge().value(), is(equalTo(1.0)));
+    }
+
+    /**
+     * Replaces the replica with a copy of the primary and reports it caught up.
+     */
+    private void replicate() {
+        JdbcTemplate replica = new JdbcTemplate(replicaDataSource);
+        List<String> script = new JdbcTemplate(primaryDataSource).queryForList("SCRIPT NOPASSWORDS NOSETTINGS", String.class);
+        replica.execute("DROP ALL OBJECTS");
+        script.stream()
+                .filter(statement -> !statement.startsWith("CREATE USER"))
+                .forEach(replica::execute);
+        replica.execute("create table replica_status(lag_seconds int)");
+        replica.update("insert into replica_status values (0)");
+        replicaLagMonitor.check();
+    }
+
+    private void setReplicaLag(int seconds) {
+        new JdbcTemplate(replicaDataSource).update("update replica_status set lag_seconds = ?", seconds);
+        replicaLagMonitor.check();
+    }
+
+    private PersonDTO createPersonDTO() {
+        PersonDTO personDTO = PersonUtils.createPersonDTO();
+        personDTO.setPhones(Collections.emptyList());
+        return personDTO;
+    }
+}
@@ -0,0 +1,47 @@
+package one.digitalinnovation.personnelapi.service;
+
+import one.digitalinnovation.personnelapi.dto.PersonPageDTO;
+import one.digitalinnovation.personnelapi.dto.PersonSearchDTO;
+import one.digitalinnovation.personnelapi.entity.Person;
+import one.digitalinnovation.personnelapi.repository.PersonRepository;
+import one.digitalinnovation.personnelapi.utils.PersonUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+@SpringBootTest
+public class PersonServiceSearchTest {
+
+    @Autowired
+    private PersonService personService;
+
+    @Autowired
+    private PersonRepository personRepository;
+
+    @AfterEach
+    void tearDown() {
+        personRepository.deleteAll();
+    }
+
+    @Test
+    void whenSearchPrefixContainsLikeWildcardsThenTheyAreMatchedLiterally() {
+        // Given
+        savePersons(3);
+
+        // When
+        PersonPageDTO page = personService.search(PersonSearchDTO.builder().lastName("L%").build(), null, 10);
+
+        // Then
+        assertThat(page.getContent(), is(empty()));
+    }
+
+    private List<Person> savePersons(int count) {
+        return personRepository.saveAll(PersonUtils.createPersonEntities(count));
+    }
+}
@@ -0,0 +1,320 @@
+package one.digitalinnovation.personnelapi.service;
+
+import one.digitalinnovation.personnelapi.dto.BatchCreateResultDTO;
+import one.digitalinnovation.personnelapi.dto.BatchItemResultDTO;
+import one.digitalinnovation.personnelapi.dto.MessageResponseDTO;
+import one.digitalinnovation.personnelapi.dto.PersonDTO;
+import one.digitalinnovation.personnelapi.dto.PersonFieldsPageDTO;
+import one.digitalinnovation.personnelapi.dto.PersonPageDTO;
+import one.digitalinnovation.personnelapi.dto.PersonSearchDTO;
+import one.digitalinnovation.personnelapi.dto.PersonSyncPageDTO;
+import one.digitalinnovation.personnelapi.entity.Person;
+import one.digitalinnovation.personnelapi.enums.BatchItemStatus;
+import one.digitalinnovation.personnelapi.exception.CpfChangeNotSupportedException;
+import one.digitalinnovation.personnelapi.exception.PersonAlreadyRegisteredException;
+import one.digitalinnovation.personnelapi.exception.PersonNotFoundException;
+import one.digitalinnovation.personnelapi.repository.sharding.PersonShards;
+import one.digitalinnovation.personnelapi.utils.CpfUtils;
+import one.digitalinnovation.personnelapi.utils.PersonUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Three embedded H2 databases stand in for the shards; each one is also inspected directly over JDBC.
+ */
+@SpringBootTest(properties = {
+        "personnel.sharding.shards[0].jdbc-url=jdbc:h2:mem:shard0;DB_CLOSE_DELAY=-1",
+        "personnel.sharding.shards[0].username=sa",
+        "personnel.sharding.shards[1].jdbc-url=jdbc:h2:mem:shard1;DB_CLOSE_DELAY=-1",
+        "personnel.sharding.shards[1].username=sa",
+        "personnel.sharding.shards[2].jdbc-url=jdbc:h2:mem:shard2;DB_CLOSE_DELAY=-1",
+        "personnel.sharding.shards[2].username=sa"
+})
+public class PersonServiceShardingTest {
+
+    private static final int SHARD_COUNT = 3;
+
+    @Autowired
+    private PersonService personService;
+
+    @Autowired
+    private PersonShards personShards;
+
+    @AfterEach
+    void tearDown() throws PersonNotFoundException {
+        for (Long id : findAllIds(50)) {
+            personService.deleteById(id);
+        }
+    }
+
+    @Test
+    void whenPersonsAreCreatedThenEachIsStoredOnTheShardOfItsCpf() throws Exception {
+        // Given
+        List<Person> persons = createPersons(12);
+
+        // When
+        List<Long> rowsPerShard = new ArrayList<>();
+        for (int shard = 0; shard < SHARD_COUNT; shard++) {
+            rowsPerShard.add(shard(shard).queryForObject("select count(*) from person", Long.class));
+        }
+
+        // Then
+        assertThat(rowsPerShard.stream().mapToLong(Long::longValue).sum(), is(equalTo(12L)));
+        assertThat(rowsPerShard.stream().filter(rows -> rows > 0).count(), is(greaterThan(1L)));
+        for (Person person : persons) {
+            int shard = personShards.shardOfCpfKey(CpfUtils.toKey(person.getCpf()));
+            assertThat(personShards.shardOfId(person.getId()), is(equalTo(shard)));
+            assertThat(shard(shard).queryForObject("select count(*) from person where id = ?", Long.class, person.getId()),
+                    is(equalTo(1L)));
+            assertThat(personService.findById(person.getId()).getCpf(), is(equalTo(person.getCpf())));
+            assertThat(personService.findByCpf(person.getCpf()).getId(), is(equalTo(person.getId())));
+        }
+    }
+
+    @Test
+    void whenACpfIsRegisteredThenCreatingItAgainIsRejected() throws PersonAlreadyRegisteredException {
+        // Given
+        PersonDTO personDTO = createPersonDTO(PersonUtils.createCpf(1));
+        personService.create(personDTO);
+
+        // Then
+        assertThrows(PersonAlreadyRegisteredException.class, () -> personService.create(personDTO));
+    }
+
+    @Test
+    void whenPersonsAreListedThenThePagesOfEveryShardAreMergedInIdOrder() throws Exception {
+        // Given
+        List<Long> ids = createPersons(12).stream().map(Person::getId).sorted().collect(Collectors.toList());
+
+        // When
+        List<Long> listed = findAllIds(5);
+        PersonPageDTO firstPage = personService.findAll(null, 5);
+        PersonPageDTO searched = personService.search(PersonSearchDTO.builder().lastName("da").build(), ids.get(2), 4);
+
+        // Then
+        assertThat(listed, is(equalTo(ids)));
+        assertThat(firstPage.getNextCursor(), is(equalTo(ids.get(4))));
+        assertThat(personService.findPageETag(null, 5), is(not(emptyOrNullString())));
+        assertThat(searched.getContent().stream().map(PersonDTO::getId).collect(Collectors.toList()),
+                is(equalTo(ids.subList(3, 7))));
+        assertThat(searched.getNextCursor(), is(equalTo(ids.get(6))));
+    }
+
+    @Test
+    void whenABatchIsCreatedThenItsItemsAreSplitByShardAndReportedInOrder() throws Exception {
+        // Given
+        PersonDTO registered = createPersonDTO(PersonUtils.createCpf(1));
+        personService.create(registered);
+        List<PersonDTO> batch = new ArrayList<>();
+        for (int i = 2; i <= 9; i++) {
+            batch.add(createPersonDTO(PersonUtils.createCpf(i)));
+        }
+        batch.add(3, registered);
+
+        // When
+        BatchCreateResultDTO result = personService.createAll(batch);
+
+        // Then
+        assertThat(result.getCreated(), is(equalTo(8)));
+        assertThat(result.getFailed(), is(equalTo(1)));
+        assertThat(result.getItems().stream().map(BatchItemResultDTO::getIndex).collect(Collectors.toList()),
+                contains(0, 1, 2, 3, 4, 5, 6, 7, 8));
+        assertThat(result.getItems().get(3).getStatus(), is(equalTo(BatchItemStatus.DUPLICATE)));
+        for (BatchItemResultDTO item : result.getItems()) {
+            if (item.getStatus() == BatchItemStatus.CREATED) {
+                assertThat(personService.findById(item.getId()).getCpf(), is(equalTo(batch.get(item.getIndex()).getCpf())));
+            }
+        }
+    }
+
+    @Test
+    void whenTheNewCpfBelongsOnAnotherShardThenTheUpdateIsRejected() throws Exception {
+        // Given
+        Person person = personService.create(createPersonDTO(PersonUtils.createCpf(1)));
+        int shard = personShards.shardOfId(person.getId());
+        String sameShardCpf = findCpf(shard, true);
+        String otherShardCpf = findCpf(shard, false);
+
+        // When
+        personService.updateById(person.getId(), createPersonDTO(sameShardCpf), null);
+
+        // Then
+        assertThat(personService.findById(person.getId()).getCpf(), is(equalTo(sameShardCpf)));
+        assertThrows(CpfChangeNotSupportedException.class,
+                () -> personService.updateById(person.getId(), createPersonDTO(otherShardCpf), null));
+    }
+
+    @Test
+    void whenABatchUpdateMovesACpfToAnotherShardThenNothingIsCommitted() throws Exception {
+        // Given
+        List<Person> persons = createPersons(6);
+        int shard = personShards.shardOfId(persons.get(0).getId());
+        List<Person> sameShard = persons.stream()
+                .filter(person -> personShards.shardOfId(person.getId()) == shard)
+                .collect(Collectors.toList());
+        Person first = sameShard.get(0);
+        Person second = sameShard.get(1);
+        Map<Long, PersonDTO> batch = new LinkedHashMap<>();
+        batch.put(first.getId(), createPersonDTO(findCpf(shard, true)));
+        batch.put(second.getId(), createPersonDTO(findCpf(shard, false)));
+
+        // When
+        assertThrows(CpfChangeNotSupportedException.class, () -> personService.updateAllById(batch));
+
+        // Then
+        for (Person person : Arrays.asList(first, second)) {
+            assertThat(shard(shard).queryForObject("select cpf from person where id = ?", String.class, person.getId()),
+                    is(equalTo(person.getCpf())));
+        }
+    }
+
+    @Test
+    void whenChangesAreRecordedOnSeveralShardsThenTheirNumbersAreDrawnFromOneSequence() throws Exception {
+        // Given
+        List<Person> persons = createPersons(12);
+        String ids = persons.stream().map(person -> person.getId().toString()).collect(Collectors.joining(", "));
+
+        // When
+        List<Long> seqs = new ArrayList<>();
+        for (int shard = 0; shard < SHARD_COUNT; shard++) {
+            seqs.addAll(shard(shard).queryForList(
+                    "select seq from person_change where type = 'CREATED' and person_id in (" + ids + ")", Long.class));
+        }
+
+        // Then
+        Collections.sort(seqs);
+        assertThat(seqs, hasSize(12));
+        assertThat(seqs.get(11) - seqs.get(0), is(equalTo(11L)));
+    }
+
+    @Test
+    void whenPersonsAreDeletedInABatchThenEachShardDeletesItsOwn() throws Exception {
+        // Given
+        List<Long> ids = createPersons(6).stream().map(Person::getId).sorted().collect(Collectors.toList());
+        List<Long> batch = new ArrayList<>(ids.subList(0, 4));
+        batch.add(ids.get(0));
+        batch.add(Long.MAX_VALUE);
+
+        // When
+        MessageResponseDTO result = personService.deleteAllById(batch);
+
+        // Then
+        assertThat(result.getMessage(), is(equalTo("Deleted 4 of 5 requested persons")));
+        assertThat(findAllIds(10), is(equalTo(ids.subList(4, 6))));
+        for (Long id : ids.subList(0, 4)) {
+            assertThat(shard(personShards.shardOfId(id)).queryForObject(
+                    "select count(*) from person where id = ?", Long.class, id), is(equalTo(0L)));
+        }
+    }
+
+    @Test
+    void whenFieldsAreSelectedThenThePagesOfEveryShardAreMergedInIdOrder() throws Exception {
+        // Given
+        List<Long> ids = createPersons(6).stream().map(Person::getId).sorted().collect(Collectors.toList());
+
+        // When
+        PersonFieldsPageDTO names = personService.findAll(null, 4, new LinkedHashSet<>(Arrays.asList("lastName", "firstName")));
+        PersonFieldsPageDTO phones = personService.findAll(ids.get(3), 4, new LinkedHashSet<>(Arrays.asList("phones", "id")));
+
+        // Then
+        assertThat(names.getContent(), hasSize(4));
+        assertThat(names.getContent().get(0).keySet(), contains("lastName", "firstName"));
+        assertThat(names.getNextCursor(), is(equalTo(ids.get(3))));
+        assertThat(phones.getContent().stream().map(person -> ((Number) person.get("id")).longValue())
+                .collect(Collectors.toList()), is(equalTo(ids.subList(4, 6))));
+        assertThat(phones.getNextCursor(), is(nullValue()));
+    }
+
+    @Test
+    void whenChangesAreSyncedThenUpdatesAndTombstonesOfEveryShardAreMergedInOrder() throws Exception {
+        // Given
+        Instant start = Instant.now();
+        List<Long> ids = createPersons(8).stream().map(Person::getId).collect(Collectors.toList());
+        personService.deleteById(ids.get(1));
+        personService.deleteById(ids.get(6));
+
+        // When
+        List<Long> updated = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        List<Instant> instants = new ArrayList<>();
+        Instant updatedSince = start;
+        Long after = null;
+        do {
+            PersonSyncPageDTO page = personService.findUpdatedSince(updatedSince, after, 3);
+            assertThat(page.getContent().size() + page.getDeleted().size(), is(lessThanOrEqualTo(3)));
+            page.getContent().forEach(person -> {
+                updated.add(person.getId());
+                instants.add(person.getUpdatedAt());
+            });
+            page.getDeleted().forEach(tombstone -> deleted.add(tombstone.getId()));
+            updatedSince = page.getNextUpdatedSince();
+            after = page.getNextAfter();
+        } while (updatedSince != null);
+
+        // Then
+        assertThat(updated, containsInAnyOrder(ids.get(0), ids.get(2), ids.get(3), ids.get(4), ids.get(5), ids.get(7)));
+        assertThat(deleted, contains(ids.get(1), ids.get(6)));
+        assertThat(instants, is(equalTo(instants.stream().sorted().collect(Collectors.toList()))));
+    }
+
+    private List<Person> createPersons(int count) throws PersonAlreadyRegisteredException {
+        List<Person> persons = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            persons.add(personService.create(createPersonDTO(PersonUtils.createCpf(i))));
+        }
+        return persons;
+    }
+
+    private List<Long> findAllIds(int limit) {
+        List<Long> ids = new ArrayList<>();
+        Long after = null;
+        do {
+            PersonPageDTO page = personService.findAll(after, limit);
+            page.getContent().forEach(person -> ids.add(person.getId()));
+            after = page.getNextCursor();
+        } while (after != null);
+        return ids;
+    }
+
+    /**
+     * First generated CPF, after those used by the tests, that lands on {@code shard} or, when
+     * {@code sameShard} is false, on any other shard.
+     */
+    private String findCpf(int shard, boolean sameShard) {
+        for (int i = 100; ; i++) {
+            String cpf = PersonUtils.createCpf(i);
+            if ((personShards.shardOfCpfKey(CpfUtils.toKey(cpf)) == shard) == sameShard) {
+                return cpf;
+            }
+        }
+    }
+
+    private JdbcTemplate shard(int shard) {
+        return new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:shard" + shard + ";DB_CLOSE_DELAY=-1", "sa", ""));
+    }
+
+    private PersonDTO createPersonDTO(String cpf) {
+        PersonDTO personDTO = PersonUtils.createPersonDTO();
+        personDTO.setCpf(cpf);
+        personDTO.getPhones().forEach(phone -> phone.setId(null));
+        return personDTO;
+    }
+}
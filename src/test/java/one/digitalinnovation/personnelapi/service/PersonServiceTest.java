@@ -1,14 +1,31 @@
 package one.digitalinnovation.personnelapi.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import one.digitalinnovation.personnelapi.dto.BatchCreateResultDTO;
+import one.digitalinnovation.personnelapi.dto.MessageResponseDTO;
 import one.digitalinnovation.personnelapi.dto.PersonDTO;
+import one.digitalinnovation.personnelapi.dto.PersonPageDTO;
 import one.digitalinnovation.personnelapi.dto.mapper.PersonMapper;
 import one.digitalinnovation.personnelapi.entity.Person;
 import one.digitalinnovation.personnelapi.entity.Phone;
+import one.digitalinnovation.personnelapi.enums.BatchItemStatus;
+import one.digitalinnovation.personnelapi.enums.PersonChangeType;
 import one.digitalinnovation.personnelapi.enums.PhoneType;
+import one.digitalinnovation.personnelapi.exception.BatchSizeExceededException;
+import one.digitalinnovation.personnelapi.exception.InvalidFieldSelectionException;
+import one.digitalinnovation.personnelapi.exception.InvalidPersonPatchException;
 import one.digitalinnovation.personnelapi.exception.PersonAlreadyRegisteredException;
 import one.digitalinnovation.personnelapi.exception.PersonNotFoundException;
+import one.digitalinnovation.personnelapi.exception.PersonVersionMismatchException;
+import one.digitalinnovation.personnelapi.repository.PersonChangeRepository;
 import one.digitalinnovation.personnelapi.repository.PersonRepository;
+import one.digitalinnovation.personnelapi.repository.PhoneRepository;
+import one.digitalinnovation.personnelapi.repository.projection.PersonPhoneId;
+import one.digitalinnovation.personnelapi.repository.sharding.PersonShards;
 import one.digitalinnovation.personnelapi.utils.PersonUtils;
+import org.hibernate.exception.ConstraintViolationException;
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.Assertions;
@@ -17,11 +34,23 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManager;
+import javax.validation.Validator;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 import static org.hamcrest.MatcherAssert.*;
 import static org.hamcrest.Matchers.*;
@@ -36,6 +65,45 @@ public class PersonServiceTest {
     @Mock
     private PersonRepository personRepository;
 
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private Validator validator;
+
+    @Mock
+    private CpfMembershipFilter cpfMembershipFilter;
+
+    @Mock
+    private PhoneRepository phoneRepository;
+
+    @Mock
+    private PersonNameIndex personNameIndex;
+
+    @Mock
+    private PhoneNumberIndex phoneNumberIndex;
+
+    @Mock
+    private PersonChangeLog personChangeLog;
+
+    @Mock
+    private PersonChangeRepository personChangeRepository;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Spy
+    private PersonShards personShards = PersonShards.single();
+
+    @Spy
+    private PersonReadCoalescer personReadCoalescer = new PersonReadCoalescer(new SimpleMeterRegistry(), true, true, Duration.ZERO, 100);
+
+    @Mock
+    private PersonCacheEvictor personCacheEvictor;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @InjectMocks
     private PersonService personService;
 
@@ -43,6 +111,7 @@ public class PersonServiceTest {
 
     private Long VALID_ID = 1L;
     private Long INVALID_ID = 50L;
+    private String NEW_CPF = "52998224725";
 
     @Test
     void whenPersonInformedThenItShouldBeCreated() throws PersonAlreadyRegisteredException {
@@ -54,8 +123,7 @@ public class PersonServiceTest {
 
 
         //when
-        when(personRepository.findByCpf(personDTO.getCpf())).thenReturn(Optional.empty());
-        when(personRepository.save(personToSave)).thenReturn(expectedSavedPerson);
+        when(personRepository.saveAndFlush(personToSave)).thenReturn(expectedSavedPerson);
 
         // then
         Person savedPerson = personService.create(personDTO);
@@ -63,7 +131,7 @@ public class PersonServiceTest {
         assertThat(savedPerson.getId(), is(equalTo(expectedSavedPerson.getId())));
         assertThat(savedPerson.getCpf(), is(equalTo(expectedSavedPerson.getCpf())));
         assertThat(savedPerson.getBirthDate(), is(equalTo(expectedSavedPerson.getBirthDate())));
-
+        verify(personRepository, never()).existsByCpfKey(expectedSavedPerson.getCpfKey());
     }
 
     @Test
@@ -73,13 +141,132 @@ public class PersonServiceTest {
         Person duplicatedPerson = personMapper.toModel(personDTO);
 
         //when
-        when(personRepository.findByCpf(personDTO.getCpf())).thenReturn(Optional.of(duplicatedPerson));
+        when(personRepository.saveAndFlush(duplicatedPerson)).thenThrow(new DataIntegrityViolationException(
+                "could not execute statement",
+                new ConstraintViolationException("Unique index or primary key violation", null,
+                        "UK_PERSON_CPF_INDEX_8 ON PUBLIC.PERSON(CPF) VALUES 1")));
 
 
         // then
         assertThrows(PersonAlreadyRegisteredException.class, () -> personService.create(personDTO));
     }
 
+    @Test
+    void whenUnnamedConstraintIsViolatedThenTheViolationIsRethrownWithoutQueryingTheFailedSession() {
+        // Given
+        PersonDTO personDTO = PersonUtils.createPersonDTO();
+        Person personToSave = personMapper.toModel(personDTO);
+        DataIntegrityViolationException violation = new DataIntegrityViolationException("could not execute statement");
+
+        //when
+        when(personRepository.saveAndFlush(personToSave)).thenThrow(violation);
+
+        // then
+        DataIntegrityViolationException thrown =
+                assertThrows(DataIntegrityViolationException.class, () -> personService.create(personDTO));
+        assertThat(thrown, is(sameInstance(violation)));
+        verify(personRepository, never()).existsByCpfKey(Long.parseLong(personDTO.getCpf()));
+    }
+
+    @Test
+    void whenBatchInformedThenNewPersonsAreCreatedAndDuplicatesReported() throws BatchSizeExceededException {
+        // Given
+        PersonDTO registeredPersonDTO = PersonUtils.createPersonDTO();
+        PersonDTO newPersonDTO = PersonUtils.createPersonDTO();
+        newPersonDTO.setCpf(NEW_CPF);
+        PersonDTO repeatedPersonDTO = PersonUtils.createPersonDTO();
+        repeatedPersonDTO.setCpf(NEW_CPF);
+        List<PersonDTO> batch = Arrays.asList(registeredPersonDTO, newPersonDTO, repeatedPersonDTO);
+
+        long registeredCpfKey = Long.parseLong(registeredPersonDTO.getCpf());
+        long newCpfKey = Long.parseLong(NEW_CPF);
+
+        // When
+        when(cpfMembershipFilter.mightContain(registeredCpfKey)).thenReturn(true);
+        when(cpfMembershipFilter.mightContain(newCpfKey)).thenReturn(false);
+        when(personRepository.findRegisteredCpfKeys(Collections.singletonList(registeredCpfKey)))
+                .thenReturn(Collections.singleton(registeredCpfKey));
+
+        // Then
+        BatchCreateResultDTO result = personService.createAll(batch);
+
+        assertThat(result.getCreated(), is(equalTo(1)));
+        assertThat(result.getFailed(), is(equalTo(2)));
+        assertThat(result.getItems().get(0).getStatus(), is(equalTo(BatchItemStatus.DUPLICATE)));
+        assertThat(result.getItems().get(1).getStatus(), is(equalTo(BatchItemStatus.CREATED)));
+        assertThat(result.getItems().get(2).getStatus(), is(equalTo(BatchItemStatus.DUPLICATE)));
+        Person expectedPerson = personMapper.toModel(newPersonDTO);
+        expectedPerson.getPhones().forEach(phone -> phone.setId(null));
+        verify(personRepository, times(1)).saveAll(Collections.singletonList(expectedPerson));
+        verify(personRepository, times(1)).flush();
+    }
+
+    @Test
+    void whenTheCpfConstraintRejectsABatchThenItIsRetriedWithEveryCpfCheckedInTheDatabase() throws BatchSizeExceededException {
+        // Given
+        PersonDTO personDTO = PersonUtils.createPersonDTO();
+        personDTO.setCpf(NEW_CPF);
+        long cpfKey = Long.parseLong(NEW_CPF);
+
+        // When
+        when(cpfMembershipFilter.mightContain(cpfKey)).thenReturn(false);
+        doThrow(new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("Unique index or primary key violation", null,
+                        "UK_PERSON_CPF_INDEX_8 ON PUBLIC.PERSON(CPF_KEY) VALUES 1")))
+                .when(personRepository).flush();
+        when(personRepository.findRegisteredCpfKeys(Collections.singletonList(cpfKey)))
+                .thenReturn(Collections.singleton(cpfKey));
+
+        // Then
+        BatchCreateResultDTO result = personService.createAll(Arrays.asList(personDTO, null));
+
+        assertThat(result.getCreated(), is(equalTo(0)));
+        assertThat(result.getItems().get(0).getStatus(), is(equalTo(BatchItemStatus.DUPLICATE)));
+        assertThat(result.getItems().get(1).getStatus(), is(equalTo(BatchItemStatus.INVALID)));
+        verify(personRepository, times(1)).saveAll(anyList());
+        verify(transactionManager, times(1)).rollback(any());
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    void whenBatchIsTooLargeThenExceptionShouldBeThrown() {
+        // Given
+        List<PersonDTO> batch = Collections.nCopies(PersonService.MAX_BATCH_SIZE + 1, PersonUtils.createPersonDTO());
+
+        // Then
+        assertThrows(BatchSizeExceededException.class, () -> personService.createAll(batch));
+        verifyNoInteractions(personRepository);
+    }
+
+    @Test
+    void whenRegisteredCpfInformedThenPersonShouldBeReturned() throws PersonNotFoundException {
+        // Given
+        Person expectedPersonFound = PersonUtils.createPersonEntity();
+
+        // When
+        when(cpfMembershipFilter.provesAbsent(expectedPersonFound.getCpfKey())).thenReturn(false);
+        when(personRepository.findByCpfKey(expectedPersonFound.getCpfKey())).thenReturn(Optional.of(expectedPersonFound));
+
+        // Then
+        PersonDTO personFound = personService.findByCpf("351.096.520-58");
+
+        assertThat(personFound.getId(), is(equalTo(expectedPersonFound.getId())));
+        assertThat(personFound.getCpf(), is(equalTo(expectedPersonFound.getCpf())));
+    }
+
+    @Test
+    void whenCpfIsRuledOutByTheFilterThenExceptionShouldBeThrownWithoutQuery() {
+        // Given
+        PersonDTO personDTO = PersonUtils.createPersonDTO();
+
+        // When
+        when(cpfMembershipFilter.provesAbsent(Long.parseLong(personDTO.getCpf()))).thenReturn(true);
+
+        // Then
+        assertThrows(PersonNotFoundException.class, () -> personService.findByCpf(personDTO.getCpf()));
+        verifyNoInteractions(personRepository);
+    }
+
     @Test
     void whenValidIDInformedThenPersonShouldBeReturned() throws PersonNotFoundException {
         // Given
@@ -108,63 +295,183 @@ public class PersonServiceTest {
     }
 
     @Test
-    void whenFindAllIsCalledThenAListOfPersonDTOsShouldBeReturned() {
+    void whenFindAllIsCalledThenAPageOfPersonDTOsShouldBeReturned() {
         // Given
         Person mockPerson = PersonUtils.createPersonEntity();
         PersonDTO mockPersonDTO = personMapper.toDto(mockPerson);
-        List<PersonDTO> expectedPersonDTOList = Collections.singletonList(mockPersonDTO);
 
         // When
-        when(personRepository.findAll()).thenReturn(Collections.singletonList(mockPerson));
+        when(personRepository.findIdsAfter(0L, PageRequest.of(0, PersonService.DEFAULT_PAGE_SIZE + 1)))
+                .thenReturn(Collections.singletonList(mockPerson.getId()));
+        when(personRepository.findAllWithPhonesByIdIn(Collections.singletonList(mockPerson.getId())))
+                .thenReturn(Collections.singletonList(mockPerson));
 
         // Then
-        List<PersonDTO> foundPersonDTOList = personService.findAll();
+        PersonPageDTO foundPage = personService.findAll(null, null);
 
-        assertThat(foundPersonDTOList, is(not(empty())));
-        assertThat(foundPersonDTOList.size(), is(equalTo(expectedPersonDTOList.size())));
-        assertThat(foundPersonDTOList.get(0), is(equalTo(expectedPersonDTOList.get(0))));
+        assertThat(foundPage.getContent(), is(not(empty())));
+        assertThat(foundPage.getContent().size(), is(equalTo(1)));
+        assertThat(foundPage.getContent().get(0), is(equalTo(mockPersonDTO)));
+        assertThat(foundPage.getNextCursor(), is(nullValue()));
+    }
+
+    @Test
+    void whenFindAllHasMoreRowsThanLimitThenNextCursorShouldBeReturned() {
+        // Given
+        Person firstPerson = PersonUtils.createPersonEntity();
+
+        // When
+        when(personRepository.findIdsAfter(VALID_ID, PageRequest.of(0, 2)))
+                .thenReturn(Arrays.asList(firstPerson.getId(), 2L));
+        when(personRepository.findAllWithPhonesByIdIn(Collections.singletonList(firstPerson.getId())))
+                .thenReturn(Collections.singletonList(firstPerson));
+
+        // Then
+        PersonPageDTO foundPage = personService.findAll(VALID_ID, 1);
+
+        assertThat(foundPage.getContent().size(), is(equalTo(1)));
+        assertThat(foundPage.getNextCursor(), is(equalTo(firstPerson.getId())));
     }
 
     @Test
     void whenDeleteIsCalledWithValidIDThenPersonShouldBeDeleted() throws PersonNotFoundException {
         // Given
-        Person personToDelete = PersonUtils.createPersonEntity();
+        List<Long> ids = Collections.singletonList(VALID_ID);
+        List<Long> phoneIds = Collections.singletonList(1L);
 
         // When
-        when(personRepository.findById(VALID_ID)).thenReturn(Optional.of(personToDelete));
-        doNothing().when(personRepository).deleteById(VALID_ID);
+        when(personRepository.findPhoneIdsByPersonIdIn(ids)).thenReturn(Collections.singletonList(personPhoneId(VALID_ID, 1L)));
+        when(phoneRepository.deleteByIdIn(phoneIds)).thenReturn(1);
+        when(personRepository.deleteByIdIn(ids)).thenReturn(1);
 
         // Then
         personService.deleteById(VALID_ID);
 
-        verify(personRepository, times(1)).findById(personToDelete.getId());
-        verify(personRepository, times(1)).deleteById(personToDelete.getId());
+        verify(personRepository, times(1)).deleteByIdIn(ids);
+        verify(phoneRepository, times(1)).deleteByIdIn(phoneIds);
+        verify(personRepository, never()).findById(VALID_ID);
+        verify(personChangeLog).record(PersonChangeType.DELETED, VALID_ID, 0L);
     }
 
     @Test
     void whenDeleteIsCalledWithInvalidIDThenExceptionShouldBeThrown() {
+        // Given
+        List<Long> ids = Collections.singletonList(INVALID_ID);
+
         // When
-        when(personRepository.findById(INVALID_ID)).thenReturn(Optional.empty());
+        when(personRepository.findPhoneIdsByPersonIdIn(ids)).thenReturn(Collections.emptyList());
 
         // Then
         assertThrows(PersonNotFoundException.class, () -> personService.deleteById(INVALID_ID));
+        verify(personRepository, never()).deleteByIdIn(any());
+        verify(phoneRepository, never()).deleteByIdIn(any());
+        verifyNoInteractions(personChangeLog);
+    }
+
+    @Test
+    void whenDeleteAllIsCalledThenDistinctIdsAreDeletedAndCounted() throws BatchSizeExceededException {
+        // Given
+        List<Long> ids = Arrays.asList(VALID_ID, INVALID_ID);
+
+        // When
+        when(personRepository.findPhoneIdsByPersonIdIn(ids)).thenReturn(Collections.singletonList(personPhoneId(VALID_ID, null)));
+        when(personRepository.deleteByIdIn(Collections.singletonList(VALID_ID))).thenReturn(1);
+
+        // Then
+        MessageResponseDTO response = personService.deleteAllById(Arrays.asList(VALID_ID, INVALID_ID, VALID_ID));
+
+        assertThat(response.getMessage(), is(equalTo("Deleted 1 of 2 requested persons")));
     }
 
     @Test
-    void whenUpdateIsCalledWithValidIDThenUpdatePerson() throws PersonNotFoundException {
+    void whenDeleteAllIsCalledWithTooManyIdsThenExceptionShouldBeThrown() {
+        // Given
+        List<Long> ids = LongStream.rangeClosed(1, PersonService.MAX_BATCH_SIZE + 1).boxed().collect(Collectors.toList());
+
+        // Then
+        assertThrows(BatchSizeExceededException.class, () -> personService.deleteAllById(ids));
+        verify(personRepository, never()).deleteByIdIn(any());
+    }
+
+    @Test
+    void whenPhoneIndexCannotAnswerThenOwnersAreQueriedByNormalizedNumber() throws PersonNotFoundException {
+        // When
+        when(phoneNumberIndex.ownerOf(11999999999L)).thenReturn(PhoneNumberIndex.UNKNOWN);
+        when(personRepository.findIdsByPhoneNumberKey(11999999999L)).thenReturn(Arrays.asList(VALID_ID, INVALID_ID));
+
+        // Then
+        assertThat(personService.findIdsByPhone("(11) 99999-9999"), contains(VALID_ID, INVALID_ID));
+    }
+
+    @Test
+    void whenPhoneIndexKnowsTheNumberThenTheDatabaseIsNotQueried() {
+        // When
+        when(phoneNumberIndex.ownerOf(11999999999L)).thenReturn(PhoneNumberIndex.NOT_FOUND);
+
+        // Then
+        assertThrows(PersonNotFoundException.class, () -> personService.findIdsByPhone("11 99999-9999"));
+        assertThrows(PersonNotFoundException.class, () -> personService.findIdsByPhone("not a number"));
+        verify(personRepository, never()).findIdsByPhoneNumberKey(any());
+    }
+
+    @Test
+    void whenUpdateIsCalledWithValidIDThenUpdatePersonInPlace() throws Exception {
         // Given
         Person personToUpdate = PersonUtils.createPersonEntity();
+        personToUpdate.setPhones(new ArrayList<>(personToUpdate.getPhones()));
+        Phone existingPhone = personToUpdate.getPhones().get(0);
         PersonDTO personToUpdateDTO = PersonUtils.createPersonDTO();
+        personToUpdateDTO.setFirstName("Changed");
 
         // When
         when(personRepository.findById(VALID_ID)).thenReturn(Optional.of(personToUpdate));
-        when(personRepository.save(personToUpdate)).thenReturn(personToUpdate);
 
         // Then
-        personService.updateById(VALID_ID, personToUpdateDTO);
+        personService.updateById(VALID_ID, personToUpdateDTO, null);
 
+        assertThat(personToUpdate.getFirstName(), is(equalTo("Changed")));
+        assertThat(personToUpdate.getPhones(), contains(sameInstance(existingPhone)));
         verify(personRepository, times(1)).findById(VALID_ID);
-        verify(personRepository, times(1)).save(personToUpdate);
+        verify(personRepository, times(1)).flush();
+        verify(personRepository, never()).save(any());
+    }
+
+    @Test
+    void whenPatchIsCalledWithPhonesThenPhonesAreMatchedById() throws Exception {
+        // Given
+        Person personToPatch = PersonUtils.createPersonEntity();
+        Phone existingPhone = personToPatch.getPhones().get(0);
+        Phone removedPhone = Phone.builder().id(2L).type(PhoneType.BUSINESS).number("1133333-3333").build();
+        personToPatch.setPhones(new ArrayList<>(Arrays.asList(existingPhone, removedPhone)));
+        JsonNode patch = new ObjectMapper().readTree("{\"phones\": ["
+                + "{\"id\": 1, \"type\": \"MOBILE\", \"number\": \"1199999-9999\"},"
+                + "{\"type\": \"HOME\", \"number\": \"1122222-2222\"}]}");
+
+        // When
+        when(personRepository.findById(VALID_ID)).thenReturn(Optional.of(personToPatch));
+
+        // Then
+        personService.patchById(VALID_ID, patch, null);
+
+        assertThat(personToPatch.getPhones(), hasSize(2));
+        assertThat(personToPatch.getPhones().get(0), is(sameInstance(existingPhone)));
+        assertThat(existingPhone.getType(), is(equalTo(PhoneType.MOBILE)));
+        assertThat(personToPatch.getPhones().get(1).getId(), is(nullValue()));
+        assertThat(personToPatch.getPhones().get(1).getNumber(), is(equalTo("1122222-2222")));
+        verify(personRepository, times(1)).flush();
+    }
+
+    @Test
+    void whenPatchIsCalledWithUnknownFieldThenExceptionShouldBeThrown() throws Exception {
+        // Given
+        JsonNode patch = new ObjectMapper().readTree("{\"nickname\": \"Teste\"}");
+
+        // When
+        when(personRepository.findById(VALID_ID)).thenReturn(Optional.of(PersonUtils.createPersonEntity()));
+
+        // Then
+        assertThrows(InvalidPersonPatchException.class, () -> personService.patchById(VALID_ID, patch, null));
+        verify(personRepository, never()).flush();
     }
 
     @Test
@@ -176,6 +483,51 @@ public class PersonServiceTest {
         when(personRepository.findById(INVALID_ID)).thenReturn(Optional.empty());
 
         // Then
-        assertThrows(PersonNotFoundException.class, () -> personService.updateById(INVALID_ID, personToUpdateDTO));
+        assertThrows(PersonNotFoundException.class, () -> personService.updateById(INVALID_ID, personToUpdateDTO, null));
+    }
+
+    @Test
+    void whenUpdateIsCalledWithStaleVersionThenExceptionShouldBeThrown() {
+        // Given
+        Person personToUpdate = PersonUtils.createPersonEntity();
+        personToUpdate.setVersion(2L);
+        PersonDTO personToUpdateDTO = PersonUtils.createPersonDTO();
+
+        // When
+        when(personRepository.findById(VALID_ID)).thenReturn(Optional.of(personToUpdate));
+
+        // Then
+        assertThrows(PersonVersionMismatchException.class, () -> personService.updateById(VALID_ID, personToUpdateDTO, 1L));
+        verify(personRepository, never()).save(any());
+    }
+
+    @Test
+    void whenFindAllSelectsAnUnknownFieldThenExceptionShouldBeThrown() {
+        assertThrows(InvalidFieldSelectionException.class,
+                () -> personService.findAll(null, 10, Collections.singleton("version")));
+    }
+
+    private PersonPhoneId personPhoneId(Long personId, Long phoneId) {
+        return new PersonPhoneId() {
+            @Override
+            public Long getPersonId() {
+                return personId;
+            }
+
+            @Override
+            public Long getVersion() {
+                return 0L;
+            }
+
+            @Override
+            public Long getPhoneId() {
+                return phoneId;
+            }
+
+            @Override
+            public Long getNumberKey() {
+                return phoneId == null ? null : 11999990000L + phoneId;
+            }
+        };
     }
 }
@@ -0,0 +1,233 @@
+package one.digitalinnovation.personnelapi.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import one.digitalinnovation.personnelapi.dto.PersonDTO;
+import one.digitalinnovation.personnelapi.entity.Person;
+import one.digitalinnovation.personnelapi.enums.QueuedUpdateStatus;
+import one.digitalinnovation.personnelapi.exception.PersonAlreadyRegisteredException;
+import one.digitalinnovation.personnelapi.exception.PersonNotFoundException;
+import one.digitalinnovation.personnelapi.exception.UpdateQueueFullException;
+import one.digitalinnovation.personnelapi.repository.PersonRepository;
+import one.digitalinnovation.personnelapi.utils.PersonUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "personnel.write-behind.enabled=true",
+        "personnel.write-behind.capacity=2",
+        "personnel.write-behind.batch-size=10",
+        "personnel.write-behind.flush-interval=1h"
+})
+public class PersonUpdateQueueTest {
+
+    @Autowired
+    private PersonUpdateQueue personUpdateQueue;
+
+    @Autowired
+    private PersonService personService;
+
+    @Autowired
+    private PersonRepository personRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @AfterEach
+    void tearDown() {
+        personUpdateQueue.flush();
+        personRepository.deleteAll();
+    }
+
+    @Test
+    void whenAPersonIsUpdatedRepeatedlyThenOnlyTheLastUpdateIsWrittenInOneFlush() throws Exception {
+        // Given
+        Person person = personService.create(createPersonDTO(1));
+        personService.findById(person.getId());
+        double coalescedBefore = counter(PersonUpdateQueue.COALESCED_COUNTER);
+        long flushesBefore = meterRegistry.get(PersonUpdateQueue.FLUSH_TIMER).timer().count();
+
+        // When
+        for (int i = 1; i <= 5; i++) {
+            PersonDTO update = createPersonDTO(1);
+            update.setFirstName("Update " + i);
+            personUpdateQueue.enqueue(person.getId(), update);
+        }
+        assertThat(personUpdateQueue.depth(), is(equalTo(1)));
+        assertThat(meterRegistry.get(PersonUpdateQueue.DEPTH_GAUGE).gauge().value(), is(equalTo(1.0)));
+        personUpdateQueue.flush();
+
+        // Then
+        PersonDTO updated = personService.findById(person.getId());
+        assertThat(updated.getFirstName(), is(equalTo("Update 5")));
+        assertThat(updated.getVersion(), is(equalTo(person.getVersion() + 1)));
+        assertThat(personUpdateQueue.depth(), is(equalTo(0)));
+        assertThat(counter(PersonUpdateQueue.COALESCED_COUNTER), is(equalTo(coalescedBefore + 4)));
+        assertThat(meterRegistry.get(PersonUpdateQueue.FLUSH_TIMER).timer().count(), is(equalTo(flushesBefore + 1)));
+    }
+
+    @Test
+    void whenTheQueueIsFullThenNewPersonsAreRejectedButWaitingOnesAreStillReplaced() throws Exception {
+        // Given
+        Person first = personService.create(createPersonDTO(1));
+        Person second = personService.create(createPersonDTO(2));
+        personUpdateQueue.enqueue(first.getId(), createPersonDTO(1));
+        personUpdateQueue.enqueue(second.getId(), createPersonDTO(2));
+
+        // When
+        assertThrows(UpdateQueueFullException.class, () -> personUpdateQueue.enqueue(second.getId() + 1, createPersonDTO(3)));
+        PersonDTO replacement = createPersonDTO(1);
+        replacement.setLastName("Replaced");
+        personUpdateQueue.enqueue(first.getId(), replacement);
+        personUpdateQueue.flush();
+
+        // Then
+        assertThat(personService.findById(first.getId()).getLastName(), is(equalTo("Replaced")));
+    }
+
+    @Test
+    void whenAnUpdateOfTheBatchFailsThenTheOthersAreStillWritten() throws Exception {
+        // Given
+        Person first = personService.create(createPersonDTO(1));
+        Person second = personService.create(createPersonDTO(2));
+        double failuresBefore = counter(PersonUpdateQueue.FAILED_COUNTER, "exception", "PersonAlreadyRegisteredException");
+
+        // When
+        personUpdateQueue.enqueue(first.getId(), createPersonDTO(2));
+        PersonDTO update = createPersonDTO(2);
+        update.setFirstName("Written");
+        personUpdateQueue.enqueue(second.getId(), update);
+        personUpdateQueue.flush();
+
+        // Then
+        assertThat(personService.findById(first.getId()).getCpf(), is(equalTo(PersonUtils.createCpf(1))));
+        assertThat(personService.findById(second.getId()).getFirstName(), is(equalTo("Written")));
+        assertThat(counter(PersonUpdateQueue.FAILED_COUNTER, "exception", "PersonAlreadyRegisteredException"),
+                is(equalTo(failuresBefore + 1)));
+        assertThat(personUpdateQueue.status(first.getId()).getStatus(), is(equalTo(QueuedUpdateStatus.DROPPED)));
+        assertThat(personUpdateQueue.status(first.getId()).getMessage(), is(equalTo("CPF is already registered")));
+        assertThat(personUpdateQueue.status(second.getId()).getStatus(), is(equalTo(QueuedUpdateStatus.WRITTEN)));
+    }
+
+    @Test
+    void whenAnUnknownPersonIsQueuedThenItIsRejectedAndADroppedUpdateIsClearedByTheNextOne() throws Exception {
+        // Given
+        Person person = personService.create(createPersonDTO(1));
+        personUpdateQueue.enqueue(person.getId(), createPersonDTO(1));
+        personService.create(createPersonDTO(2));
+        PersonDTO duplicate = createPersonDTO(2);
+        personUpdateQueue.enqueue(person.getId(), duplicate);
+        personUpdateQueue.flush();
+
+        // When
+        assertThrows(PersonNotFoundException.class, () -> personUpdateQueue.enqueue(person.getId() + 1000, createPersonDTO(3)));
+        QueuedUpdateStatus droppedStatus = personUpdateQueue.status(person.getId()).getStatus();
+        personUpdateQueue.enqueue(person.getId(), createPersonDTO(1));
+
+        // Then
+        assertThat(droppedStatus, is(equalTo(QueuedUpdateStatus.DROPPED)));
+        assertThat(personUpdateQueue.status(person.getId()).getStatus(), is(equalTo(QueuedUpdateStatus.PENDING)));
+        assertThat(personUpdateQueue.depth(), is(equalTo(1)));
+    }
+
+    @Test
+    void whenTheQueuedPersonNoLongerExistsThenTheUpdateIsDroppedAndCounted() throws Exception {
+        // Given
+        Person person = personService.create(createPersonDTO(1));
+        personUpdateQueue.enqueue(person.getId(), createPersonDTO(1));
+        personService.deleteById(person.getId());
+        double failuresBefore = counter(PersonUpdateQueue.FAILED_COUNTER, "exception", "PersonNotFoundException");
+
+        // When
+        personUpdateQueue.flush();
+
+        // Then
+        assertThrows(PersonNotFoundException.class, () -> personService.findById(person.getId()));
+        assertThat(counter(PersonUpdateQueue.FAILED_COUNTER, "exception", "PersonNotFoundException"),
+                is(equalTo(failuresBefore + 1)));
+    }
+
+    @Test
+    void whenAPersonIsPatchedWhileAnUpdateIsQueuedThenThePatchIsAppliedOnTopOfIt() throws Exception {
+        // Given
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+        Person person = personService.create(createPersonDTO(1));
+        PersonDTO update = PersonUtils.createPersonDTO();
+        update.setCpf(PersonUtils.createCpf(1));
+        update.getPhones().get(0).setId(null);
+        update.setFirstName("Queued");
+        update.setLastName("Queued");
+
+        // When
+        mockMvc.perform(put("/api/v1/person/{id}", person.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(update)))
+                .andExpect(status().isAccepted());
+        mockMvc.perform(patch("/api/v1/person/{id}", person.getId())
+                        .contentType("application/merge-patch+json")
+                        .content("{\"firstName\": \"Patched\"}"))
+                .andExpect(status().isNoContent());
+        personUpdateQueue.flush();
+
+        // Then
+        PersonDTO written = personService.findById(person.getId());
+        assertThat(written.getFirstName(), is(equalTo("Patched")));
+        assertThat(written.getLastName(), is(equalTo("Queued")));
+        assertThat(written.getVersion(), is(equalTo(person.getVersion() + 2)));
+        assertThat(personUpdateQueue.status(person.getId()).getStatus(), is(equalTo(QueuedUpdateStatus.WRITTEN)));
+    }
+
+    @Test
+    void whenAPersonIsDeletedWhileAnUpdateIsQueuedThenTheUpdateIsDiscardedWithoutFailing() throws Exception {
+        // Given
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+        Person person = personService.create(createPersonDTO(1));
+        personUpdateQueue.enqueue(person.getId(), createPersonDTO(1));
+        double failuresBefore = counter(PersonUpdateQueue.FAILED_COUNTER, "exception", "PersonNotFoundException");
+
+        // When
+        mockMvc.perform(delete("/api/v1/person/{id}", person.getId()))
+                .andExpect(status().isNoContent());
+        personUpdateQueue.flush();
+
+        // Then
+        assertThat(personUpdateQueue.depth(), is(equalTo(0)));
+        assertThat(counter(PersonUpdateQueue.FAILED_COUNTER, "exception", "PersonNotFoundException"),
+                is(equalTo(failuresBefore)));
+    }
+
+    private double counter(String name, String... tags) {
+        Counter counter = meterRegistry.find(name).tags(tags).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private PersonDTO createPersonDTO(int sequence) {
+        PersonDTO personDTO = PersonUtils.createPersonDTO();
+        personDTO.setCpf(PersonUtils.createCpf(sequence));
+        personDTO.setPhones(Collections.emptyList());
+        return personDTO;
+    }
+}
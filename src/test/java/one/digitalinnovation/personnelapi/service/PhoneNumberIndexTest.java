@@ -0,0 +1,141 @@
+package one.digitalinnovation.personnelapi.service;
+
+import one.digitalinnovation.personnelapi.repository.PersonRepository;
+import one.digitalinnovation.personnelapi.repository.projection.PersonPhoneNumber;
+import one.digitalinnovation.personnelapi.repository.sharding.PersonShards;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class PhoneNumberIndexTest {
+
+    @Mock
+    private PersonRepository personRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private PhoneNumberIndex phoneNumberIndex;
+
+    @BeforeEach
+    void setUp() {
+        phoneNumberIndex = new PhoneNumberIndex(personRepository, PersonShards.single(), transactionManager, true, Duration.ZERO);
+        when(personRepository.streamAllPhoneNumbers()).thenReturn(Stream.empty());
+        phoneNumberIndex.load();
+    }
+
+    @Test
+    void whenANumberHasOneOwnerThenItIsReturnedUntilRemoved() {
+        // When
+        phoneNumberIndex.put(11999999999L, 1L);
+        phoneNumberIndex.remove(11999999999L, 2L);
+
+        // Then
+        assertThat(phoneNumberIndex.ownerOf(11999999999L), is(equalTo(1L)));
+        assertThat(phoneNumberIndex.ownerOf(11888888888L), is(equalTo(PhoneNumberIndex.NOT_FOUND)));
+
+        phoneNumberIndex.remove(11999999999L, 1L);
+        assertThat(phoneNumberIndex.ownerOf(11999999999L), is(equalTo(PhoneNumberIndex.NOT_FOUND)));
+    }
+
+    @Test
+    void whenANumberIsSharedThenTheIndexDefersToTheDatabase() {
+        // When
+        phoneNumberIndex.put(1133333333L, 1L);
+        phoneNumberIndex.put(1133333333L, 2L);
+        phoneNumberIndex.remove(1133333333L, 2L);
+
+        // Then
+        assertThat(phoneNumberIndex.ownerOf(1133333333L), is(equalTo(PhoneNumberIndex.UNKNOWN)));
+    }
+
+    @Test
+    void whenTheIndexIsNotLoadedThenEveryNumberIsUnknown() {
+        // Given
+        PhoneNumberIndex notLoaded = new PhoneNumberIndex(personRepository, PersonShards.single(), transactionManager, true, Duration.ZERO);
+
+        // When
+        notLoaded.put(11999999999L, 1L);
+
+        // Then
+        assertThat(notLoaded.ownerOf(11999999999L), is(equalTo(PhoneNumberIndex.UNKNOWN)));
+    }
+
+    @Test
+    void whenTheIndexIsRebuiltThenItMatchesTheDatabaseAndKeepsTheWritesMadeMeanwhile() {
+        // Given
+        phoneNumberIndex.put(11999999999L, 1L);
+        phoneNumberIndex.put(1133333333L, 1L);
+        phoneNumberIndex.put(1133333333L, 2L);
+        when(personRepository.streamAllPhoneNumbers()).thenReturn(
+                Stream.of(phoneNumber(1133333333L, 2L), phoneNumber(11777777777L, 3L))
+                        .peek(number -> {
+                            phoneNumberIndex.put(11666666666L, 4L);
+                            phoneNumberIndex.remove(11777777777L, 3L);
+                        }));
+
+        // When
+        phoneNumberIndex.rebuild();
+
+        // Then
+        assertThat(phoneNumberIndex.ownerOf(11999999999L), is(equalTo(PhoneNumberIndex.NOT_FOUND)));
+        assertThat(phoneNumberIndex.ownerOf(1133333333L), is(equalTo(2L)));
+        assertThat(phoneNumberIndex.ownerOf(11666666666L), is(equalTo(4L)));
+        assertThat(phoneNumberIndex.ownerOf(11777777777L), is(equalTo(PhoneNumberIndex.NOT_FOUND)));
+        assertThat(phoneNumberIndex.size(), is(equalTo(2)));
+    }
+
+    @Test
+    void whenManyNumbersAreAddedAndRemovedThenLookupsMatchAHashMap() {
+        // Given
+        Random random = new Random(42);
+        Map<Long, Long> expected = new HashMap<>();
+
+        // When
+        for (int i = 0; i < 20000; i++) {
+            long numberKey = 1 + random.nextInt(5000);
+            long personId = expected.getOrDefault(numberKey, 1 + (long) random.nextInt(1000));
+            if (random.nextInt(3) == 0) {
+                phoneNumberIndex.remove(numberKey, personId);
+                expected.remove(numberKey);
+            } else {
+                phoneNumberIndex.put(numberKey, personId);
+                expected.put(numberKey, personId);
+            }
+        }
+
+        // Then
+        for (long numberKey = 1; numberKey <= 5000; numberKey++) {
+            assertThat(phoneNumberIndex.ownerOf(numberKey), is(equalTo(expected.getOrDefault(numberKey, PhoneNumberIndex.NOT_FOUND))));
+        }
+        assertThat(phoneNumberIndex.size(), is(equalTo(expected.size())));
+    }
+
+    private static PersonPhoneNumber phoneNumber(long numberKey, long personId) {
+        return new PersonPhoneNumber() {
+            @Override
+            public Long getNumberKey() {
+                return numberKey;
+            }
+
+            @Override
+            public Long getPersonId() {
+                return personId;
+            }
+        };
+    }
+}
@@ -2,9 +2,16 @@ package one.digitalinnovation.personnelapi.utils;
 
 import one.digitalinnovation.personnelapi.dto.PersonDTO;
 import one.digitalinnovation.personnelapi.entity.Person;
+import one.digitalinnovation.personnelapi.entity.Phone;
+import one.digitalinnovation.personnelapi.enums.PhoneType;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class PersonUtils {
 
@@ -21,7 +28,7 @@ public class PersonUtils {
                 .lastName(LAST_NAME)
                 .cpf(CPF)
                 .birthDate(BIRTHDATE)
-                .phones(Collections.singletonList(PhoneUtils.createPhoneEntity()))
+                .phones(Collections.singletonList(PhoneUtils.createPhoneDTO()))
                 .build();
     }
 
@@ -31,9 +38,55 @@ public class PersonUtils {
                 .firstName(FIRST_NAME)
                 .lastName(LAST_NAME)
                 .cpf(CPF)
+                .cpfKey(Long.parseLong(CPF))
                 .birthDate(LocalDate.of(1970, 1, 1))
                 .phones(Collections.singletonList(PhoneUtils.createPhoneEntity()))
                 .build();
     }
 
+    /**
+     * Unsaved persons numbered from zero, each with a home and a mobile phone. Their CPFs are zero-padded
+     * sequence numbers, which are stored as given but would not pass validation.
+     */
+    public static List<Person> createPersonEntities(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> Person.builder()
+                        .firstName("First" + i)
+                        .lastName("Last" + i)
+                        .cpf(String.format("%011d", i))
+                        .birthDate(LocalDate.of(1970, 1, 1))
+                        .phones(new ArrayList<>(Arrays.asList(
+                                Phone.builder().type(PhoneType.HOME).number("1199999-000" + i).build(),
+                                Phone.builder().type(PhoneType.MOBILE).number("1188888-000" + i).build())))
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Builds a valid CPF whose first nine digits are {@code sequence}, zero padded.
+     */
+    public static String createCpf(int sequence) {
+        int[] digits = new int[11];
+        String base = String.format("%09d", sequence);
+        for (int i = 0; i < 9; i++) {
+            digits[i] = base.charAt(i) - '0';
+        }
+        digits[9] = cpfCheckDigit(digits, 9);
+        digits[10] = cpfCheckDigit(digits, 10);
+
+        StringBuilder cpf = new StringBuilder(11);
+        for (int digit : digits) {
+            cpf.append(digit);
+        }
+        return cpf.toString();
+    }
+
+    private static int cpfCheckDigit(int[] digits, int length) {
+        int sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += digits[i] * (length + 1 - i);
+        }
+        int remainder = sum % 11;
+        return remainder < 2 ? 0 : 11 - remainder;
+    }
 }
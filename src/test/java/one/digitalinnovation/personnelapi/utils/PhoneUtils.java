@@ -12,6 +12,7 @@ public class PhoneUtils {
 
     public static PhoneDTO createPhoneDTO() {
         return PhoneDTO.builder()
+                .id(PHONE_ID)
                 .number(PHONE_NUMBER)
                 .type(PHONE_TYPE)
                 .build();